@@ -0,0 +1,204 @@
+package com.tp.order.analytics;
+
+import com.tp.order.dto.SalesBackfillResult;
+import com.tp.order.entity.Order;
+import com.tp.order.entity.OrderItem;
+import com.tp.order.repository.DailySalesRepository;
+import com.tp.order.repository.SalesRollupRepository.ProductDay;
+import com.tp.order.repository.SalesTotals;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the {@code daily_sales} and {@code product_daily_sales} rollups current. Orders are folded into
+ * in-memory totals once their transaction commits and {@link #flush()} adds those totals to the tables in
+ * one batch, so placing an order never waits on the lock of today's rollup row. Totals that were not
+ * flushed before a crash are lost; {@link #backfill} recomputes any closed day from the orders tables.
+ */
+@Component
+@ConditionalOnProperty(name = "app.orders.sales-rollup.enabled", havingValue = "true", matchIfMissing = true)
+public class SalesRollup {
+    
+    private static final Logger log = LoggerFactory.getLogger(SalesRollup.class);
+    private static final SalesTotals ONE_ORDER = new SalesTotals(1, 0, BigDecimal.ZERO, BigDecimal.ZERO);
+    
+    private final DailySalesRepository dailySalesRepository;
+    private final Clock clock;
+    private final int partitionDays;
+    private final int backfillThreads;
+    
+    // Recording shares the read side; swapping out the pending totals for a flush takes the write side
+    private final ReentrantReadWriteLock pendingLock = new ReentrantReadWriteLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private Map<LocalDate, SalesTotals> pendingDaily = new ConcurrentHashMap<>();
+    private Map<ProductDay, SalesTotals> pendingPerProduct = new ConcurrentHashMap<>();
+    
+    @Autowired
+    public SalesRollup(DailySalesRepository dailySalesRepository,
+                       @Value("${app.orders.sales-rollup.backfill.partition-days:7}") int partitionDays,
+                       @Value("${app.orders.sales-rollup.backfill.threads:4}") int backfillThreads) {
+        this(dailySalesRepository, Clock.systemDefaultZone(), partitionDays, backfillThreads);
+    }
+    
+    SalesRollup(DailySalesRepository dailySalesRepository, Clock clock, int partitionDays, int backfillThreads) {
+        this.dailySalesRepository = dailySalesRepository;
+        this.clock = clock;
+        this.partitionDays = partitionDays;
+        this.backfillThreads = backfillThreads;
+    }
+    
+    /**
+     * Counts freshly persisted orders once the transaction that persists them commits; a rollback
+     * leaves the rollups untouched.
+     */
+    public void record(Collection<Order> orders) {
+        Map<LocalDate, SalesTotals> daily = new HashMap<>();
+        Map<ProductDay, SalesTotals> perProduct = new HashMap<>();
+        for (Order order : orders) {
+            LocalDate salesDate = order.getCreatedAt().toLocalDate();
+            Map<Long, SalesTotals> lines = new HashMap<>();
+            for (OrderItem item : order.getItems()) {
+                lines.merge(item.getProduct().getId(), new SalesTotals(0, item.getQuantity(), item.getTotalPrice(),
+                        discountOf(item)), SalesTotals::plus);
+            }
+            // An order counts once per day and once per product it contains, however many lines it has
+            SalesTotals orderTotals = ONE_ORDER;
+            for (Map.Entry<Long, SalesTotals> line : lines.entrySet()) {
+                perProduct.merge(new ProductDay(salesDate, line.getKey()), ONE_ORDER.plus(line.getValue()), SalesTotals::plus);
+                orderTotals = orderTotals.plus(line.getValue());
+            }
+            daily.merge(salesDate, orderTotals, SalesTotals::plus);
+        }
+        afterCommit(() -> add(daily, perProduct));
+    }
+    
+    /**
+     * Adds the totals accumulated since the last flush to the rollup tables in one transaction. If that
+     * fails they are put back and go out with the next flush.
+     */
+    @Scheduled(fixedDelayString = "${app.orders.sales-rollup.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<LocalDate, SalesTotals> daily;
+            Map<ProductDay, SalesTotals> perProduct;
+            pendingLock.writeLock().lock();
+            try {
+                daily = pendingDaily;
+                perProduct = pendingPerProduct;
+                pendingDaily = new ConcurrentHashMap<>();
+                pendingPerProduct = new ConcurrentHashMap<>();
+            } finally {
+                pendingLock.writeLock().unlock();
+            }
+            
+            if (daily.isEmpty()) {
+                return;
+            }
+            try {
+                dailySalesRepository.addSales(daily, perProduct);
+                log.debug("Flushed sales rollups for {} days and {} product days", daily.size(), perProduct.size());
+            } catch (RuntimeException ex) {
+                log.error("Failed to flush sales rollups for {} days, will retry", daily.size(), ex);
+                add(daily, perProduct);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+    
+    /**
+     * Recomputes the rollups of {@code from}..{@code to} from orders/order_items. The range is cut into
+     * partitions of {@code app.orders.sales-rollup.backfill.partition-days} days which are rebuilt in
+     * parallel, each in its own transaction. Only closed days (before today) can be rebuilt: an order
+     * committing on a day while it is being rebuilt could otherwise be counted twice.
+     */
+    public SalesBackfillResult backfill(LocalDate from, LocalDate to) {
+        if (!to.isBefore(LocalDate.now(clock))) {
+            throw new IllegalArgumentException("Only days before today can be backfilled");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        long start = System.currentTimeMillis();
+        // Late commits for the range must land before it is rebuilt, not on top of the rebuilt rows
+        flush();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(backfillThreads);
+        try {
+            List<CompletableFuture<Integer>> partitions = new ArrayList<>();
+            for (LocalDate partitionStart = from; !partitionStart.isAfter(to); partitionStart = partitionStart.plusDays(partitionDays)) {
+                LocalDate fromDay = partitionStart;
+                LocalDate toDay = min(partitionStart.plusDays(partitionDays - 1), to);
+                partitions.add(CompletableFuture.supplyAsync(() -> dailySalesRepository.rebuildSales(fromDay, toDay), executor));
+            }
+            int daysWithSales = partitions.stream().mapToInt(CompletableFuture::join).sum();
+            int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+            long elapsed = System.currentTimeMillis() - start;
+            log.info("Backfilled sales rollups for {} days in {} partitions in {} ms", days, partitions.size(), elapsed);
+            return new SalesBackfillResult(days, daysWithSales, partitions.size(), elapsed);
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    private void add(Map<LocalDate, SalesTotals> daily, Map<ProductDay, SalesTotals> perProduct) {
+        pendingLock.readLock().lock();
+        try {
+            daily.forEach((salesDate, totals) -> pendingDaily.merge(salesDate, totals, SalesTotals::plus));
+            perProduct.forEach((productDay, totals) -> pendingPerProduct.merge(productDay, totals, SalesTotals::plus));
+        } finally {
+            pendingLock.readLock().unlock();
+        }
+    }
+    
+    private static BigDecimal discountOf(OrderItem item) {
+        return item.getDiscountApplied() != null ? item.getDiscountApplied() : BigDecimal.ZERO;
+    }
+    
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+    
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
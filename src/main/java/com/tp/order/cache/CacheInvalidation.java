@@ -0,0 +1,8 @@
+package com.tp.order.cache;
+
+/**
+ * An eviction on one node for the others to apply to their near-caches. {@code key} is the cache key's string
+ * form, or null when the whole cache was cleared.
+ */
+public record CacheInvalidation(String origin, String cacheName, String key) {
+}
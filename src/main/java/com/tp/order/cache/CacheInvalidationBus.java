@@ -0,0 +1,14 @@
+package com.tp.order.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries {@link CacheInvalidation}s between the nodes sharing a remote cache. Delivery is best effort:
+ * a node that misses a message serves its near-cached entry until the entry expires.
+ */
+public interface CacheInvalidationBus {
+    
+    void publish(CacheInvalidation invalidation);
+    
+    void subscribe(Consumer<CacheInvalidation> listener);
+}
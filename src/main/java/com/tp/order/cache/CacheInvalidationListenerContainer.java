@@ -0,0 +1,91 @@
+package com.tp.order.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listener container that does not hold up startup on Redis. When the subscription cannot be made, start()
+ * logs, stops the container and tries again every {@code retryIntervalMillis} until it succeeds; the base
+ * container only recovers subscriptions that were established once.
+ */
+public class CacheInvalidationListenerContainer extends RedisMessageListenerContainer {
+    
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationListenerContainer.class);
+    
+    private final long retryIntervalMillis;
+    private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-invalidation-subscriber");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Held while subscribing and stopping, so a retry in flight cannot restart a container being stopped
+    private final Object lifecycleLock = new Object();
+    private boolean wanted;
+    private int failedAttempts;
+    private ScheduledFuture<?> pendingRetry;
+    
+    public CacheInvalidationListenerContainer(long retryIntervalMillis) {
+        this.retryIntervalMillis = retryIntervalMillis;
+        setRecoveryInterval(retryIntervalMillis);
+    }
+    
+    @Override
+    public void start() {
+        synchronized (lifecycleLock) {
+            wanted = true;
+            subscribe();
+        }
+    }
+    
+    private void subscribe() {
+        synchronized (lifecycleLock) {
+            if (!wanted) {
+                return;
+            }
+            try {
+                super.start();
+                if (failedAttempts > 0) {
+                    log.info("Cache invalidation subscription established after {} failed attempts", failedAttempts);
+                    failedAttempts = 0;
+                }
+            } catch (RuntimeException ex) {
+                if (failedAttempts++ == 0) {
+                    log.warn("Cache invalidation subscription failed, retrying every {} ms", retryIntervalMillis, ex);
+                } else {
+                    log.debug("Cache invalidation subscription attempt {} failed: {}", failedAttempts, ex.toString());
+                }
+                super.stop(() -> { });
+                pendingRetry = retries.schedule(this::subscribe, retryIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+    
+    @Override
+    public void stop(Runnable callback) {
+        synchronized (lifecycleLock) {
+            wanted = false;
+            if (pendingRetry != null) {
+                pendingRetry.cancel(false);
+                pendingRetry = null;
+            }
+            // The base container skips the callback when it is not running, e.g. between retries
+            if (isRunning()) {
+                super.stop(callback);
+            } else {
+                callback.run();
+            }
+        }
+    }
+    
+    @Override
+    public void destroy() throws Exception {
+        retries.shutdownNow();
+        super.destroy();
+    }
+}
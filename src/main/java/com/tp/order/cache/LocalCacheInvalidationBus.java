@@ -0,0 +1,24 @@
+package com.tp.order.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-JVM {@link CacheInvalidationBus}: delivers each invalidation synchronously to every subscriber, the
+ * publisher's own included. Stands in for Redis when several cache managers play the nodes of one process.
+ */
+public class LocalCacheInvalidationBus implements CacheInvalidationBus {
+    
+    private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+    
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        listeners.forEach(listener -> listener.accept(invalidation));
+    }
+    
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> listener) {
+        listeners.add(listener);
+    }
+}
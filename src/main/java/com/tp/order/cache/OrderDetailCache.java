@@ -0,0 +1,63 @@
+package com.tp.order.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tp.order.dto.OrderDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of order details for clients polling {@code GET /api/orders/{id}}. Entries are
+ * shared between users, so callers must authorize against the cached {@link OrderDTO#userId()} on every hit.
+ * <p>
+ * Published as the {@code orderDetails} cache: {@code cache.gets}, {@code cache.evictions} and
+ * {@code cache.load.duration} from Micrometer's Caffeine binder, plus {@code cache.hit.ratio}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.orders.detail-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class OrderDetailCache {
+    
+    static final String CACHE_NAME = "orderDetails";
+    
+    private final Cache<Long, OrderDTO> cache;
+    
+    public OrderDetailCache(MeterRegistry meterRegistry,
+                            @Value("${app.orders.detail-cache.maximum-size:10000}") long maximumSize,
+                            @Value("${app.orders.detail-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Returns the cached order, loading it on a miss. Exceptions from {@code loader} propagate and nothing is
+     * cached, so missing orders are looked up again on the next request.
+     */
+    public OrderDTO get(Long orderId, Function<Long, OrderDTO> loader) {
+        return cache.get(orderId, id -> immutable(loader.apply(id)));
+    }
+    
+    public void invalidate(Long orderId) {
+        cache.invalidate(orderId);
+    }
+    
+    // Callers share the cached instance, so its item list must not be modifiable
+    private static OrderDTO immutable(OrderDTO order) {
+        return new OrderDTO(order.id(), order.userId(), order.username(), List.copyOf(order.items()),
+                order.orderTotal(), order.status(), order.createdAt(), order.updatedAt());
+    }
+}
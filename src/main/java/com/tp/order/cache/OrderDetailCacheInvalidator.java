@@ -0,0 +1,88 @@
+package com.tp.order.cache;
+
+import com.tp.order.entity.Order;
+import com.tp.order.entity.OrderItem;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts an order from {@link OrderDetailCache} once a transaction that wrote the order or any of its items
+ * commits. Evicting only after commit keeps a concurrent reader from re-caching the pre-commit state.
+ */
+@Component
+@ConditionalOnProperty(name = "app.orders.detail-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class OrderDetailCacheInvalidator implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+    
+    private final OrderDetailCache orderDetailCache;
+    private final EntityManagerFactory entityManagerFactory;
+    
+    public OrderDetailCacheInvalidator(OrderDetailCache orderDetailCache, EntityManagerFactory entityManagerFactory) {
+        this.orderDetailCache = orderDetailCache;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+    
+    @PostConstruct
+    void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .requireService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+    
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        invalidate(event.getEntity());
+    }
+    
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        invalidate(event.getEntity());
+    }
+    
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        invalidate(event.getEntity());
+    }
+    
+    // A failed commit leaves the database as it was, so there is nothing to evict
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+    
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+    
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+    
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        Class<?> entityClass = persister.getMappedClass();
+        return entityClass == Order.class || entityClass == OrderItem.class;
+    }
+    
+    void invalidate(Object entity) {
+        if (entity instanceof Order order) {
+            orderDetailCache.invalidate(order.getId());
+        } else if (entity instanceof OrderItem item && item.getOrder() != null) {
+            orderDetailCache.invalidate(item.getOrder().getId());
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.tp.order.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of product listing and search pages. Pages are keyed by their normalized parameters plus two
+ * generation numbers, so a write invalidates every page at once by bumping a counter rather than finding and
+ * evicting keys; pages of older generations are never read again and age out of the bounded cache.
+ * <p>
+ * Product writes bump the catalog generation once they commit. Sales only mark stock as changed, and the stock
+ * generation then moves at most once per {@code app.products.page-cache.stock-staleness-ms}, so a busy shop does
+ * not empty the cache on every order; quantities and {@code available} filters may lag by that long. Both are
+ * shared with the other nodes over the {@link CacheInvalidationBus} when one is configured.
+ * <p>
+ * Published as the {@code productPages} cache, like {@link OrderDetailCache}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.products.page-cache.enabled", havingValue = "true")
+public class ProductPageCache {
+    
+    static final String CACHE_NAME = "productPages";
+    private static final String CATALOG = "catalog";
+    private static final String STOCK = "stock";
+    
+    private final Cache<Key, Object> pages;
+    private final ObjectProvider<CacheInvalidationBus> invalidationBus;
+    private final long stockStalenessNanos;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong catalogGeneration = new AtomicLong();
+    private final AtomicLong stockGeneration = new AtomicLong();
+    private final AtomicBoolean stockChanged = new AtomicBoolean();
+    private volatile long stockGenerationStarted = System.nanoTime();
+    
+    public ProductPageCache(MeterRegistry meterRegistry, ObjectProvider<CacheInvalidationBus> invalidationBus,
+                            @Value("${app.products.page-cache.maximum-size:2000}") long maximumSize,
+                            @Value("${app.products.page-cache.ttl-seconds:60}") long ttlSeconds,
+                            @Value("${app.products.page-cache.stock-staleness-ms:5000}") long stockStalenessMs) {
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.invalidationBus = invalidationBus;
+        this.stockStalenessNanos = Duration.ofMillis(stockStalenessMs).toNanos();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, CACHE_NAME);
+        Gauge.builder("cache.hit.ratio", pages, c -> c.stats().hitRate())
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        invalidationBus.ifAvailable(bus -> bus.subscribe(this::onInvalidation));
+    }
+    
+    /**
+     * Returns the page of {@code listing} for {@code parameters} in the current generations, loading it on a
+     * miss. Parameters must already be normalized so equal queries compare equal; they may contain nulls.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String listing, List<?> parameters, Supplier<T> loader) {
+        Key key = new Key(listing, parameters, catalogGeneration.get(), currentStockGeneration());
+        return (T) pages.get(key, k -> loader.get());
+    }
+    
+    /**
+     * Retires every cached page once the current transaction commits.
+     */
+    public void catalogChanged() {
+        afterCommit(() -> {
+            catalogGeneration.incrementAndGet();
+            publish(CATALOG);
+        });
+    }
+    
+    /**
+     * Lets the stock generation move on once the current transaction commits, within the staleness window.
+     */
+    public void stockChanged() {
+        afterCommit(() -> {
+            // Only the first sale of a window is news to the other nodes
+            if (stockChanged.compareAndSet(false, true)) {
+                publish(STOCK);
+            }
+        });
+    }
+    
+    long catalogGeneration() {
+        return catalogGeneration.get();
+    }
+    
+    long stockGeneration() {
+        return stockGeneration.get();
+    }
+    
+    private long currentStockGeneration() {
+        long now = System.nanoTime();
+        if (stockChanged.get() && now - stockGenerationStarted >= stockStalenessNanos
+                && stockChanged.compareAndSet(true, false)) {
+            stockGenerationStarted = now;
+            return stockGeneration.incrementAndGet();
+        }
+        return stockGeneration.get();
+    }
+    
+    private void publish(String generation) {
+        invalidationBus.ifAvailable(bus -> bus.publish(new CacheInvalidation(nodeId, CACHE_NAME, generation)));
+    }
+    
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (nodeId.equals(invalidation.origin()) || !CACHE_NAME.equals(invalidation.cacheName())) {
+            return;
+        }
+        if (CATALOG.equals(invalidation.key())) {
+            catalogGeneration.incrementAndGet();
+        } else if (STOCK.equals(invalidation.key())) {
+            stockChanged.set(true);
+        }
+    }
+    
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
+    private record Key(String listing, List<?> parameters, long catalogGeneration, long stockGeneration) {
+    }
+}
@@ -0,0 +1,161 @@
+package com.tp.order.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A near-cache in this JVM in front of a shared remote cache. Reads try the near level, then the remote one,
+ * copying remote hits into the near level. Writes go to both; evictions and clears go to both and are handed
+ * to {@code onInvalidate} for the other nodes. Null values are not cached.
+ * <p>
+ * Near entries are keyed by the cache key's string form, which is also how Redis stores them and how
+ * invalidations name them.
+ * <p>
+ * A remote read can be overtaken by an eviction or put: the read returns the old value, then the invalidation
+ * drops a near entry that is not there yet, and copying the old value into the near level would serve it until
+ * the near TTL. Every write or invalidation therefore bumps a version for its key's stripe, and a lookup that
+ * sees the version move during its remote read drops what it copied. Stripes keep the versions bounded; keys
+ * sharing one only cost each other a near miss.
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+    
+    private static final int VERSION_STRIPES = 1024;
+    
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> nearCache;
+    private final Cache remoteCache;
+    private final Consumer<String> onInvalidate;
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder remoteMisses = new LongAdder();
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final AtomicLong clears = new AtomicLong();
+    
+    public TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<String, Object> nearCache,
+                         Cache remoteCache, Consumer<String> onInvalidate) {
+        super(false);
+        this.name = name;
+        this.nearCache = nearCache;
+        this.remoteCache = remoteCache;
+        this.onInvalidate = onInvalidate;
+    }
+    
+    @Override
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public Object getNativeCache() {
+        return nearCache;
+    }
+    
+    public com.github.benmanes.caffeine.cache.Cache<String, Object> getNearCache() {
+        return nearCache;
+    }
+    
+    public long remoteHitCount() {
+        return remoteHits.sum();
+    }
+    
+    public long remoteMissCount() {
+        return remoteMisses.sum();
+    }
+    
+    @Override
+    protected Object lookup(Object key) {
+        String nearKey = String.valueOf(key);
+        Object value = nearCache.getIfPresent(nearKey);
+        if (value != null) {
+            return value;
+        }
+        long version = version(nearKey);
+        ValueWrapper remote = remoteCache.get(key);
+        if (remote == null || remote.get() == null) {
+            remoteMisses.increment();
+            return null;
+        }
+        remoteHits.increment();
+        nearCache.put(nearKey, remote.get());
+        // Invalidations bump the version before touching the near level, so one that raced the read is
+        // either seen here or removes the copy itself
+        if (version(nearKey) != version) {
+            nearCache.invalidate(nearKey);
+        }
+        return remote.get();
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+    
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            return;
+        }
+        remoteCache.put(key, value);
+        String nearKey = String.valueOf(key);
+        bumpVersion(nearKey);
+        nearCache.put(nearKey, value);
+    }
+    
+    @Override
+    public void evict(Object key) {
+        remoteCache.evict(key);
+        String nearKey = String.valueOf(key);
+        bumpVersion(nearKey);
+        nearCache.invalidate(nearKey);
+        onInvalidate.accept(nearKey);
+    }
+    
+    @Override
+    public void clear() {
+        remoteCache.clear();
+        clears.incrementAndGet();
+        nearCache.invalidateAll();
+        onInvalidate.accept(null);
+    }
+    
+    // Applies another node's eviction to this node's near level only; the remote level is already done
+    void invalidateNear(String key) {
+        if (key == null) {
+            clears.incrementAndGet();
+            nearCache.invalidateAll();
+        } else {
+            bumpVersion(key);
+            nearCache.invalidate(key);
+        }
+    }
+    
+    // Both counters only grow, so the sum moves whenever either does
+    private long version(String nearKey) {
+        return clears.get() + versions.get(stripe(nearKey));
+    }
+    
+    private void bumpVersion(String nearKey) {
+        versions.incrementAndGet(stripe(nearKey));
+    }
+    
+    private static int stripe(String nearKey) {
+        return nearKey.hashCode() & (VERSION_STRIPES - 1);
+    }
+}
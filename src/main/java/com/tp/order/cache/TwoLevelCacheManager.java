@@ -0,0 +1,112 @@
+package com.tp.order.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps each cache of {@code remoteCacheManager} in a {@link TwoLevelCache} with a bounded Caffeine near level,
+ * and keeps the near levels of all nodes coherent through a {@link CacheInvalidationBus}. Puts and evictions
+ * inside a transaction wait for it to commit, so other nodes never evict ahead of the data changing.
+ * <p>
+ * A node serves a near entry until {@code nearTtl} at the latest, which bounds staleness from a lost
+ * invalidation, e.g. while the bus is disconnected. A remote read overtaken by an invalidation is not kept in
+ * the near level, see {@link TwoLevelCache}. Each level publishes {@code cache.gets} and {@code cache.hit.ratio}, tagged
+ * {@code cache=<name>.near} and {@code cache=<name>.remote}; the remote level only sees near misses.
+ */
+public class TwoLevelCacheManager implements CacheManager {
+    
+    private final CacheManager remoteCacheManager;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+    private final long nearMaximumSize;
+    private final Duration nearTtl;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final Map<String, Cache> decorated = new ConcurrentHashMap<>();
+    
+    public TwoLevelCacheManager(CacheManager remoteCacheManager, CacheInvalidationBus invalidationBus,
+                                MeterRegistry meterRegistry, long nearMaximumSize, Duration nearTtl) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.invalidationBus = invalidationBus;
+        this.meterRegistry = meterRegistry;
+        this.nearMaximumSize = nearMaximumSize;
+        this.nearTtl = nearTtl;
+        invalidationBus.subscribe(this::onInvalidation);
+    }
+    
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = decorated.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remoteCache = remoteCacheManager.getCache(name);
+        if (remoteCache == null) {
+            return null;
+        }
+        return decorated.computeIfAbsent(name, n -> new TransactionAwareCacheDecorator(
+                caches.computeIfAbsent(n, c -> create(c, remoteCache))));
+    }
+    
+    @Override
+    public Collection<String> getCacheNames() {
+        return List.copyOf(decorated.keySet());
+    }
+    
+    private TwoLevelCache create(String name, Cache remoteCache) {
+        com.github.benmanes.caffeine.cache.Cache<String, Object> nearCache = Caffeine.newBuilder()
+                .maximumSize(nearMaximumSize)
+                .expireAfterWrite(nearTtl)
+                .recordStats()
+                .build();
+        TwoLevelCache cache = new TwoLevelCache(name, nearCache, remoteCache,
+                key -> invalidationBus.publish(new CacheInvalidation(nodeId, name, key)));
+        
+        String near = name + ".near";
+        CaffeineCacheMetrics.monitor(meterRegistry, nearCache, near);
+        Gauge.builder("cache.hit.ratio", nearCache, c -> c.stats().hitRate())
+                .tag("cache", near)
+                .register(meterRegistry);
+        
+        String remote = name + ".remote";
+        FunctionCounter.builder("cache.gets", cache, TwoLevelCache::remoteHitCount)
+                .tags("cache", remote, "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", cache, TwoLevelCache::remoteMissCount)
+                .tags("cache", remote, "result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("cache.hit.ratio", cache, TwoLevelCacheManager::remoteHitRatio)
+                .tag("cache", remote)
+                .register(meterRegistry);
+        return cache;
+    }
+    
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (nodeId.equals(invalidation.origin())) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(invalidation.cacheName());
+        if (cache != null) {
+            cache.invalidateNear(invalidation.key());
+        }
+    }
+    
+    private static double remoteHitRatio(TwoLevelCache cache) {
+        long hits = cache.remoteHitCount();
+        long requests = hits + cache.remoteMissCount();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,29 @@
+package com.tp.order.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * CBOR and Smile alongside JSON, picked by the {@code Accept} header. Spring would register both on its own once
+ * the formats are on the classpath, but with bare mappers; these are built from Boot's builder so they carry the
+ * same {@code spring.jackson.*} settings as JSON (ISO dates rather than timestamp arrays, for one). Each bean
+ * replaces Spring's default of the same type in place, after the JSON converter, so JSON stays the default.
+ */
+@Configuration
+public class MessageFormatConfiguration {
+    
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+    
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,63 @@
+package com.tp.order.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tp.order.cache.CacheInvalidationListenerContainer;
+import com.tp.order.cache.RedisCacheInvalidationBus;
+import com.tp.order.cache.TwoLevelCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+
+/**
+ * Puts a Caffeine near-cache in front of the Redis caches, with evictions broadcast over Redis pub/sub.
+ * Replaces the cache manager Spring Boot would otherwise build from {@link CacheConfiguration}.
+ * <p>
+ * Startup does not wait for Redis: if the invalidation channel cannot be subscribed the application still
+ * starts and {@link CacheInvalidationListenerContainer} retries every {@code app.cache.near.recovery-interval-ms}.
+ * Until it is subscribed, near entries miss other nodes' evictions and are only bounded by their TTL.
+ */
+@Configuration
+@ConditionalOnProperty(name = {"app.cache.enabled", "app.cache.near.enabled"}, havingValue = "true")
+public class NearCacheConfiguration {
+    
+    @Bean
+    public RedisCacheInvalidationBus cacheInvalidationBus(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                                                          @Value("${app.cache.near.channel:cache-invalidation}") String channel) {
+        return new RedisCacheInvalidationBus(redisTemplate, objectMapper, channel);
+    }
+    
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                            RedisCacheInvalidationBus cacheInvalidationBus,
+                                                                            @Value("${app.cache.near.channel:cache-invalidation}") String channel,
+                                                                            @Value("${app.cache.near.recovery-interval-ms:5000}") long recoveryIntervalMillis) {
+        RedisMessageListenerContainer container = new CacheInvalidationListenerContainer(recoveryIntervalMillis);
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheInvalidationBus, new ChannelTopic(channel));
+        return container;
+    }
+    
+    @Bean
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, RedisCacheConfiguration redisCacheConfiguration,
+                                     RedisCacheInvalidationBus cacheInvalidationBus, MeterRegistry meterRegistry,
+                                     @Value("${app.cache.near.maximum-size:10000}") long maximumSize,
+                                     @Value("${app.cache.near.ttl-seconds:30}") long ttlSeconds) {
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(redisCacheConfiguration)
+                .build();
+        redisCacheManager.afterPropertiesSet();
+        return new TwoLevelCacheManager(redisCacheManager, cacheInvalidationBus, meterRegistry, maximumSize,
+                Duration.ofSeconds(ttlSeconds));
+    }
+}
@@ -0,0 +1,105 @@
+package com.tp.order.controller;
+
+import com.tp.order.dto.ListEnvelope;
+import com.tp.order.dto.OrderDTO;
+import com.tp.order.dto.ProductDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+
+/**
+ * Validators for GET responses. A controller only has to start its {@code ResponseEntity} with {@link #ok(String)}:
+ * Spring answers a matching {@code If-None-Match} or {@code If-Modified-Since} with 304 before the body
+ * is serialized.
+ */
+final class EntityTags {
+    
+    // Responses depend on the caller, so only the client may keep them, and must revalidate before reuse
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+    
+    private EntityTags() {
+    }
+    
+    /**
+     * 200 validated by {@code tag}. The tag is weak because one resource now has several representations
+     * (JSON, CBOR or Smile, each possibly gzipped) that share it; Tomcat also refuses to compress a response
+     * carrying a strong tag.
+     */
+    static ResponseEntity.BodyBuilder ok(String tag) {
+        return ResponseEntity.ok()
+                .eTag("W/\"" + tag + "\"")
+                .cacheControl(REVALIDATE)
+                .varyBy(HttpHeaders.ACCEPT);
+    }
+    
+    /**
+     * Stock can move without {@code updatedAt} (inventory ledger, shard rows), so it is part of the tag.
+     */
+    static String of(ProductDTO product) {
+        return product.id() + "-" + stamp(product.updatedAt()) + "-" + product.quantity();
+    }
+    
+    static String of(OrderDTO order) {
+        return order.id() + "-" + stamp(lastModified(order));
+    }
+    
+    /**
+     * Fingerprint of a listing page: its position, totals and the tag of every product on it.
+     */
+    static String of(Slice<ProductDTO> products) {
+        StringBuilder page = new StringBuilder(64 + products.getNumberOfElements() * 32)
+                .append(products.getNumber()).append('/').append(products.getSize())
+                .append('/').append(products.getSort())
+                .append('/').append(products.hasNext());
+        if (products instanceof Page<ProductDTO> counted) {
+            page.append('/').append(counted.getTotalElements());
+        }
+        for (ProductDTO product : products) {
+            page.append('|').append(of(product));
+        }
+        return sha256(page.toString());
+    }
+    
+    /**
+     * Fingerprint of a sparse listing, over exactly what it sends.
+     */
+    static String of(ListEnvelope<?> envelope) {
+        return sha256(envelope.items() + "/" + envelope.next() + "/" + envelope.total());
+    }
+    
+    static LocalDateTime lastModified(OrderDTO order) {
+        return order.updatedAt() != null ? order.updatedAt() : order.createdAt();
+    }
+    
+    static Instant instant(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant();
+    }
+    
+    // Microseconds, the precision the database keeps, so a reloaded row yields the same tag as a fresh one
+    private static String stamp(LocalDateTime timestamp) {
+        if (timestamp == null) {
+            return "0";
+        }
+        return Long.toString(ChronoUnit.MICROS.between(Instant.EPOCH, instant(timestamp)), 36);
+    }
+    
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
@@ -1,21 +1,50 @@
 package com.tp.order.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tp.order.dto.AsyncOrderStatus;
+import com.tp.order.dto.BulkOrderResult;
 import com.tp.order.dto.CreateOrderRequest;
+import com.tp.order.dto.CursorPage;
+import com.tp.order.dto.ExportFormat;
+import com.tp.order.dto.FieldSelection;
+import com.tp.order.dto.ListEnvelope;
+import com.tp.order.dto.OrderExportFilter;
 import com.tp.order.dto.OrderDTO;
+import com.tp.order.dto.ReadModelRebuildResult;
+import com.tp.order.entity.OrderStatus;
+import com.tp.order.service.AsyncOrderService;
+import com.tp.order.service.BulkOrderService;
+import com.tp.order.service.OrderExportService;
 import com.tp.order.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -24,7 +53,14 @@ import org.springframework.web.bind.annotation.*;
 @Tag(name = "Orders", description = "Order management endpoints")
 public class OrderController {
     
+    private static final long MAX_STATUS_WAIT_MS = 30_000;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    
     private final OrderService orderService;
+    private final BulkOrderService bulkOrderService;
+    private final AsyncOrderService asyncOrderService;
+    private final OrderExportService orderExportService;
+    private final ObjectMapper objectMapper;
     
     @PostMapping
     @Operation(summary = "Place a new order")
@@ -33,11 +69,65 @@ public class OrderController {
         return new ResponseEntity<>(order, HttpStatus.CREATED);
     }
     
+    @PostMapping(params = "mode=async")
+    @Operation(summary = "Queue a new order and return a reference to poll for its outcome")
+    public ResponseEntity<AsyncOrderStatus> createOrderAsync(@Valid @RequestBody CreateOrderRequest request) {
+        AsyncOrderStatus status = asyncOrderService.submit(request);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/orders/async/" + status.reference()))
+                .body(status);
+    }
+    
+    @GetMapping("/async/{reference}")
+    @Operation(summary = "Get the outcome of a queued order, optionally waiting up to waitMs for it")
+    public DeferredResult<AsyncOrderStatus> getAsyncOrderStatus(@PathVariable String reference,
+                                                                @RequestParam(defaultValue = "0") long waitMs) {
+        AsyncOrderStatus current = asyncOrderService.getStatus(reference);
+        if (current.isFinal() || waitMs <= 0) {
+            DeferredResult<AsyncOrderStatus> result = new DeferredResult<>();
+            result.setResult(current);
+            return result;
+        }
+        DeferredResult<AsyncOrderStatus> result = new DeferredResult<>(Math.min(waitMs, MAX_STATUS_WAIT_MS), current);
+        asyncOrderService.awaitStatus(reference).thenAccept(result::setResult);
+        return result;
+    }
+    
+    @PostMapping(value = "/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Place a batch of orders from a JSON array or NDJSON stream")
+    public ResponseEntity<StreamingResponseBody> createOrders(HttpServletRequest request,
+                                                              Authentication authentication) throws IOException {
+        String username = authentication.getName();
+        StreamingResponseBody body = outputStream -> {
+            Consumer<BulkOrderResult> writer = result -> {
+                try {
+                    outputStream.write(objectMapper.writeValueAsBytes(result));
+                    outputStream.write('\n');
+                    outputStream.flush();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            };
+            // readValues accepts both a top-level array and whitespace separated documents
+            try (MappingIterator<CreateOrderRequest> orders = objectMapper.readerFor(CreateOrderRequest.class)
+                    .readValues(request.getInputStream())) {
+                bulkOrderService.placeOrders(username, orders, writer);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+    
     @GetMapping("/{id}")
-    @Operation(summary = "Get order by ID")
+    @Operation(summary = "Get order by ID; honours If-None-Match and If-Modified-Since")
     public ResponseEntity<OrderDTO> getOrderById(@PathVariable Long id) {
         OrderDTO order = orderService.getOrderById(id);
-        return ResponseEntity.ok(order);
+        return EntityTags.ok(EntityTags.of(order))
+                .lastModified(EntityTags.instant(EntityTags.lastModified(order)))
+                .body(order);
     }
     
     @GetMapping("/my-orders")
@@ -48,6 +138,36 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
     
+    @GetMapping(value = "/my-orders", params = "fields")
+    @Operation(summary = "Get current user's orders with only the requested fields, in a compact envelope")
+    public ResponseEntity<ListEnvelope<Map<String, Object>>> getMyOrderFields(
+            @RequestParam String fields,
+            @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
+        return ResponseEntity.ok(orderService.getMyOrders(pageable, FieldSelection.parse(fields, OrderService.LISTING_FIELDS)));
+    }
+    
+    @GetMapping("/my-orders/cursor")
+    @Operation(summary = "Get current user's orders newest first, continuing from an opaque cursor")
+    public ResponseEntity<CursorPage<OrderDTO>> getMyOrdersByCursor(@RequestParam(required = false) String cursor,
+                                                                    @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(orderService.getMyOrders(cursor, cursorPageSize(size)));
+    }
+    
+    @GetMapping("/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get all orders newest first, continuing from an opaque cursor (Admin only)")
+    public ResponseEntity<CursorPage<OrderDTO>> getAllOrdersByCursor(@RequestParam(required = false) String cursor,
+                                                                     @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(orderService.getAllOrders(cursor, cursorPageSize(size)));
+    }
+    
+    private static int cursorPageSize(int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+        return size;
+    }
+    
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Get all orders (Admin only)")
@@ -56,4 +176,40 @@ public class OrderController {
         Page<OrderDTO> orders = orderService.getAllOrders(pageable);
         return ResponseEntity.ok(orders);
     }
+    
+    @GetMapping(params = "fields")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get all orders with only the requested fields, in a compact envelope (Admin only)")
+    public ResponseEntity<ListEnvelope<Map<String, Object>>> getAllOrderFields(
+            @RequestParam String fields,
+            @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
+        return ResponseEntity.ok(orderService.getAllOrders(pageable, FieldSelection.parse(fields, OrderService.LISTING_FIELDS)));
+    }
+    
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Stream all orders with their items as NDJSON or CSV, optionally filtered (Admin only)")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) OrderStatus status) {
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        OrderExportFilter filter = new OrderExportFilter(from, to, status);
+        StreamingResponseBody body = outputStream -> orderExportService.export(filter, exportFormat, outputStream);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("orders." + exportFormat.extension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+    
+    @PostMapping("/views/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Rebuild the denormalized order read model (Admin only)")
+    public ResponseEntity<ReadModelRebuildResult> rebuildReadModel() {
+        return ResponseEntity.ok(orderService.rebuildReadModel());
+    }
 }
@@ -1,5 +1,8 @@
 package com.tp.order.controller;
 
+import com.tp.order.dto.CountMode;
+import com.tp.order.dto.FieldSelection;
+import com.tp.order.dto.ListEnvelope;
 import com.tp.order.dto.ProductDTO;
 import com.tp.order.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -7,8 +10,8 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
@@ -17,6 +20,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
@@ -25,33 +29,81 @@ import java.math.BigDecimal;
 @Tag(name = "Products", description = "Product management endpoints")
 public class ProductController {
     
+    private static final String TOTAL_ESTIMATED_HEADER = "X-Total-Estimated";
+    
     private final ProductService productService;
     
     @GetMapping
-    @Operation(summary = "Get all products with pagination")
-    public ResponseEntity<Page<ProductDTO>> getAllProducts(
+    @Operation(summary = "Get all products with pagination; count=false skips the total, count=estimate approximates it")
+    public ResponseEntity<Slice<ProductDTO>> getAllProducts(
+            @RequestParam(defaultValue = "true") String count,
+            @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
+        CountMode countMode = CountMode.fromParam(count);
+        if (countMode == CountMode.EXACT) {
+            return listing(countMode, productService.getAllProducts(pageable));
+        }
+        return listing(countMode, productService.getAllProducts(pageable, countMode));
+    }
+    
+    @GetMapping(params = "fields")
+    @Operation(summary = "Get products with only the requested fields, e.g. fields=id,name,price,quantity, in a compact envelope")
+    public ResponseEntity<ListEnvelope<Map<String, Object>>> getProductFields(
+            @RequestParam String fields,
+            @RequestParam(defaultValue = "true") String count,
             @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
-        Page<ProductDTO> products = productService.getAllProducts(pageable);
-        return ResponseEntity.ok(products);
+        return envelope(productService.listProductFields(FieldSelection.parse(fields, ProductService.LISTING_FIELDS),
+                null, null, null, null, pageable, CountMode.fromParam(count)));
     }
     
     @GetMapping("/{id}")
-    @Operation(summary = "Get product by ID")
+    @Operation(summary = "Get product by ID; honours If-None-Match")
     public ResponseEntity<ProductDTO> getProductById(@PathVariable Long id) {
         ProductDTO product = productService.getProductById(id);
-        return ResponseEntity.ok(product);
+        // No Last-Modified: stock can change without updatedAt, so only the tag is a safe validator
+        return EntityTags.ok(EntityTags.of(product)).body(product);
     }
     
     @GetMapping("/search")
     @Operation(summary = "Search products with filters")
-    public ResponseEntity<Page<ProductDTO>> searchProducts(
+    public ResponseEntity<Slice<ProductDTO>> searchProducts(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Boolean available,
+            @RequestParam(defaultValue = "true") String count,
+            @PageableDefault(size = 10, sort = "name") Pageable pageable) {
+        CountMode countMode = CountMode.fromParam(count);
+        if (countMode == CountMode.EXACT) {
+            return listing(countMode, productService.searchProducts(name, minPrice, maxPrice, available, pageable));
+        }
+        return listing(countMode, productService.searchProducts(name, minPrice, maxPrice, available, pageable, countMode));
+    }
+    
+    @GetMapping(value = "/search", params = "fields")
+    @Operation(summary = "Search products, returning only the requested fields in a compact envelope")
+    public ResponseEntity<ListEnvelope<Map<String, Object>>> searchProductFields(
+            @RequestParam String fields,
             @RequestParam(required = false) String name,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(required = false) Boolean available,
+            @RequestParam(defaultValue = "true") String count,
             @PageableDefault(size = 10, sort = "name") Pageable pageable) {
-        Page<ProductDTO> products = productService.searchProducts(name, minPrice, maxPrice, available, pageable);
-        return ResponseEntity.ok(products);
+        return envelope(productService.listProductFields(FieldSelection.parse(fields, ProductService.LISTING_FIELDS),
+                name, minPrice, maxPrice, available, pageable, CountMode.fromParam(count)));
+    }
+    
+    private static ResponseEntity<ListEnvelope<Map<String, Object>>> envelope(ListEnvelope<Map<String, Object>> products) {
+        return EntityTags.ok(EntityTags.of(products)).body(products);
+    }
+    
+    // The page is fingerprinted after the query, so a 304 saves serializing and sending it, not the query itself
+    private static ResponseEntity<Slice<ProductDTO>> listing(CountMode countMode, Slice<ProductDTO> products) {
+        ResponseEntity.BodyBuilder response = EntityTags.ok(EntityTags.of(products));
+        if (countMode == CountMode.ESTIMATE) {
+            response.header(TOTAL_ESTIMATED_HEADER, "true");
+        }
+        return response.body(products);
     }
     
     @PostMapping
@@ -79,4 +131,18 @@ public class ProductController {
         productService.deleteProduct(id);
         return ResponseEntity.noContent().build();
     }
+    
+    @PutMapping("/{id}/stock-shards")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Split a product's stock over N rows, or 0 to unshard (Admin only)")
+    public ResponseEntity<ProductDTO> reshardStock(@PathVariable Long id, @RequestParam int count) {
+        return ResponseEntity.ok(productService.reshardStock(id, count));
+    }
+    
+    @PostMapping("/{id}/stock-shards/rebalance")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Spread a sharded product's stock evenly over its shards (Admin only)")
+    public ResponseEntity<ProductDTO> rebalanceStock(@PathVariable Long id) {
+        return ResponseEntity.ok(productService.rebalanceStock(id));
+    }
 }
@@ -0,0 +1,67 @@
+package com.tp.order.controller;
+
+import com.tp.order.dto.DailySalesDTO;
+import com.tp.order.dto.ProductSalesDTO;
+import com.tp.order.dto.SalesBackfillResult;
+import com.tp.order.service.SalesAnalyticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/sales")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@SecurityRequirement(name = "bearerAuth")
+@Tag(name = "Sales", description = "Sales analytics endpoints (Admin only)")
+public class SalesController {
+    
+    private static final int MAX_TOP_PRODUCTS = 1000;
+    
+    private final SalesAnalyticsService salesAnalyticsService;
+    
+    @GetMapping("/daily")
+    @Operation(summary = "Revenue, units and discounts per day over a date range")
+    public ResponseEntity<List<DailySalesDTO>> getDailySales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(salesAnalyticsService.getDailySales(from, to));
+    }
+    
+    @GetMapping("/products")
+    @Operation(summary = "Best selling products by revenue over a date range")
+    public ResponseEntity<List<ProductSalesDTO>> getTopProducts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_TOP_PRODUCTS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_TOP_PRODUCTS);
+        }
+        return ResponseEntity.ok(salesAnalyticsService.getTopProducts(from, to, limit));
+    }
+    
+    @GetMapping("/products/{productId}/daily")
+    @Operation(summary = "Revenue, units and discounts of one product per day over a date range")
+    public ResponseEntity<List<DailySalesDTO>> getProductDailySales(
+            @PathVariable Long productId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(salesAnalyticsService.getProductDailySales(productId, from, to));
+    }
+    
+    @PostMapping("/backfill")
+    @Operation(summary = "Rebuild the sales rollups of past days from the order history")
+    public ResponseEntity<SalesBackfillResult> backfill(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(salesAnalyticsService.backfill(from, to));
+    }
+}
@@ -0,0 +1,27 @@
+package com.tp.order.dto;
+
+import com.tp.order.entity.OrderStatus;
+
+public record AsyncOrderStatus(
+        String reference,
+        String state,
+        Long orderId,
+        OrderStatus orderStatus,
+        String error
+) {
+    public static AsyncOrderStatus queued(String reference) {
+        return new AsyncOrderStatus(reference, "QUEUED", null, null, null);
+    }
+    
+    public static AsyncOrderStatus placed(String reference, Long orderId, OrderStatus orderStatus) {
+        return new AsyncOrderStatus(reference, "PLACED", orderId, orderStatus, null);
+    }
+    
+    public static AsyncOrderStatus rejected(String reference, String error) {
+        return new AsyncOrderStatus(reference, "REJECTED", null, null, error);
+    }
+    
+    public boolean isFinal() {
+        return !"QUEUED".equals(state);
+    }
+}
@@ -0,0 +1,16 @@
+package com.tp.order.dto;
+
+public record BulkOrderResult(
+        Integer index,
+        Long orderId,
+        String status,
+        String error
+) {
+    public static BulkOrderResult created(Integer index, Long orderId) {
+        return new BulkOrderResult(index, orderId, "CREATED", null);
+    }
+    
+    public static BulkOrderResult rejected(Integer index, String error) {
+        return new BulkOrderResult(index, null, "REJECTED", error);
+    }
+}
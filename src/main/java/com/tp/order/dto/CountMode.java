@@ -0,0 +1,24 @@
+package com.tp.order.dto;
+
+import java.util.Locale;
+
+/**
+ * How a listing reports its total, selected with the {@code count} request parameter.
+ */
+public enum CountMode {
+    /** {@code count=true}: exact total from a count query on every request. */
+    EXACT,
+    /** {@code count=false}: no total, only whether a next page exists. */
+    NONE,
+    /** {@code count=estimate}: total from a periodically refreshed count, possibly stale. */
+    ESTIMATE;
+    
+    public static CountMode fromParam(String value) {
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "exact" -> EXACT;
+            case "false", "none" -> NONE;
+            case "estimate" -> ESTIMATE;
+            default -> throw new IllegalArgumentException("count must be one of true, false or estimate");
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package com.tp.order.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. {@code next} is an opaque cursor for the following page, or null
+ * on the last page. There is deliberately no total count.
+ */
+public record CursorPage<T>(
+        List<T> content,
+        String next
+) {
+}
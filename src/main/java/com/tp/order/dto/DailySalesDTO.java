@@ -0,0 +1,17 @@
+package com.tp.order.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record DailySalesDTO(
+        LocalDate date,
+        long orders,
+        long units,
+        BigDecimal revenue,
+        BigDecimal discounts
+) {
+    
+    public static DailySalesDTO empty(LocalDate date) {
+        return new DailySalesDTO(date, 0, 0, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+}
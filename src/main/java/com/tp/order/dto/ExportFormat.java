@@ -0,0 +1,36 @@
+package com.tp.order.dto;
+
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+public enum ExportFormat {
+    /** One JSON order, items included, per line. */
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+    /** One row per order line; orders without lines get a single row with empty item columns. */
+    CSV(new MediaType("text", "csv"), "csv");
+    
+    private final MediaType mediaType;
+    private final String extension;
+    
+    ExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+    
+    public MediaType mediaType() {
+        return mediaType;
+    }
+    
+    public String extension() {
+        return extension;
+    }
+    
+    public static ExportFormat fromParam(String value) {
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "ndjson" -> NDJSON;
+            case "csv" -> CSV;
+            default -> throw new IllegalArgumentException("format must be ndjson or csv");
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package com.tp.order.dto;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The fields a client asked for with {@code ?fields=a,b,c}, in the order given, checked against the
+ * fields the endpoint offers.
+ */
+public record FieldSelection(Set<String> names) {
+    
+    public FieldSelection {
+        names = Collections.unmodifiableSet(new LinkedHashSet<>(names));
+    }
+    
+    public static FieldSelection parse(String param, Collection<String> allowed) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : param.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(trimmed)) {
+                throw new IllegalArgumentException("Unknown field '" + trimmed + "', expected some of " + allowed);
+            }
+            names.add(trimmed);
+        }
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("fields must name at least one of " + allowed);
+        }
+        return new FieldSelection(names);
+    }
+    
+    public boolean includes(String name) {
+        return names.contains(name);
+    }
+}
@@ -0,0 +1,17 @@
+package com.tp.order.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Lean list response: the items, an opaque token for the next page ({@code null} on the last one) and the
+ * total when it was counted. Both are left out of the JSON when absent.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ListEnvelope<T>(
+        List<T> items,
+        String next,
+        Long total
+) {
+}
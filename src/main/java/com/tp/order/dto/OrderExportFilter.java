@@ -0,0 +1,15 @@
+package com.tp.order.dto;
+
+import com.tp.order.entity.OrderStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Orders created in {@code [from, to)} with the given status; null fields do not filter.
+ */
+public record OrderExportFilter(
+        LocalDateTime from,
+        LocalDateTime to,
+        OrderStatus status
+) {
+}
@@ -0,0 +1,13 @@
+package com.tp.order.dto;
+
+import java.math.BigDecimal;
+
+public record ProductSalesDTO(
+        Long productId,
+        String productName,
+        long orders,
+        long units,
+        BigDecimal revenue,
+        BigDecimal discounts
+) {
+}
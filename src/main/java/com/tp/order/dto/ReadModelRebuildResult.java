@@ -0,0 +1,8 @@
+package com.tp.order.dto;
+
+public record ReadModelRebuildResult(
+        long orders,
+        int chunks,
+        long elapsedMillis
+) {
+}
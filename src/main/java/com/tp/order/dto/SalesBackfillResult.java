@@ -0,0 +1,9 @@
+package com.tp.order.dto;
+
+public record SalesBackfillResult(
+        int days,
+        int daysWithSales,
+        int partitions,
+        long elapsedMillis
+) {
+}
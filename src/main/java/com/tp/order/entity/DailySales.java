@@ -0,0 +1,37 @@
+package com.tp.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Sales of one day across all products. Rows are written with plain JDBC by
+ * {@code SalesRollupRepositoryImpl}; the mapping exists for queries and schema generation.
+ */
+@Entity
+@Table(name = "daily_sales")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySales {
+    
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+    
+    @Column(nullable = false)
+    private Long orders;
+    
+    @Column(nullable = false)
+    private Long units;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal discounts;
+}
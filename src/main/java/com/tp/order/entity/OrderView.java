@@ -0,0 +1,71 @@
+package com.tp.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read model row for one order. {@code items} holds the order's lines as a JSON array of
+ * {@code OrderItemDTO}s so an order can be served without touching orders, order_items, products or users.
+ */
+@Entity
+@Table(name = "order_views")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderView implements Persistable<Long> {
+    
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false, length = 50)
+    private String username;
+    
+    @Column(name = "order_total", nullable = false, precision = 10, scale = 2)
+    private BigDecimal orderTotal;
+    
+    @Column(nullable = false, length = 20)
+    private String status;
+    
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String items;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // New orders get fresh views, so save() can persist without a lookup by id first; a rebuild
+    // clears this for views it already holds so they are merged instead
+    @Transient
+    @Builder.Default
+    private boolean newView = true;
+    
+    @Override
+    public Long getId() {
+        return orderId;
+    }
+    
+    @Override
+    public boolean isNew() {
+        return newView;
+    }
+    
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        newView = false;
+    }
+}
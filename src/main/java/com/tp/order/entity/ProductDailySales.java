@@ -0,0 +1,51 @@
+package com.tp.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Sales of one product on one day; {@code orders} counts the orders that contained the product.
+ * Written with plain JDBC like {@link DailySales}.
+ */
+@Entity
+@Table(name = "product_daily_sales")
+@IdClass(ProductDailySales.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDailySales {
+    
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+    
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+    
+    @Column(nullable = false)
+    private Long orders;
+    
+    @Column(nullable = false)
+    private Long units;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal discounts;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate salesDate;
+        private Long productId;
+    }
+}
@@ -0,0 +1,7 @@
+package com.tp.order.exception;
+
+public class OrderQueueClosedException extends RuntimeException {
+    public OrderQueueClosedException(String message) {
+        super(message);
+    }
+}
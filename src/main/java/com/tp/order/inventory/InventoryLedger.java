@@ -0,0 +1,385 @@
+package com.tp.order.inventory;
+
+import com.tp.order.repository.ProductRepository;
+import com.tp.order.repository.ProductStockLevel;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory, authoritative available-stock counters for products, sharded by product id.
+ * Reservations are CAS decrements on per-product counters; the resulting deltas are written back
+ * to {@code products.quantity} in batches by {@link #flush()}. When the journal is enabled every
+ * reservation is fsynced to disk before it is acknowledged and replayed into the database on the
+ * next start, so a crash cannot lose sold stock.
+ */
+@Component
+@ConditionalOnProperty(name = "app.inventory.ledger.enabled", havingValue = "true")
+public class InventoryLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryLedger.class);
+
+    private final ProductRepository productRepository;
+    private final StockDeltaJournal journal;
+    // Admin overwrites are written from an afterCommit callback, where a REQUIRED transaction would join
+    // the one that has already committed and its write would never be committed
+    private final TransactionOperations overwriteTransaction;
+    private final Shard[] shards;
+    private final int shardMask;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile boolean ready;
+
+    @Autowired
+    public InventoryLedger(ProductRepository productRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.inventory.ledger.shards:64}") int shardCount,
+                           @Value("${app.inventory.ledger.journal.enabled:false}") boolean journalEnabled,
+                           @Value("${app.inventory.ledger.journal.directory:./data/inventory-journal}") String journalDirectory) {
+        this(productRepository, shardCount, journalEnabled ? new StockDeltaJournal(Path.of(journalDirectory)) : null,
+                requiresNew(transactionManager));
+    }
+
+    InventoryLedger(ProductRepository productRepository, int shardCount, StockDeltaJournal journal,
+                    TransactionOperations overwriteTransaction) {
+        this.productRepository = productRepository;
+        this.journal = journal;
+        this.overwriteTransaction = overwriteTransaction;
+        int size = shardCount <= 1 ? 1 : Integer.highestOneBit(shardCount - 1) << 1;
+        this.shards = new Shard[size];
+        for (int i = 0; i < size; i++) {
+            shards[i] = new Shard();
+        }
+        this.shardMask = size - 1;
+    }
+
+    /**
+     * Writes back anything left in the journal from a previous run, then loads current stock.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void hydrate() {
+        flushLock.lock();
+        try {
+            if (journal != null) {
+                Map<Long, Integer> unflushed = journal.replay();
+                if (!unflushed.isEmpty()) {
+                    log.warn("Replaying {} unflushed stock deltas from the inventory journal", unflushed.size());
+                    productRepository.applyStockDeltas(unflushed);
+                }
+                journal.clear();
+            }
+
+            List<ProductStockLevel> levels = productRepository.findStockLevels();
+            for (ProductStockLevel level : levels) {
+                shardFor(level.productId()).available.put(level.productId(), new AtomicInteger(level.quantity()));
+            }
+            ready = true;
+            log.info("Inventory ledger hydrated with {} products across {} shards", levels.size(), shards.length);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Reserves every line or none. Returns the ids of products that could not be reserved; an empty
+     * list means all quantities were taken. Inside a transaction the reservation is released again
+     * if that transaction rolls back.
+     */
+    public List<Long> reserve(Map<Long, Integer> quantities) {
+        List<Long> rejected = new ArrayList<>();
+        Map<Long, Integer> reserved = new LinkedHashMap<>();
+        Map<Long, Integer> epochs = new HashMap<>();
+
+        int[] locked = lockShards(quantities.keySet());
+        try {
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                Shard shard = shardFor(entry.getKey());
+                AtomicInteger counter = shard.available.get(entry.getKey());
+                if (counter != null && tryDecrement(counter, entry.getValue())) {
+                    reserved.put(entry.getKey(), entry.getValue());
+                    epochs.put(entry.getKey(), shard.reconcileEpochs.getOrDefault(entry.getKey(), 0));
+                } else {
+                    rejected.add(entry.getKey());
+                }
+            }
+
+            if (!rejected.isEmpty()) {
+                reserved.forEach((productId, quantity) -> shardFor(productId).available.get(productId).addAndGet(quantity));
+                return rejected;
+            }
+
+            try {
+                recordDeltas(reserved);
+            } catch (RuntimeException ex) {
+                reserved.forEach((productId, quantity) -> shardFor(productId).available.get(productId).addAndGet(quantity));
+                throw ex;
+            }
+        } finally {
+            unlockShards(locked);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        release(reserved, epochs);
+                    }
+                }
+            });
+        }
+        return List.of();
+    }
+
+    /**
+     * Puts previously reserved quantities back.
+     */
+    public void release(Map<Long, Integer> quantities) {
+        release(quantities, null);
+    }
+
+    // With epochs, quantities reserved before the product's latest admin overwrite are skipped: the
+    // overwritten value already stands without them
+    private void release(Map<Long, Integer> quantities, Map<Long, Integer> epochs) {
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        int[] locked = lockShards(quantities.keySet());
+        try {
+            quantities.forEach((productId, quantity) -> {
+                Shard shard = shardFor(productId);
+                if (epochs != null && !epochs.get(productId).equals(shard.reconcileEpochs.getOrDefault(productId, 0))) {
+                    return;
+                }
+                AtomicInteger counter = shard.available.get(productId);
+                if (counter != null) {
+                    counter.addAndGet(quantity);
+                }
+                deltas.put(productId, -quantity);
+            });
+            if (!deltas.isEmpty()) {
+                recordDeltas(deltas);
+            }
+        } finally {
+            unlockShards(locked);
+        }
+    }
+
+    /**
+     * Returns the available stock of a tracked product, or {@code null} if the ledger does not know it.
+     */
+    public Integer available(Long productId) {
+        AtomicInteger counter = shardFor(productId).available.get(productId);
+        return counter != null ? counter.get() : null;
+    }
+
+    /**
+     * Starts tracking a newly created product once its transaction commits.
+     */
+    public void track(Long productId, int quantity) {
+        afterCommit(() -> shardFor(productId).available.putIfAbsent(productId, new AtomicInteger(quantity)));
+    }
+
+    /**
+     * Stops accepting reservations for a deleted product once its transaction commits. Deltas that
+     * are already pending are still flushed.
+     */
+    public void forget(Long productId) {
+        afterCommit(() -> shardFor(productId).available.remove(productId));
+    }
+
+    /**
+     * Applies an admin stock overwrite once its transaction commits: the counter takes the new value,
+     * pending deltas for the product are dropped, reservations taken before it are no longer released
+     * on rollback, and the value is written again so a flush that raced with the admin transaction
+     * cannot leave the row behind the ledger.
+     */
+    public void reconcile(Long productId, int quantity) {
+        afterCommit(() -> {
+            flushLock.lock();
+            try {
+                Shard shard = shardFor(productId);
+                shard.lock.writeLock().lock();
+                try {
+                    shard.pendingDeltas.remove(productId);
+                    shard.available.computeIfAbsent(productId, id -> new AtomicInteger()).set(quantity);
+                    shard.reconcileEpochs.merge(productId, 1, Integer::sum);
+                    if (journal != null) {
+                        journal.appendReset(productId);
+                    }
+                } finally {
+                    shard.lock.writeLock().unlock();
+                }
+                overwriteTransaction.executeWithoutResult(status -> productRepository.overwriteStock(productId, quantity));
+            } finally {
+                flushLock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Writes accumulated deltas back to {@code products.quantity} in one batch.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.ledger.flush-interval-ms:500}")
+    public void flush() {
+        if (!ready) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            Map<Long, Integer> deltas = new HashMap<>();
+            Path segment = null;
+
+            // Every shard at once, so no delta is split between the sealed journal segment and the next one
+            for (Shard shard : shards) {
+                shard.lock.writeLock().lock();
+            }
+            try {
+                for (Shard shard : shards) {
+                    shard.pendingDeltas.forEach((productId, pending) -> {
+                        int delta = pending.getAndSet(0);
+                        if (delta != 0) {
+                            deltas.put(productId, delta);
+                        }
+                    });
+                }
+                if (journal != null && !deltas.isEmpty()) {
+                    segment = journal.seal();
+                }
+            } finally {
+                for (Shard shard : shards) {
+                    shard.lock.writeLock().unlock();
+                }
+            }
+
+            if (deltas.isEmpty()) {
+                return;
+            }
+
+            try {
+                productRepository.applyStockDeltas(deltas);
+                log.debug("Flushed stock deltas for {} products", deltas.size());
+            } catch (RuntimeException ex) {
+                log.error("Failed to flush stock deltas for {} products, will retry", deltas.size(), ex);
+                int[] locked = lockShards(deltas.keySet());
+                try {
+                    recordDeltas(deltas);
+                } finally {
+                    unlockShards(locked);
+                }
+            }
+
+            if (segment != null) {
+                journal.discard(segment);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    // Caller must hold the read lock of every shard the deltas fall into
+    private void recordDeltas(Map<Long, Integer> deltas) {
+        if (journal != null) {
+            journal.appendDeltas(deltas);
+        }
+        deltas.forEach((productId, delta) ->
+                shardFor(productId).pendingDeltas.computeIfAbsent(productId, id -> new AtomicInteger()).addAndGet(delta));
+    }
+
+    private Shard shardFor(Long productId) {
+        return shards[shardIndex(productId)];
+    }
+
+    private int shardIndex(Long productId) {
+        return Long.hashCode(productId) & shardMask;
+    }
+
+    // Read-locks the shards of the given products in index order, which flush() also follows, so
+    // reservations spanning several shards cannot deadlock against each other or a flush
+    private int[] lockShards(Collection<Long> productIds) {
+        int[] indexes = productIds.stream().mapToInt(this::shardIndex).distinct().sorted().toArray();
+        for (int index : indexes) {
+            shards[index].lock.readLock().lock();
+        }
+        return indexes;
+    }
+
+    private void unlockShards(int[] indexes) {
+        for (int index : indexes) {
+            shards[index].lock.readLock().unlock();
+        }
+    }
+
+    private static boolean tryDecrement(AtomicInteger counter, int quantity) {
+        int current;
+        do {
+            current = counter.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current - quantity));
+        return true;
+    }
+
+    private static TransactionOperations requiresNew(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static final class Shard {
+        // Reservations and releases share the read side; flushes and admin overwrites take the write side
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        // Bumped by every admin overwrite of a product
+        private final ConcurrentHashMap<Long, Integer> reconcileEpochs = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Long, AtomicInteger> pendingDeltas = new ConcurrentHashMap<>();
+    }
+}
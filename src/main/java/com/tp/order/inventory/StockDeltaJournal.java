@@ -0,0 +1,143 @@
+package com.tp.order.inventory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only, fsynced log of stock deltas that have been reserved in memory but not yet written
+ * to {@code products.quantity}. Lines are {@code D <productId> <delta>} for a reservation (negative
+ * for a release) and {@code R <productId>} when an admin overwrite makes earlier deltas obsolete.
+ */
+class StockDeltaJournal {
+
+    private static final String ACTIVE_SEGMENT = "stock-deltas.log";
+    private static final String SEALED_SEGMENT = "stock-deltas.sealed";
+
+    private final Path activeSegment;
+    private final Path sealedSegment;
+    private FileChannel channel;
+
+    StockDeltaJournal(Path directory) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot create inventory journal directory " + directory, ex);
+        }
+        this.activeSegment = directory.resolve(ACTIVE_SEGMENT);
+        this.sealedSegment = directory.resolve(SEALED_SEGMENT);
+        open();
+    }
+
+    synchronized void appendDeltas(Map<Long, Integer> deltas) {
+        StringBuilder lines = new StringBuilder(deltas.size() * 16);
+        deltas.forEach((productId, delta) ->
+                lines.append("D ").append(productId).append(' ').append(delta).append('\n'));
+        write(lines.toString());
+    }
+
+    synchronized void appendReset(Long productId) {
+        write("R " + productId + "\n");
+    }
+
+    /**
+     * Closes the active segment so a flush can write it back; new appends go to a fresh segment.
+     */
+    synchronized Path seal() {
+        try {
+            channel.close();
+            Files.move(activeSegment, sealedSegment, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot seal inventory journal", ex);
+        } finally {
+            open();
+        }
+        return sealedSegment;
+    }
+
+    synchronized void discard(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot discard inventory journal segment " + segment, ex);
+        }
+    }
+
+    /**
+     * Returns the net delta per product recorded across all segments, oldest first.
+     */
+    synchronized Map<Long, Integer> replay() {
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (Path segment : List.of(sealedSegment, activeSegment)) {
+            if (!Files.exists(segment)) {
+                continue;
+            }
+            try {
+                for (String line : Files.readAllLines(segment, StandardCharsets.UTF_8)) {
+                    String[] parts = line.split(" ");
+                    if (parts.length == 3 && parts[0].equals("D")) {
+                        deltas.merge(Long.valueOf(parts[1]), Integer.valueOf(parts[2]), Integer::sum);
+                    } else if (parts.length == 2 && parts[0].equals("R")) {
+                        deltas.remove(Long.valueOf(parts[1]));
+                    }
+                    // anything else is a torn write from a crash mid-append and is ignored
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Cannot replay inventory journal segment " + segment, ex);
+            }
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        return deltas;
+    }
+
+    /**
+     * Drops every segment once their deltas are known to be in the database.
+     */
+    synchronized void clear() {
+        try {
+            channel.truncate(0);
+            channel.force(true);
+            Files.deleteIfExists(sealedSegment);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot clear inventory journal", ex);
+        }
+    }
+
+    synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot close inventory journal", ex);
+        }
+    }
+
+    private void write(String lines) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot append to inventory journal", ex);
+        }
+    }
+
+    private void open() {
+        try {
+            channel = FileChannel.open(activeSegment,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open inventory journal " + activeSegment, ex);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.tp.order.pricing;
+
+import com.tp.order.dto.OrderItemRequest;
+import com.tp.order.entity.Order;
+import com.tp.order.entity.OrderItem;
+import com.tp.order.entity.Product;
+import com.tp.order.entity.User;
+import com.tp.order.entity.UserRole;
+import com.tp.order.exception.ResourceNotFoundException;
+import com.tp.order.strategy.DiscountCalculator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prices order lines in whole cents. Products are looked up through a hash index, subtotal and
+ * discount allocation are done on {@code long}s, and {@link BigDecimal}s are only created for the
+ * discount strategies and for the values written to the entities.
+ * <p>
+ * The order discount is spread over the lines pro rata using largest-remainder rounding, so the
+ * item discounts always add up to exactly the order discount and item totals add up to the order total.
+ */
+@Component
+public class OrderPricingEngine {
+    
+    private static final Logger log = LoggerFactory.getLogger(OrderPricingEngine.class);
+    private static final int SCALE = 2;
+    private final DiscountCalculator discountCalculator;
+    
+    public OrderPricingEngine(DiscountCalculator discountCalculator) {
+        this.discountCalculator = discountCalculator;
+    }
+    
+    /**
+     * Builds the priced items and total for an order. The caller sets the status and persists it.
+     *
+     * @throws ResourceNotFoundException if a line references a product that is not in {@code products}
+     */
+    public Order price(User user, List<OrderItemRequest> items, Collection<Product> products) {
+        return price(user, user.getRole(), items, products);
+    }
+    
+    /**
+     * Like {@link #price(User, List, Collection)} with the user's role passed in, so {@code user} can be an
+     * uninitialized reference.
+     */
+    public Order price(User user, UserRole role, List<OrderItemRequest> items, Collection<Product> products) {
+        Map<Long, Product> productsById = new HashMap<>(products.size() * 4 / 3 + 1);
+        for (Product product : products) {
+            productsById.put(product.getId(), product);
+        }
+        
+        int lineCount = items.size();
+        Product[] lineProducts = new Product[lineCount];
+        long[] lineCents = new long[lineCount];
+        long subtotalCents = 0;
+        for (int i = 0; i < lineCount; i++) {
+            OrderItemRequest item = items.get(i);
+            Product product = productsById.get(item.productId());
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found: " + item.productId());
+            }
+            lineProducts[i] = product;
+            lineCents[i] = Math.multiplyExact(toCents(product.getPrice()), (long) item.quantity());
+            subtotalCents = Math.addExact(subtotalCents, lineCents[i]);
+        }
+        
+        long discountCents = subtotalCents == 0 ? 0
+                : toCents(discountCalculator.calculateDiscount(role, toMoney(subtotalCents)));
+        discountCents = Math.max(0, Math.min(discountCents, subtotalCents));
+        long[] lineDiscounts = allocate(discountCents, lineCents, subtotalCents);
+        log.debug("Priced {} lines: subtotal={} discount={} (cents)", lineCount, subtotalCents, discountCents);
+        
+        Order order = Order.builder().user(user).orderTotal(toMoney(subtotalCents - discountCents)).build();
+        for (int i = 0; i < lineCount; i++) {
+            order.addItem(OrderItem.builder()
+                    .product(lineProducts[i])
+                    .quantity(items.get(i).quantity())
+                    .unitPrice(lineProducts[i].getPrice())
+                    .discountApplied(toMoney(lineDiscounts[i]))
+                    .totalPrice(toMoney(lineCents[i] - lineDiscounts[i]))
+                    .build());
+        }
+        return order;
+    }
+    
+    /**
+     * Splits {@code total} over {@code weights} in proportion to each weight. Every share is first
+     * floored, then the cents lost to flooring go one each to the shares with the largest remainders,
+     * ties going to the earlier line.
+     */
+    static long[] allocate(long total, long[] weights, long weightSum) {
+        long[] shares = new long[weights.length];
+        if (total == 0 || weightSum == 0) {
+            return shares;
+        }
+        long[] remainders = new long[weights.length];
+        long allocated = 0;
+        for (int i = 0; i < weights.length; i++) {
+            long quotient;
+            long remainder;
+            long high = Math.multiplyHigh(total, weights[i]);
+            if (high == 0 && total * weights[i] >= 0) {
+                long product = total * weights[i];
+                quotient = product / weightSum;
+                remainder = product % weightSum;
+            } else {
+                BigInteger[] qr = BigInteger.valueOf(total).multiply(BigInteger.valueOf(weights[i]))
+                        .divideAndRemainder(BigInteger.valueOf(weightSum));
+                quotient = qr[0].longValueExact();
+                remainder = qr[1].longValueExact();
+            }
+            shares[i] = quotient;
+            remainders[i] = remainder;
+            allocated += quotient;
+        }
+        
+        int leftover = (int) (total - allocated);
+        if (leftover > 0) {
+            Integer[] byRemainder = new Integer[weights.length];
+            for (int i = 0; i < byRemainder.length; i++) {
+                byRemainder[i] = i;
+            }
+            Arrays.sort(byRemainder, (a, b) -> remainders[a] != remainders[b]
+                    ? Long.compare(remainders[b], remainders[a])
+                    : Integer.compare(a, b));
+            for (int i = 0; i < leftover; i++) {
+                shares[byRemainder[i]]++;
+            }
+        }
+        return shares;
+    }
+    
+    static long toCents(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+    
+    static BigDecimal toMoney(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+}
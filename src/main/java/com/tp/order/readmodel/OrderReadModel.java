@@ -0,0 +1,189 @@
+package com.tp.order.readmodel;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tp.order.dto.OrderDTO;
+import com.tp.order.dto.OrderItemDTO;
+import com.tp.order.dto.ReadModelRebuildResult;
+import com.tp.order.entity.Order;
+import com.tp.order.entity.OrderView;
+import com.tp.order.repository.OrderRepository;
+import com.tp.order.repository.OrderViewRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Denormalized {@code order_views} read model. Views are written in the same transaction as the
+ * orders they describe, so reads can be served from one indexed row per order. Orders placed before
+ * the read model was enabled only appear after {@link #rebuild()}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.orders.read-model.enabled", havingValue = "true")
+public class OrderReadModel {
+    
+    private static final Logger log = LoggerFactory.getLogger(OrderReadModel.class);
+    private static final TypeReference<List<OrderItemDTO>> ITEM_LIST = new TypeReference<>() {
+    };
+    
+    private final OrderViewRepository orderViewRepository;
+    private final OrderRepository orderRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int rebuildChunkSize;
+    private final int rebuildThreads;
+    
+    public OrderReadModel(OrderViewRepository orderViewRepository,
+                          OrderRepository orderRepository,
+                          ObjectMapper objectMapper,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${app.orders.read-model.rebuild.chunk-size:1000}") int rebuildChunkSize,
+                          @Value("${app.orders.read-model.rebuild.threads:4}") int rebuildThreads) {
+        this.orderViewRepository = orderViewRepository;
+        this.orderRepository = orderRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebuildChunkSize = rebuildChunkSize;
+        this.rebuildThreads = rebuildThreads;
+    }
+    
+    /**
+     * Writes the views of freshly persisted orders. Must run in the transaction that persists them.
+     */
+    public void record(Collection<Order> orders) {
+        orderViewRepository.saveAll(orders.stream().map(this::render).toList());
+    }
+    
+    /**
+     * Like {@link #record(Collection)} for one order placed by {@code username}, leaving a lazy user unloaded.
+     */
+    public void record(Order order, String username) {
+        orderViewRepository.save(render(order, username));
+    }
+    
+    public Optional<OrderDTO> find(Long orderId) {
+        return orderViewRepository.findById(orderId).map(this::toDTO);
+    }
+    
+    public Page<OrderDTO> findByUsername(String username, Pageable pageable) {
+        return orderViewRepository.findByUsername(username, pageable).map(this::toDTO);
+    }
+    
+    public Page<OrderDTO> findAll(Pageable pageable) {
+        return orderViewRepository.findAll(pageable).map(this::toDTO);
+    }
+    
+    /**
+     * Re-renders every view from orders/order_items. The id range is cut into chunks of
+     * {@code app.orders.read-model.rebuild.chunk-size} ids which are upserted in parallel, each in its
+     * own transaction, so the rebuild can run while orders keep coming in. Views of orders that no
+     * longer exist are dropped.
+     */
+    public ReadModelRebuildResult rebuild() {
+        long start = System.currentTimeMillis();
+        Long minId = orderRepository.findMinId();
+        Long maxId = orderRepository.findMaxId();
+        if (minId == null) {
+            return new ReadModelRebuildResult(0, 0, 0);
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(rebuildThreads);
+        try {
+            List<CompletableFuture<Integer>> chunks = new ArrayList<>();
+            for (long from = minId; from <= maxId; from += rebuildChunkSize) {
+                long fromId = from;
+                long toId = Math.min(from + rebuildChunkSize - 1, maxId);
+                chunks.add(CompletableFuture.supplyAsync(() -> rebuildChunk(fromId, toId), executor));
+            }
+            long orders = chunks.stream().mapToLong(CompletableFuture::join).sum();
+            long elapsed = System.currentTimeMillis() - start;
+            log.info("Rebuilt {} order views in {} chunks in {} ms", orders, chunks.size(), elapsed);
+            return new ReadModelRebuildResult(orders, chunks.size(), elapsed);
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    private int rebuildChunk(long fromId, long toId) {
+        return transactionTemplate.execute(status -> {
+            List<Order> orders = orderRepository.findWithItemsByIdBetween(fromId, toId);
+            // Merge over the views that exist rather than clearing the range: an order committing
+            // after the select above already wrote its own view, and must keep it
+            Set<Long> existing = orderViewRepository.findAllById(orders.stream().map(Order::getId).toList())
+                    .stream()
+                    .map(OrderView::getOrderId)
+                    .collect(Collectors.toSet());
+            List<OrderView> views = orders.stream().map(this::render).toList();
+            views.forEach(view -> view.setNewView(!existing.contains(view.getOrderId())));
+            orderViewRepository.saveAll(views);
+            orderViewRepository.deleteOrphansByOrderIdBetween(fromId, toId);
+            return orders.size();
+        });
+    }
+    
+    OrderView render(Order order) {
+        return render(order, order.getUser().getUsername());
+    }
+    
+    private OrderView render(Order order, String username) {
+        List<OrderItemDTO> items = order.getItems().stream()
+                .map(item -> new OrderItemDTO(
+                        item.getId(),
+                        item.getProduct().getId(),
+                        item.getProduct().getName(),
+                        item.getQuantity(),
+                        item.getUnitPrice(),
+                        item.getDiscountApplied(),
+                        item.getTotalPrice()
+                ))
+                .toList();
+        try {
+            return OrderView.builder()
+                    .orderId(order.getId())
+                    .userId(order.getUser().getId())
+                    .username(username)
+                    .orderTotal(order.getOrderTotal())
+                    .status(order.getStatus().name())
+                    .items(objectMapper.writeValueAsString(items))
+                    .createdAt(order.getCreatedAt())
+                    .updatedAt(order.getUpdatedAt())
+                    .build();
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not render view of order " + order.getId(), ex);
+        }
+    }
+    
+    OrderDTO toDTO(OrderView view) {
+        try {
+            return new OrderDTO(
+                    view.getOrderId(),
+                    view.getUserId(),
+                    view.getUsername(),
+                    objectMapper.readValue(view.getItems(), ITEM_LIST),
+                    view.getOrderTotal(),
+                    view.getStatus(),
+                    view.getCreatedAt(),
+                    view.getUpdatedAt()
+            );
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Corrupt view of order " + view.getOrderId(), ex);
+        }
+    }
+}
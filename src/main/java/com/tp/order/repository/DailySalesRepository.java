@@ -0,0 +1,19 @@
+package com.tp.order.repository;
+
+import com.tp.order.dto.DailySalesDTO;
+import com.tp.order.entity.DailySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailySalesRepository extends JpaRepository<DailySales, LocalDate>, SalesRollupRepository {
+    
+    @Query("SELECT new com.tp.order.dto.DailySalesDTO(s.salesDate, s.orders, s.units, s.revenue, s.discounts) " +
+           "FROM DailySales s WHERE s.salesDate BETWEEN :from AND :to ORDER BY s.salesDate")
+    List<DailySalesDTO> findDailySales(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
@@ -0,0 +1,22 @@
+package com.tp.order.repository;
+
+import com.tp.order.dto.FieldSelection;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order listings that select only the columns a client asked for.
+ */
+public interface OrderFieldsRepository {
+    
+    List<String> FIELDS = List.of("id", "userId", "username", "orderTotal", "status", "createdAt", "updatedAt", "items");
+    
+    /**
+     * The selected scalar fields of the given orders, keyed by name in selection order, in no particular order.
+     * {@code items} is not read here. {@code id} is always selected, at the front of the row if it was not asked
+     * for; users are only joined when {@code username} is selected.
+     */
+    List<Map<String, Object>> findOrderFields(FieldSelection fields, Collection<Long> orderIds);
+}
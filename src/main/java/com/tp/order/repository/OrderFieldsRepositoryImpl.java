@@ -0,0 +1,58 @@
+package com.tp.order.repository;
+
+import com.tp.order.dto.FieldSelection;
+import com.tp.order.entity.OrderStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class OrderFieldsRepositoryImpl implements OrderFieldsRepository {
+    
+    // Select expression per scalar field; the JPQL is only ever assembled from these
+    private static final Map<String, String> COLUMNS = Map.of(
+            "id", "o.id",
+            "userId", "o.user.id",
+            "username", "u.username",
+            "orderTotal", "o.orderTotal",
+            "status", "o.status",
+            "createdAt", "o.createdAt",
+            "updatedAt", "o.updatedAt"
+    );
+    
+    private final EntityManager entityManager;
+    
+    public OrderFieldsRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+    
+    @Override
+    public List<Map<String, Object>> findOrderFields(FieldSelection fields, Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        List<String> selected = new ArrayList<>(fields.names().size() + 1);
+        if (!fields.includes("id")) {
+            selected.add("id");
+        }
+        fields.names().stream().filter(COLUMNS::containsKey).forEach(selected::add);
+        
+        String jpql = "SELECT " + String.join(", ", selected.stream().map(COLUMNS::get).toList()) + " FROM Order o" +
+                (fields.includes("username") ? " JOIN o.user u" : "") + " WHERE o.id IN :ids";
+        List<Map<String, Object>> rows = new ArrayList<>(orderIds.size());
+        for (Tuple tuple : entityManager.createQuery(jpql, Tuple.class).setParameter("ids", orderIds).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < selected.size(); i++) {
+                Object value = tuple.get(i);
+                // Same shape as OrderDTO, which carries the status by name
+                row.put(selected.get(i), value instanceof OrderStatus status ? status.name() : value);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,58 @@
+package com.tp.order.repository;
+
+import com.tp.order.dto.OrderDTO;
+import com.tp.order.dto.OrderItemDTO;
+import com.tp.order.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One order line joined with its order and user, projected straight from the query without managed entities.
+ * Orders without lines come back as a single row whose item columns are null.
+ */
+public record OrderLineRow(
+        Long orderId,
+        Long userId,
+        String username,
+        BigDecimal orderTotal,
+        OrderStatus status,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        Long itemId,
+        Long productId,
+        String productName,
+        Integer quantity,
+        BigDecimal unitPrice,
+        BigDecimal discountApplied,
+        BigDecimal totalPrice
+) {
+    
+    /**
+     * Folds rows into one {@link OrderDTO} per order, keyed by order id in first-seen order.
+     */
+    public static Map<Long, OrderDTO> assemble(List<OrderLineRow> rows) {
+        Map<Long, List<OrderLineRow>> byOrder = new LinkedHashMap<>();
+        for (OrderLineRow row : rows) {
+            byOrder.computeIfAbsent(row.orderId(), id -> new ArrayList<>()).add(row);
+        }
+        Map<Long, OrderDTO> orders = new LinkedHashMap<>(byOrder.size() * 2);
+        byOrder.forEach((orderId, lines) -> {
+            OrderLineRow first = lines.get(0);
+            List<OrderItemDTO> items = new ArrayList<>(lines.size());
+            for (OrderLineRow line : lines) {
+                if (line.itemId() != null) {
+                    items.add(new OrderItemDTO(line.itemId(), line.productId(), line.productName(), line.quantity(),
+                            line.unitPrice(), line.discountApplied(), line.totalPrice()));
+                }
+            }
+            orders.put(orderId, new OrderDTO(orderId, first.userId(), first.username(), List.copyOf(items),
+                    first.orderTotal(), first.status().name(), first.createdAt(), first.updatedAt()));
+        });
+        return orders;
+    }
+}
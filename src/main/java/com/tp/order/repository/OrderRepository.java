@@ -1,16 +1,86 @@
 package com.tp.order.repository;
 
 import com.tp.order.entity.Order;
+import com.tp.order.entity.OrderStatus;
 import com.tp.order.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderFieldsRepository {
     
     Page<Order> findByUser(User user, Pageable pageable);
     
     Page<Order> findByUserId(Long userId, Pageable pageable);
+    
+    // Listing is two-phase: page over ids only, then project the page's orders and lines in one query
+    @Query(value = "SELECT o.id FROM Order o", countQuery = "SELECT COUNT(o) FROM Order o")
+    Page<Long> findOrderIds(Pageable pageable);
+    
+    @Query(value = "SELECT o.id FROM Order o WHERE o.user.id = :userId",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.user.id = :userId")
+    Page<Long> findOrderIdsByUserId(@Param("userId") Long userId, Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"items", "items.product"})
+    Optional<Order> findByIdAndUserId(Long id, Long userId);
+    
+    // Keyset listing, newest first: seek past the (createdAt, id) of the previous page's last order
+    @Query("SELECT o.id FROM Order o ORDER BY o.createdAt DESC, o.id DESC")
+    List<Long> findLatestOrderIds(Limit limit);
+    
+    @Query("SELECT o.id FROM Order o WHERE (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Long> findOrderIdsBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+    
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId ORDER BY o.createdAt DESC, o.id DESC")
+    List<Long> findLatestOrderIdsByUserId(@Param("userId") Long userId, Limit limit);
+    
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) ORDER BY o.createdAt DESC, o.id DESC")
+    List<Long> findOrderIdsByUserIdBefore(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") Long id, Limit limit);
+    
+    @Query("SELECT new com.tp.order.repository.OrderLineRow(o.id, u.id, u.username, o.orderTotal, o.status, " +
+           "o.createdAt, o.updatedAt, i.id, p.id, p.name, i.quantity, i.unitPrice, i.discountApplied, i.totalPrice) " +
+           "FROM Order o JOIN o.user u LEFT JOIN o.items i LEFT JOIN i.product p " +
+           "WHERE o.id IN :ids ORDER BY o.id, i.id")
+    List<OrderLineRow> findLineRowsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT DISTINCT o FROM Order o JOIN FETCH o.user LEFT JOIN FETCH o.items i LEFT JOIN FETCH i.product " +
+           "WHERE o.id BETWEEN :fromId AND :toId")
+    List<Order> findWithItemsByIdBetween(@Param("fromId") Long fromId, @Param("toId") Long toId);
+    
+    // Forward-only export cursor: projected rows are never managed, so the persistence context stays empty
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.tp.order.repository.OrderLineRow(o.id, u.id, u.username, o.orderTotal, o.status, " +
+           "o.createdAt, o.updatedAt, i.id, p.id, p.name, i.quantity, i.unitPrice, i.discountApplied, i.totalPrice) " +
+           "FROM Order o JOIN o.user u LEFT JOIN o.items i LEFT JOIN i.product p " +
+           "WHERE (:from IS NULL OR o.createdAt >= :from) AND (:to IS NULL OR o.createdAt < :to) " +
+           "AND (:status IS NULL OR o.status = :status) ORDER BY o.id, i.id")
+    Stream<OrderLineRow> streamLineRows(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                        @Param("status") OrderStatus status);
+    
+    @Query("SELECT MIN(o.id) FROM Order o")
+    Long findMinId();
+    
+    @Query("SELECT MAX(o.id) FROM Order o")
+    Long findMaxId();
 }
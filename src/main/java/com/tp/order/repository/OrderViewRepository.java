@@ -0,0 +1,21 @@
+package com.tp.order.repository;
+
+import com.tp.order.entity.OrderView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OrderViewRepository extends JpaRepository<OrderView, Long> {
+    
+    Page<OrderView> findByUsername(String username, Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM OrderView v WHERE v.orderId BETWEEN :fromId AND :toId "
+            + "AND NOT EXISTS (SELECT o.id FROM Order o WHERE o.id = v.orderId)")
+    int deleteOrphansByOrderIdBetween(@Param("fromId") Long fromId, @Param("toId") Long toId);
+}
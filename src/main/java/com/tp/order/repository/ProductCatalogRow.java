@@ -0,0 +1,11 @@
+package com.tp.order.repository;
+
+import java.math.BigDecimal;
+
+public record ProductCatalogRow(
+        Long productId,
+        String name,
+        BigDecimal price,
+        Integer quantity
+) {
+}
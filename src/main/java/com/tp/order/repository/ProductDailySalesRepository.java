@@ -0,0 +1,32 @@
+package com.tp.order.repository;
+
+import com.tp.order.dto.DailySalesDTO;
+import com.tp.order.dto.ProductSalesDTO;
+import com.tp.order.entity.ProductDailySales;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ProductDailySalesRepository extends JpaRepository<ProductDailySales, ProductDailySales.Key> {
+    
+    @Query("SELECT new com.tp.order.dto.DailySalesDTO(s.salesDate, s.orders, s.units, s.revenue, s.discounts) " +
+           "FROM ProductDailySales s WHERE s.productId = :productId AND s.salesDate BETWEEN :from AND :to " +
+           "ORDER BY s.salesDate")
+    List<DailySalesDTO> findProductDailySales(@Param("productId") Long productId,
+                                              @Param("from") LocalDate from,
+                                              @Param("to") LocalDate to);
+    
+    // product_daily_sales has no foreign key to products, so a row whose product is gone comes back without a name
+    @Query("SELECT new com.tp.order.dto.ProductSalesDTO(s.productId, p.name, SUM(s.orders), SUM(s.units), " +
+           "SUM(s.revenue), SUM(s.discounts)) " +
+           "FROM ProductDailySales s LEFT JOIN Product p ON p.id = s.productId " +
+           "WHERE s.salesDate BETWEEN :from AND :to " +
+           "GROUP BY s.productId, p.name ORDER BY SUM(s.revenue) DESC, s.productId")
+    List<ProductSalesDTO> findTopProducts(@Param("from") LocalDate from, @Param("to") LocalDate to, Limit limit);
+}
@@ -0,0 +1,30 @@
+package com.tp.order.repository;
+
+import com.tp.order.dto.FieldSelection;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Product listings that select only the columns a client asked for.
+ */
+public interface ProductFieldsRepository {
+    
+    List<String> FIELDS = List.of("id", "name", "description", "price", "quantity", "deleted", "createdAt", "updatedAt");
+    
+    /**
+     * Like {@link ProductRepository#sliceSearchProductDTOs}, but each row holds only the selected fields, keyed by
+     * name in selection order. {@code id} is always selected, at the front of the row if it was not asked for,
+     * so callers can still tell rows apart. Null filters match everything and are left out of the query.
+     */
+    Slice<Map<String, Object>> sliceProductFields(FieldSelection fields, String name, BigDecimal minPrice,
+                                                  BigDecimal maxPrice, Boolean available, Pageable pageable);
+    
+    /**
+     * Counts what {@link #sliceProductFields} would list across all pages.
+     */
+    long countProductFields(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean available);
+}
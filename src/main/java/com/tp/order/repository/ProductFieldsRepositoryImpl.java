@@ -0,0 +1,82 @@
+package com.tp.order.repository;
+
+import com.tp.order.dto.FieldSelection;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ProductFieldsRepositoryImpl implements ProductFieldsRepository {
+    
+    // Select expression per field; the JPQL is only ever assembled from these
+    private static final Map<String, String> COLUMNS = Map.of(
+            "id", "p.id",
+            "name", "p.name",
+            "description", "p.description",
+            "price", "p.price",
+            "quantity", ProductRepository.AVAILABLE_QUANTITY,
+            "deleted", "p.deleted",
+            "createdAt", "p.createdAt",
+            "updatedAt", "p.updatedAt"
+    );
+    
+    private final EntityManager entityManager;
+    
+    public ProductFieldsRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+    
+    @Override
+    public Slice<Map<String, Object>> sliceProductFields(FieldSelection fields, String name, BigDecimal minPrice,
+                                                         BigDecimal maxPrice, Boolean available, Pageable pageable) {
+        List<String> selected = new ArrayList<>(fields.names().size() + 1);
+        if (!fields.includes("id")) {
+            selected.add("id");
+        }
+        selected.addAll(fields.names());
+        
+        List<String> columns = selected.stream().map(COLUMNS::get).toList();
+        Map<String, Object> parameters = new HashMap<>();
+        String jpql = QueryUtils.applySorting("SELECT " + String.join(", ", columns) + " FROM Product p WHERE " +
+                ProductSearchFilter.where(name, minPrice, maxPrice, available, null, parameters), pageable.getSort(), "p");
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql, Tuple.class);
+        parameters.forEach(query::setParameter);
+        if (pageable.isPaged()) {
+            // One row past the page tells whether another follows, without a count
+            query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize() + 1);
+        }
+        
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : query.getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < selected.size(); i++) {
+                row.put(selected.get(i), tuple.get(i));
+            }
+            rows.add(row);
+        }
+        boolean hasNext = pageable.isPaged() && rows.size() > pageable.getPageSize();
+        if (hasNext) {
+            rows.remove(rows.size() - 1);
+        }
+        return new SliceImpl<>(rows, pageable, hasNext);
+    }
+    
+    @Override
+    public long countProductFields(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean available) {
+        Map<String, Object> parameters = new HashMap<>();
+        TypedQuery<Long> query = entityManager.createQuery("SELECT COUNT(p) FROM Product p WHERE " +
+                ProductSearchFilter.where(name, minPrice, maxPrice, available, null, parameters), Long.class);
+        parameters.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+}
@@ -0,0 +1,7 @@
+package com.tp.order.repository;
+
+public record ProductName(
+        Long productId,
+        String name
+) {
+}
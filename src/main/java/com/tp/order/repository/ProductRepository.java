@@ -1,25 +1,70 @@
 package com.tp.order.repository;
 
+import com.tp.order.dto.ProductDTO;
 import com.tp.order.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductStockRepository, ProductFieldsRepository,
+        ProductSearchRepository {
     
-    Page<Product> findByDeletedFalse(Pageable pageable);
+    String SHARD_IN_STOCK = "EXISTS (SELECT 1 FROM ProductStockShard s WHERE s.productId = p.id AND s.quantity > 0)";
     
-    @Query("SELECT p FROM Product p WHERE p.deleted = false AND " +
+    String SEARCH_FILTER = "p.deleted = false AND " +
            "(:name IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
            "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
-           "(:available IS NULL OR ((:available = true AND p.quantity > 0) OR (:available = false AND p.quantity = 0)))")
+           "(:available IS NULL OR (:available = true AND (p.quantity > 0 OR " + SHARD_IN_STOCK + ")) " +
+           "OR (:available = false AND p.quantity = 0 AND NOT " + SHARD_IN_STOCK + "))";
+    
+    // Stock of the product row plus whatever sits in its shard rows
+    String AVAILABLE_QUANTITY =
+           "CAST(p.quantity + COALESCE((SELECT SUM(s.quantity) FROM ProductStockShard s WHERE s.productId = p.id), 0) AS Integer)";
+    
+    // Read-only listings project into ProductDTO directly, with sharded stock folded into the quantity
+    String PRODUCT_DTO = "SELECT new com.tp.order.dto.ProductDTO(p.id, p.name, p.description, p.price, " +
+           AVAILABLE_QUANTITY + ", p.deleted, p.createdAt, p.updatedAt) FROM Product p";
+    
+    Page<Product> findByDeletedFalse(Pageable pageable);
+    
+    @Query(value = PRODUCT_DTO + " WHERE p.deleted = false",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.deleted = false")
+    Page<ProductDTO> findProductDTOs(Pageable pageable);
+    
+    // Slice variants fetch one row past the page instead of running the count query
+    @Query(PRODUCT_DTO + " WHERE p.deleted = false")
+    Slice<ProductDTO> sliceProductDTOs(Pageable pageable);
+    
+    @Query("SELECT new com.tp.order.repository.ProductStockLevel(p.id, " + AVAILABLE_QUANTITY + ") " +
+           "FROM Product p WHERE p.deleted = false")
+    List<ProductStockLevel> findStockLevels();
+    
+    @Query("SELECT new com.tp.order.repository.ProductCatalogRow(p.id, p.name, p.price, " + AVAILABLE_QUANTITY + ") " +
+           "FROM Product p WHERE p.deleted = false ORDER BY p.id")
+    List<ProductCatalogRow> findCatalogRows();
+    
+    @Query("SELECT new com.tp.order.repository.ProductName(p.id, p.name) FROM Product p WHERE p.deleted = false ORDER BY p.id")
+    List<ProductName> findProductNames();
+    
+    @Query("SELECT new com.tp.order.repository.ProductStockLevel(s.productId, CAST(SUM(s.quantity) AS Integer)) " +
+           "FROM ProductStockShard s WHERE s.productId IN :productIds GROUP BY s.productId")
+    List<ProductStockLevel> findShardedStockLevels(@Param("productIds") Collection<Long> productIds);
+    
+    @Query("SELECT p.stockShards FROM Product p WHERE p.id = :id AND p.deleted = false")
+    Optional<Integer> findStockShards(@Param("id") Long id);
+    
+    @Query("SELECT p FROM Product p WHERE " + SEARCH_FILTER)
     Page<Product> searchProducts(
             @Param("name") String name,
             @Param("minPrice") BigDecimal minPrice,
@@ -27,4 +72,31 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
             @Param("available") Boolean available,
             Pageable pageable
     );
+    
+    @Query(value = PRODUCT_DTO + " WHERE " + SEARCH_FILTER,
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE " + SEARCH_FILTER)
+    Page<ProductDTO> searchProductDTOs(
+            @Param("name") String name,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("available") Boolean available,
+            Pageable pageable
+    );
+    
+    @Query(PRODUCT_DTO + " WHERE " + SEARCH_FILTER)
+    Slice<ProductDTO> sliceSearchProductDTOs(
+            @Param("name") String name,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("available") Boolean available,
+            Pageable pageable
+    );
+    
+    @Query("SELECT COUNT(p) FROM Product p WHERE " + SEARCH_FILTER)
+    long countSearchResults(
+            @Param("name") String name,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("available") Boolean available
+    );
 }
@@ -0,0 +1,54 @@
+package com.tp.order.repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * {@link ProductRepository#SEARCH_FILTER} assembled from only the filters that are set. Guards like
+ * {@code (:name IS NULL OR ...)} keep a planner from using the price or name indexes, and the stock-shard
+ * subqueries ran for every row even with no availability filter.
+ */
+final class ProductSearchFilter {
+    
+    private ProductSearchFilter() {
+    }
+    
+    /**
+     * JPQL condition on {@code p}, with its parameter values put into {@code parameters}. Non-null {@code ids}
+     * restricts the match to those products, e.g. when a search engine has already resolved the name.
+     */
+    static String where(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean available,
+                        Collection<Long> ids, Map<String, Object> parameters) {
+        StringBuilder where = new StringBuilder("p.deleted = false");
+        if (ids != null) {
+            where.append(" AND p.id IN :ids");
+            parameters.put("ids", ids);
+        }
+        if (name != null) {
+            // Case-insensitive substring, the form a pg_trgm index on LOWER(name) serves
+            where.append(" AND LOWER(p.name) LIKE :name ESCAPE '\\'");
+            parameters.put("name", "%" + escapeLike(name.toLowerCase(Locale.ROOT)) + "%");
+        }
+        if (minPrice != null) {
+            where.append(" AND p.price >= :minPrice");
+            parameters.put("minPrice", minPrice);
+        }
+        if (maxPrice != null) {
+            where.append(" AND p.price <= :maxPrice");
+            parameters.put("maxPrice", maxPrice);
+        }
+        if (available != null) {
+            where.append(available
+                    ? " AND (p.quantity > 0 OR " + ProductRepository.SHARD_IN_STOCK + ")"
+                    : " AND p.quantity = 0 AND NOT " + ProductRepository.SHARD_IN_STOCK);
+        }
+        return where.toString();
+    }
+    
+    // A search for "50%" means the text, not a wildcard
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
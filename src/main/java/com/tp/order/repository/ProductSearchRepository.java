@@ -0,0 +1,26 @@
+package com.tp.order.repository;
+
+import com.tp.order.dto.ProductDTO;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+/**
+ * Product search with only the filters that are set in the query, so the database can use its indexes
+ * for them. Backs the {@link com.tp.order.search.ProductSearchEngine} implementations.
+ */
+public interface ProductSearchRepository {
+    
+    /**
+     * Live products matching every non-null filter, one page past {@code pageable} fetched to tell whether
+     * more follow. {@code name} matches case-insensitively anywhere in the name; non-null {@code ids}
+     * restricts the result to those products.
+     */
+    Slice<ProductDTO> findMatchingProducts(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean available,
+                                           Collection<Long> ids, Pageable pageable);
+    
+    long countMatchingProducts(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean available,
+                               Collection<Long> ids);
+}
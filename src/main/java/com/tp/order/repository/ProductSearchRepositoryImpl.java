@@ -0,0 +1,51 @@
+package com.tp.order.repository;
+
+import com.tp.order.dto.ProductDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ProductSearchRepositoryImpl implements ProductSearchRepository {
+    
+    private final EntityManager entityManager;
+    
+    public ProductSearchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+    
+    @Override
+    public Slice<ProductDTO> findMatchingProducts(String name, BigDecimal minPrice, BigDecimal maxPrice,
+                                                  Boolean available, Collection<Long> ids, Pageable pageable) {
+        Map<String, Object> parameters = new HashMap<>();
+        String jpql = QueryUtils.applySorting(ProductRepository.PRODUCT_DTO + " WHERE " +
+                ProductSearchFilter.where(name, minPrice, maxPrice, available, ids, parameters), pageable.getSort(), "p");
+        TypedQuery<ProductDTO> query = entityManager.createQuery(jpql, ProductDTO.class);
+        parameters.forEach(query::setParameter);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize() + 1);
+        }
+        
+        List<ProductDTO> products = query.getResultList();
+        boolean hasNext = pageable.isPaged() && products.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? products.subList(0, pageable.getPageSize()) : products, pageable, hasNext);
+    }
+    
+    @Override
+    public long countMatchingProducts(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean available,
+                                      Collection<Long> ids) {
+        Map<String, Object> parameters = new HashMap<>();
+        TypedQuery<Long> query = entityManager.createQuery("SELECT COUNT(p) FROM Product p WHERE " +
+                ProductSearchFilter.where(name, minPrice, maxPrice, available, ids, parameters), Long.class);
+        parameters.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+}
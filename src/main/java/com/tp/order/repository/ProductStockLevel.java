@@ -0,0 +1,7 @@
+package com.tp.order.repository;
+
+public record ProductStockLevel(
+        Long productId,
+        Integer quantity
+) {
+}
@@ -0,0 +1,40 @@
+package com.tp.order.repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stock mutations that bypass entity loading so they can be sent as a single JDBC batch.
+ */
+public interface ProductStockRepository {
+
+    /**
+     * Atomically decrements the stock of every product in {@code quantities} using conditional
+     * updates sent as one batch. Returns the ids of products whose stock could not be reserved
+     * (missing, deleted or not enough quantity); an empty list means every line was reserved.
+     * <p>
+     * Sharded products are reserved from a random shard, falling over to its siblings when that
+     * shard runs short.
+     */
+    List<Long> reserveStock(Map<Long, Integer> quantities);
+
+    /**
+     * Subtracts already-reserved quantities without re-checking availability. Used to write back
+     * deltas accumulated outside the database; negative values add stock back.
+     */
+    void applyStockDeltas(Map<Long, Integer> deltas);
+
+    /**
+     * Overwrites the stored stock of a product with an authoritative value. For a sharded product
+     * the value is spread evenly over its shards.
+     */
+    void overwriteStock(Long productId, int quantity);
+
+    /**
+     * Moves a product's whole stock into {@code shards} evenly filled shard rows, or back into
+     * {@code products.quantity} when {@code shards} is 0. Returns the product's total stock.
+     *
+     * @throws org.springframework.dao.EmptyResultDataAccessException if the product is missing or deleted
+     */
+    int reshardStock(Long productId, int shards);
+}
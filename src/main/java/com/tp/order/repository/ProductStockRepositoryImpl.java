@@ -0,0 +1,226 @@
+package com.tp.order.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class ProductStockRepositoryImpl implements ProductStockRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductStockRepositoryImpl.class);
+
+    // Every products statement bumps the version so that a Product loaded before it cannot be saved over it.
+    // Statements on products only match unsharded rows; sharded stock lives in product_stock_shards.
+    private static final String RESERVE_STOCK_SQL =
+            "UPDATE products SET quantity = quantity - ?, version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = ? AND deleted = false AND stock_shards = 0 AND quantity >= ?";
+
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE products SET quantity = quantity - ?, version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = ? AND stock_shards = 0";
+
+    private static final String OVERWRITE_STOCK_SQL =
+            "UPDATE products SET quantity = ?, version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = ? AND stock_shards = 0";
+
+    private static final String SHARD_COUNT_SQL =
+            "SELECT stock_shards FROM products WHERE id = ? AND deleted = false";
+
+    private static final String RESERVE_SHARD_SQL =
+            "UPDATE product_stock_shards SET quantity = quantity - ? WHERE product_id = ? AND shard = ? AND quantity >= ?";
+
+    private static final String ADD_TO_SHARD_SQL =
+            "UPDATE product_stock_shards SET quantity = quantity + ? WHERE product_id = ? AND shard = ?";
+
+    private static final String SHARD_QUANTITY_SQL =
+            "SELECT quantity FROM product_stock_shards WHERE product_id = ? AND shard = ?";
+
+    private static final String LOCK_SHARDS_SQL =
+            "SELECT quantity FROM product_stock_shards WHERE product_id = ? ORDER BY shard FOR UPDATE";
+
+    private static final String SET_SHARD_SQL =
+            "UPDATE product_stock_shards SET quantity = ? WHERE product_id = ? AND shard = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductStockRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Long> reserveStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> productIds = new ArrayList<>(quantities.keySet());
+        List<Object[]> batchArgs = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            Integer quantity = quantities.get(productId);
+            batchArgs.add(new Object[]{quantity, productId, quantity});
+        }
+
+        int[] updateCounts = jdbcTemplate.batchUpdate(RESERVE_STOCK_SQL, batchArgs);
+
+        List<Long> failed = new ArrayList<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            // SUCCESS_NO_INFO means the driver executed the statement but did not report a row count
+            if (updateCounts[i] == 0 || updateCounts[i] == Statement.EXECUTE_FAILED) {
+                failed.add(productIds.get(i));
+            }
+        }
+        if (failed.isEmpty()) {
+            return failed;
+        }
+
+        // Only lines the batch missed can be sharded, so unsharded catalogs never pay for this lookup
+        Map<Long, Integer> shardCounts = shardCounts(failed);
+        failed.removeIf(productId -> {
+            Integer shards = shardCounts.get(productId);
+            return shards != null && reserveFromShards(productId, quantities.get(productId), shards);
+        });
+        return failed;
+    }
+
+    @Override
+    @Transactional
+    public void applyStockDeltas(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Long> productIds = new ArrayList<>(deltas.keySet());
+        List<Object[]> batchArgs = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            batchArgs.add(new Object[]{deltas.get(productId), productId});
+        }
+        int[] updateCounts = jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, batchArgs);
+
+        List<Long> missed = new ArrayList<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                missed.add(productIds.get(i));
+            }
+        }
+        if (!missed.isEmpty()) {
+            shardCounts(missed).forEach((productId, shards) -> applyShardDelta(productId, deltas.get(productId), shards));
+        }
+    }
+
+    @Override
+    @Transactional
+    public void overwriteStock(Long productId, int quantity) {
+        if (jdbcTemplate.update(OVERWRITE_STOCK_SQL, quantity, productId) == 0) {
+            List<Integer> shards = jdbcTemplate.query(SHARD_COUNT_SQL, (rs, rowNum) -> rs.getInt(1), productId);
+            if (!shards.isEmpty() && shards.get(0) > 0) {
+                jdbcTemplate.queryForList(LOCK_SHARDS_SQL, Integer.class, productId);
+                fillShards(productId, shards.get(0), quantity);
+            }
+        }
+    }
+
+    @Override
+    @Transactional
+    public int reshardStock(Long productId, int shards) {
+        int unsharded = jdbcTemplate.queryForObject(
+                "SELECT quantity FROM products WHERE id = ? AND deleted = false FOR UPDATE", Integer.class, productId);
+        int total = unsharded;
+        for (Integer quantity : jdbcTemplate.queryForList(LOCK_SHARDS_SQL, Integer.class, productId)) {
+            total += quantity;
+        }
+
+        jdbcTemplate.update("DELETE FROM product_stock_shards WHERE product_id = ?", productId);
+        if (shards > 0) {
+            List<Object[]> rows = new ArrayList<>(shards);
+            for (int shard = 0; shard < shards; shard++) {
+                rows.add(new Object[]{productId, shard, shareOf(total, shards, shard)});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO product_stock_shards (product_id, shard, quantity) VALUES (?, ?, ?)", rows);
+        }
+        jdbcTemplate.update("UPDATE products SET quantity = ?, stock_shards = ?, version = version + 1, " +
+                "updated_at = CURRENT_TIMESTAMP WHERE id = ?", shards > 0 ? 0 : total, shards, productId);
+        return total;
+    }
+
+    private Map<Long, Integer> shardCounts(List<Long> productIds) {
+        String placeholders = String.join(",", Collections.nCopies(productIds.size(), "?"));
+        Map<Long, Integer> shardCounts = new HashMap<>();
+        jdbcTemplate.query("SELECT id, stock_shards FROM products WHERE deleted = false AND stock_shards > 0 AND id IN (" +
+                placeholders + ")", rs -> {
+            shardCounts.put(rs.getLong(1), rs.getInt(2));
+        }, productIds.toArray());
+        return shardCounts;
+    }
+
+    private boolean reserveFromShards(Long productId, int quantity, int shards) {
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            if (jdbcTemplate.update(RESERVE_SHARD_SQL, quantity, productId, (start + i) % shards, quantity) == 1) {
+                return true;
+            }
+        }
+
+        // No single shard covers the line: gather it from several and put it back if they fall short
+        Map<Integer, Integer> taken = new HashMap<>();
+        int remaining = quantity;
+        for (int i = 0; i < shards && remaining > 0; i++) {
+            int shard = (start + i) % shards;
+            int take = Math.min(remaining, shardQuantity(productId, shard));
+            if (take > 0 && jdbcTemplate.update(RESERVE_SHARD_SQL, take, productId, shard, take) == 1) {
+                taken.put(shard, take);
+                remaining -= take;
+            }
+        }
+        if (remaining == 0) {
+            return true;
+        }
+        taken.forEach((shard, take) -> jdbcTemplate.update(ADD_TO_SHARD_SQL, take, productId, shard));
+        return false;
+    }
+
+    private void applyShardDelta(Long productId, int delta, int shards) {
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        if (delta <= 0) {
+            jdbcTemplate.update(ADD_TO_SHARD_SQL, -delta, productId, start);
+            return;
+        }
+        int remaining = delta;
+        for (int i = 0; i < shards && remaining > 0; i++) {
+            int shard = (start + i) % shards;
+            int take = Math.min(remaining, shardQuantity(productId, shard));
+            if (take > 0 && jdbcTemplate.update(RESERVE_SHARD_SQL, take, productId, shard, take) == 1) {
+                remaining -= take;
+            }
+        }
+        if (remaining > 0) {
+            // The delta was already reserved elsewhere, so it must land even if that overdraws a shard
+            log.warn("Overdrawing shard {} of product {} by {} while applying a stock delta", start, productId, remaining);
+            jdbcTemplate.update(ADD_TO_SHARD_SQL, -remaining, productId, start);
+        }
+    }
+
+    private int shardQuantity(Long productId, int shard) {
+        List<Integer> quantity = jdbcTemplate.queryForList(SHARD_QUANTITY_SQL, Integer.class, productId, shard);
+        return quantity.isEmpty() ? 0 : quantity.get(0);
+    }
+
+    private void fillShards(Long productId, int shards, int total) {
+        List<Object[]> rows = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            rows.add(new Object[]{shareOf(total, shards, shard), productId, shard});
+        }
+        jdbcTemplate.batchUpdate(SET_SHARD_SQL, rows);
+    }
+
+    private static int shareOf(int total, int shards, int shard) {
+        return total / shards + (shard < total % shards ? 1 : 0);
+    }
+}
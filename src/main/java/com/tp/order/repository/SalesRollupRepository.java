@@ -0,0 +1,25 @@
+package com.tp.order.repository;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Writes to the sales rollup tables that bypass entity loading so they can be sent as JDBC batches.
+ */
+public interface SalesRollupRepository {
+    
+    /**
+     * Adds the given totals to {@code daily_sales} and {@code product_daily_sales}, creating rows for days
+     * and products that have none yet. Both tables are written in one transaction.
+     */
+    void addSales(Map<LocalDate, SalesTotals> daily, Map<ProductDay, SalesTotals> perProduct);
+    
+    /**
+     * Replaces the rollup rows of {@code from}..{@code to} (inclusive) with totals recomputed from
+     * orders/order_items. Returns the number of days in the range that had sales.
+     */
+    int rebuildSales(LocalDate from, LocalDate to);
+    
+    record ProductDay(LocalDate salesDate, Long productId) {
+    }
+}
@@ -0,0 +1,92 @@
+package com.tp.order.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class SalesRollupRepositoryImpl implements SalesRollupRepository {
+    
+    // Standard MERGE so one statement per row both increments existing rows and inserts new ones
+    private static final String ADD_DAILY_SQL =
+            "MERGE INTO daily_sales d " +
+            "USING (VALUES (CAST(? AS DATE), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS DECIMAL(19, 2)), " +
+            "CAST(? AS DECIMAL(19, 2)))) AS s(sales_date, orders, units, revenue, discounts) " +
+            "ON d.sales_date = s.sales_date " +
+            "WHEN MATCHED THEN UPDATE SET orders = d.orders + s.orders, units = d.units + s.units, " +
+            "revenue = d.revenue + s.revenue, discounts = d.discounts + s.discounts " +
+            "WHEN NOT MATCHED THEN INSERT (sales_date, orders, units, revenue, discounts) " +
+            "VALUES (s.sales_date, s.orders, s.units, s.revenue, s.discounts)";
+    
+    private static final String ADD_PRODUCT_DAILY_SQL =
+            "MERGE INTO product_daily_sales d " +
+            "USING (VALUES (CAST(? AS DATE), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT), " +
+            "CAST(? AS DECIMAL(19, 2)), CAST(? AS DECIMAL(19, 2)))) " +
+            "AS s(sales_date, product_id, orders, units, revenue, discounts) " +
+            "ON d.sales_date = s.sales_date AND d.product_id = s.product_id " +
+            "WHEN MATCHED THEN UPDATE SET orders = d.orders + s.orders, units = d.units + s.units, " +
+            "revenue = d.revenue + s.revenue, discounts = d.discounts + s.discounts " +
+            "WHEN NOT MATCHED THEN INSERT (sales_date, product_id, orders, units, revenue, discounts) " +
+            "VALUES (s.sales_date, s.product_id, s.orders, s.units, s.revenue, s.discounts)";
+    
+    // Ranges on created_at rather than on CAST(created_at AS DATE) so the orders created_at index can be used
+    private static final String REBUILD_DAILY_SQL =
+            "INSERT INTO daily_sales (sales_date, orders, units, revenue, discounts) " +
+            "SELECT CAST(o.created_at AS DATE), COUNT(DISTINCT o.id), SUM(i.quantity), SUM(i.total_price), " +
+            "SUM(COALESCE(i.discount_applied, 0)) " +
+            "FROM orders o JOIN order_items i ON i.order_id = o.id " +
+            "WHERE o.created_at >= ? AND o.created_at < ? " +
+            "GROUP BY CAST(o.created_at AS DATE)";
+    
+    private static final String REBUILD_PRODUCT_DAILY_SQL =
+            "INSERT INTO product_daily_sales (sales_date, product_id, orders, units, revenue, discounts) " +
+            "SELECT CAST(o.created_at AS DATE), i.product_id, COUNT(DISTINCT o.id), SUM(i.quantity), " +
+            "SUM(i.total_price), SUM(COALESCE(i.discount_applied, 0)) " +
+            "FROM orders o JOIN order_items i ON i.order_id = o.id " +
+            "WHERE o.created_at >= ? AND o.created_at < ? " +
+            "GROUP BY CAST(o.created_at AS DATE), i.product_id";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    public SalesRollupRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @Override
+    @Transactional
+    public void addSales(Map<LocalDate, SalesTotals> daily, Map<ProductDay, SalesTotals> perProduct) {
+        if (!daily.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(daily.size());
+            daily.forEach((salesDate, totals) -> rows.add(new Object[]{
+                    Date.valueOf(salesDate), totals.orders(), totals.units(), totals.revenue(), totals.discounts()}));
+            jdbcTemplate.batchUpdate(ADD_DAILY_SQL, rows);
+        }
+        if (!perProduct.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(perProduct.size());
+            perProduct.forEach((productDay, totals) -> rows.add(new Object[]{
+                    Date.valueOf(productDay.salesDate()), productDay.productId(),
+                    totals.orders(), totals.units(), totals.revenue(), totals.discounts()}));
+            jdbcTemplate.batchUpdate(ADD_PRODUCT_DAILY_SQL, rows);
+        }
+    }
+    
+    @Override
+    @Transactional
+    public int rebuildSales(LocalDate from, LocalDate to) {
+        Date fromDate = Date.valueOf(from);
+        Date toDate = Date.valueOf(to);
+        Timestamp start = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(to.plusDays(1).atStartOfDay());
+        
+        jdbcTemplate.update("DELETE FROM daily_sales WHERE sales_date BETWEEN ? AND ?", fromDate, toDate);
+        jdbcTemplate.update("DELETE FROM product_daily_sales WHERE sales_date BETWEEN ? AND ?", fromDate, toDate);
+        int days = jdbcTemplate.update(REBUILD_DAILY_SQL, start, end);
+        jdbcTemplate.update(REBUILD_PRODUCT_DAILY_SQL, start, end);
+        return days;
+    }
+}
@@ -0,0 +1,16 @@
+package com.tp.order.repository;
+
+import java.math.BigDecimal;
+
+public record SalesTotals(
+        long orders,
+        long units,
+        BigDecimal revenue,
+        BigDecimal discounts
+) {
+    
+    public SalesTotals plus(SalesTotals other) {
+        return new SalesTotals(orders + other.orders, units + other.units,
+                revenue.add(other.revenue), discounts.add(other.discounts));
+    }
+}
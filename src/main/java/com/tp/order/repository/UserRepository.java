@@ -4,6 +4,8 @@ import com.tp.order.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,6 +13,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     Optional<User> findByUsername(String username);
     
+    List<User> findByUsernameIn(Collection<String> usernames);
+    
     Optional<User> findByEmail(String email);
     
     boolean existsByUsername(String username);
@@ -0,0 +1,431 @@
+package com.tp.order.search;
+
+import com.tp.order.inventory.InventoryLedger;
+import com.tp.order.repository.ProductCatalogRow;
+import com.tp.order.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar, in-memory copy of the live catalog's price and stock that answers searches filtering only on
+ * {@code minPrice}/{@code maxPrice}/{@code available} with the ids of one page and the total, without touching
+ * the database; the caller then loads just that page by primary key.
+ * <p>
+ * Like {@link NgramProductSearchEngine} it is a snapshot rebuilt at startup and every
+ * {@code app.products.catalog-index.rebuild-ms}, plus the product writes since. Stock is kept current in place
+ * from order reservations, so availability does not wait for the next rebuild.
+ * <p>
+ * Names are ordered as Java strings compare, which is also H2's and Postgres' {@code C} collation; under a
+ * linguistic collation, differently cased names may come out in another order than SQL would give.
+ */
+@Component
+@ConditionalOnProperty(name = "app.products.catalog-index.enabled", havingValue = "true")
+public class CatalogIndex {
+    
+    private static final Logger log = LoggerFactory.getLogger(CatalogIndex.class);
+    
+    private final ProductRepository productRepository;
+    private final ObjectProvider<InventoryLedger> inventoryLedger;
+    // Products written since the snapshot was built; their snapshot rows, if any, no longer count
+    private final Map<Long, Row> changes = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot;
+    // While a rebuild runs, the snapshot it replaces. The rows being read may or may not include a reservation
+    // committed meanwhile, so reserved products are moved into the change set rather than adjusted in place
+    private volatile Snapshot rebuildingFrom;
+    
+    public CatalogIndex(ProductRepository productRepository, ObjectProvider<InventoryLedger> inventoryLedger) {
+        this.productRepository = productRepository;
+        this.inventoryLedger = inventoryLedger;
+    }
+    
+    public boolean isReady() {
+        return snapshot != null;
+    }
+    
+    /**
+     * Page of matching product ids in {@code pageable}'s order, with the number of matches, or null when the
+     * index is not built yet or cannot produce the order: it sorts by a single {@code id}, {@code price} or
+     * {@code name}, and by id when unsorted.
+     */
+    public Result search(BigDecimal minPrice, BigDecimal maxPrice, Boolean available, Pageable pageable) {
+        Snapshot current = snapshot;
+        Key key = Key.of(pageable.getSort());
+        if (current == null || key == null) {
+            return null;
+        }
+        boolean descending = pageable.getSort().stream().anyMatch(Sort.Order::isDescending);
+        Filter filter = new Filter(minPrice == null ? Long.MIN_VALUE : cents(minPrice, RoundingMode.CEILING),
+                maxPrice == null ? Long.MAX_VALUE : cents(maxPrice, RoundingMode.FLOOR), available);
+        
+        List<Row> changed = new ArrayList<>();
+        for (Row row : changes.values()) {
+            if (row.live() && filter.matches(row.priceCents(), row.quantity())) {
+                changed.add(row);
+            }
+        }
+        long total = current.count(filter, changes) + changed.size();
+        if (pageable.isUnpaged()) {
+            return new Result(current.page(key, descending, filter, changes, changed, 0, Integer.MAX_VALUE), total);
+        }
+        return new Result(current.page(key, descending, filter, changes, changed, pageable.getOffset(),
+                pageable.getPageSize()), total);
+    }
+    
+    /**
+     * Takes in a created or edited product once its transaction commits.
+     */
+    public void track(Long productId, String name, BigDecimal price, int quantity) {
+        afterCommit(() -> change(new Row(productId, name, cents(price, RoundingMode.HALF_UP), quantity, true)));
+    }
+    
+    public void forget(Long productId) {
+        afterCommit(() -> change(new Row(productId, null, 0, 0, false)));
+    }
+    
+    /**
+     * Takes reserved stock off the products once the reserving transaction commits.
+     */
+    public void reserved(Map<Long, Integer> quantities) {
+        afterCommit(() -> quantities.forEach((productId, quantity) -> {
+            Row changed = changes.compute(productId, (id, row) -> {
+                if (row != null) {
+                    return row.live() ? new Row(id, row.name(), row.priceCents(), row.quantity() - quantity, true) : row;
+                }
+                Snapshot replaced = rebuildingFrom;
+                if (replaced != null) {
+                    return replaced.row(id, -quantity);
+                }
+                Snapshot current = snapshot;
+                if (current != null) {
+                    current.adjustStock(id, -quantity);
+                }
+                return null;
+            });
+            Snapshot current = snapshot;
+            if (changed != null && current != null) {
+                current.markChanged(productId);
+            }
+        }));
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.products.catalog-index.rebuild-ms:300000}",
+            initialDelayString = "${app.products.catalog-index.rebuild-ms:300000}")
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        Map<Long, Row> applied = Map.copyOf(changes);
+        rebuildingFrom = snapshot;
+        List<ProductCatalogRow> rows = productRepository.findCatalogRows();
+        InventoryLedger ledger = inventoryLedger.getIfAvailable();
+        Snapshot rebuilt = Snapshot.build(rows, ledger != null && ledger.isReady() ? ledger : null);
+        // Marked before and after publishing, so a write racing the swap is marked in the new snapshot too
+        changes.keySet().forEach(rebuilt::markChanged);
+        snapshot = rebuilt;
+        rebuildingFrom = null;
+        changes.keySet().forEach(rebuilt::markChanged);
+        applied.forEach(changes::remove);
+        log.info("Catalog index rebuilt with {} products in {} ms", rows.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+    
+    private void change(Row row) {
+        changes.put(row.id(), row);
+        Snapshot current = snapshot;
+        if (current != null) {
+            current.markChanged(row.id());
+        }
+    }
+    
+    private static long cents(BigDecimal amount, RoundingMode rounding) {
+        return amount.movePointRight(2).setScale(0, rounding).longValueExact();
+    }
+    
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
+    public record Result(List<Long> ids, long total) {
+    }
+    
+    private record Row(long id, String name, long priceCents, int quantity, boolean live) {
+    }
+    
+    private record Filter(long minCents, long maxCents, Boolean available) {
+        
+        boolean matches(long priceCents, int quantity) {
+            return priceCents >= minCents && priceCents <= maxCents
+                    && (available == null || available == quantity > 0);
+        }
+        
+        boolean pricedAll() {
+            return minCents == Long.MIN_VALUE && maxCents == Long.MAX_VALUE;
+        }
+    }
+    
+    private enum Key {
+        ID, PRICE, NAME;
+        
+        static Key of(Sort sort) {
+            if (sort.isUnsorted()) {
+                return ID;
+            }
+            List<Sort.Order> orders = sort.toList();
+            if (orders.size() != 1 || orders.get(0).isIgnoreCase()) {
+                return null;
+            }
+            return switch (orders.get(0).getProperty()) {
+                case "id" -> ID;
+                case "price" -> PRICE;
+                case "name" -> NAME;
+                default -> null;
+            };
+        }
+    }
+    
+    /**
+     * One array per column, indexed by ordinal in id order, plus the orderings by price and by name and two
+     * bitmaps: products in stock, and products that may have been written since (confirmed against the change set).
+     */
+    private static final class Snapshot {
+        
+        private final long[] ids;
+        private final String[] names;
+        private final long[] prices;
+        private final AtomicIntegerArray quantities;
+        private final AtomicLongArray inStock;
+        private final AtomicLongArray changed;
+        private final int[] byPrice;
+        private final long[] sortedPrices;
+        private final int[] byName;
+        
+        private Snapshot(long[] ids, String[] names, long[] prices, AtomicIntegerArray quantities) {
+            this.ids = ids;
+            this.names = names;
+            this.prices = prices;
+            this.quantities = quantities;
+            int words = (ids.length + 63) >>> 6;
+            this.inStock = new AtomicLongArray(words);
+            this.changed = new AtomicLongArray(words);
+            for (int ordinal = 0; ordinal < ids.length; ordinal++) {
+                if (quantities.get(ordinal) > 0) {
+                    setBit(inStock, ordinal);
+                }
+            }
+            // Ordinals follow ids, so sorting stably by price or name leaves ties in id order
+            this.byPrice = IntStream.range(0, ids.length).boxed()
+                    .sorted(Comparator.comparingLong(ordinal -> prices[ordinal]))
+                    .mapToInt(Integer::intValue).toArray();
+            this.sortedPrices = new long[ids.length];
+            for (int i = 0; i < byPrice.length; i++) {
+                sortedPrices[i] = prices[byPrice[i]];
+            }
+            this.byName = IntStream.range(0, ids.length).boxed()
+                    .sorted(Comparator.comparing(ordinal -> names[ordinal]))
+                    .mapToInt(Integer::intValue).toArray();
+        }
+        
+        static Snapshot build(List<ProductCatalogRow> rows, InventoryLedger ledger) {
+            long[] ids = new long[rows.size()];
+            String[] names = new String[rows.size()];
+            long[] prices = new long[rows.size()];
+            AtomicIntegerArray quantities = new AtomicIntegerArray(rows.size());
+            for (int ordinal = 0; ordinal < ids.length; ordinal++) {
+                ProductCatalogRow row = rows.get(ordinal);
+                ids[ordinal] = row.productId();
+                names[ordinal] = row.name();
+                prices[ordinal] = cents(row.price(), RoundingMode.HALF_UP);
+                // The ledger is ahead of the rows by whatever it has not flushed yet
+                Integer available = ledger != null ? ledger.available(row.productId()) : null;
+                quantities.set(ordinal, available != null ? available : row.quantity());
+            }
+            return new Snapshot(ids, names, prices, quantities);
+        }
+        
+        void markChanged(long productId) {
+            int ordinal = Arrays.binarySearch(ids, productId);
+            if (ordinal >= 0) {
+                setBit(changed, ordinal);
+            }
+        }
+        
+        // The product's row with its stock moved by delta, or null if the snapshot does not hold it
+        Row row(long productId, int delta) {
+            int ordinal = Arrays.binarySearch(ids, productId);
+            if (ordinal < 0) {
+                return null;
+            }
+            return new Row(productId, names[ordinal], prices[ordinal], quantities.get(ordinal) + delta, true);
+        }
+        
+        void adjustStock(long productId, int delta) {
+            int ordinal = Arrays.binarySearch(ids, productId);
+            if (ordinal < 0) {
+                return;
+            }
+            if (quantities.addAndGet(ordinal, delta) > 0) {
+                setBit(inStock, ordinal);
+            } else {
+                clearBit(inStock, ordinal);
+            }
+        }
+        
+        long count(Filter filter, Map<Long, Row> changes) {
+            long count = 0;
+            if (filter.pricedAll()) {
+                // Whole words at a time; only rows flagged as possibly changed are looked at one by one
+                for (int word = 0; word < changed.length(); word++) {
+                    long candidates = candidates(word, filter.available());
+                    long flagged = candidates & changed.get(word);
+                    count += Long.bitCount(candidates & ~flagged);
+                    while (flagged != 0) {
+                        int ordinal = (word << 6) + Long.numberOfTrailingZeros(flagged);
+                        if (!changes.containsKey(ids[ordinal])) {
+                            count++;
+                        }
+                        flagged &= flagged - 1;
+                    }
+                }
+                return count;
+            }
+            for (int i = lowerBound(filter.minCents()); i < sortedPrices.length && sortedPrices[i] <= filter.maxCents(); i++) {
+                if (matches(byPrice[i], filter, changes)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        
+        /**
+         * Walks the snapshot in {@code key} order, merging in the matching changed rows, until the page is full.
+         */
+        List<Long> page(Key key, boolean descending, Filter filter, Map<Long, Row> changes, List<Row> changedRows,
+                        long offset, int size) {
+            Comparator<Row> rowOrder = switch (key) {
+                case ID -> Comparator.comparingLong(Row::id);
+                case PRICE -> Comparator.comparingLong(Row::priceCents).thenComparingLong(Row::id);
+                case NAME -> Comparator.comparing(Row::name).thenComparingLong(Row::id);
+            };
+            changedRows.sort(descending ? rowOrder.reversed() : rowOrder);
+            
+            int[] order = key == Key.PRICE ? byPrice : key == Key.NAME ? byName : null;
+            int from = 0;
+            int to = ids.length;
+            if (key == Key.PRICE) {
+                // Only the price range needs walking
+                from = lowerBound(filter.minCents());
+                to = lowerBound(filter.maxCents() == Long.MAX_VALUE ? Long.MAX_VALUE : filter.maxCents() + 1);
+            }
+            
+            List<Long> page = new ArrayList<>(Math.min(size, 1024));
+            long skipped = 0;
+            int next = 0;
+            int steps = to - from;
+            for (int step = 0; step <= steps && page.size() < size; step++) {
+                int ordinal = -1;
+                if (step < steps) {
+                    int position = descending ? to - 1 - step : from + step;
+                    ordinal = order == null ? position : order[position];
+                    if (!matches(ordinal, filter, changes)) {
+                        continue;
+                    }
+                }
+                // Changed rows that sort before this snapshot row (all of them, past the end) come first
+                while (next < changedRows.size() && page.size() < size
+                        && (ordinal < 0 || precedes(changedRows.get(next), ordinal, key, descending))) {
+                    if (skipped++ >= offset) {
+                        page.add(changedRows.get(next).id());
+                    }
+                    next++;
+                }
+                if (ordinal >= 0 && page.size() < size && skipped++ >= offset) {
+                    page.add(ids[ordinal]);
+                }
+            }
+            return page;
+        }
+        
+        private boolean precedes(Row row, int ordinal, Key key, boolean descending) {
+            int compared = switch (key) {
+                case ID -> 0;
+                case PRICE -> Long.compare(row.priceCents(), prices[ordinal]);
+                case NAME -> row.name().compareTo(names[ordinal]);
+            };
+            if (compared == 0) {
+                compared = Long.compare(row.id(), ids[ordinal]);
+            }
+            return descending ? compared > 0 : compared < 0;
+        }
+        
+        private boolean matches(int ordinal, Filter filter, Map<Long, Row> changes) {
+            return filter.matches(prices[ordinal], quantities.get(ordinal))
+                    && !(testBit(changed, ordinal) && changes.containsKey(ids[ordinal]));
+        }
+        
+        private long candidates(int word, Boolean available) {
+            long live = word == changed.length() - 1 && (ids.length & 63) != 0 ? (1L << (ids.length & 63)) - 1 : -1L;
+            if (available == null) {
+                return live;
+            }
+            return available ? inStock.get(word) : ~inStock.get(word) & live;
+        }
+        
+        // First position in price order whose price is at least minCents
+        private int lowerBound(long minCents) {
+            int low = 0;
+            int high = sortedPrices.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (sortedPrices[middle] < minCents) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+        
+        private static boolean testBit(AtomicLongArray bits, int index) {
+            return (bits.get(index >>> 6) & 1L << index) != 0;
+        }
+        
+        private static void setBit(AtomicLongArray bits, int index) {
+            long mask = 1L << index;
+            bits.getAndUpdate(index >>> 6, word -> word | mask);
+        }
+        
+        private static void clearBit(AtomicLongArray bits, int index) {
+            long mask = 1L << index;
+            bits.getAndUpdate(index >>> 6, word -> word & ~mask);
+        }
+    }
+}
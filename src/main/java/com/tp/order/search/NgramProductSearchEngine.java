@@ -0,0 +1,248 @@
+package com.tp.order.search;
+
+import com.tp.order.dto.ProductDTO;
+import com.tp.order.repository.ProductName;
+import com.tp.order.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * For databases without trigram indexes (H2 in dev): product names are held in an in-memory trigram index,
+ * which resolves the name filter to product ids; the remaining filters, ordering and paging stay in SQL.
+ * <p>
+ * The index is a snapshot of the table, rebuilt at startup and every {@code app.products.search.ngram.rebuild-ms},
+ * plus the writes made through {@link #track}/{@link #forget} since. A name fragment matching more than
+ * {@code max-ids} products falls back to the SQL filter: an id list that long costs more than the scan it saves,
+ * and a term that common makes the scan productive anyway.
+ */
+@Component
+@ConditionalOnProperty(name = "app.products.search.engine", havingValue = "ngram")
+public class NgramProductSearchEngine implements ProductSearchEngine {
+    
+    private static final Logger log = LoggerFactory.getLogger(NgramProductSearchEngine.class);
+    private static final int GRAM = 3;
+    
+    private final ProductRepository productRepository;
+    private final int maxIds;
+    // Written since the snapshot was built; a null name marks a deleted product
+    private final Map<Long, Change> changes = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot;
+    
+    public NgramProductSearchEngine(ProductRepository productRepository,
+                                    @Value("${app.products.search.ngram.max-ids:5000}") int maxIds) {
+        this.productRepository = productRepository;
+        this.maxIds = maxIds;
+    }
+    
+    @Override
+    public Slice<ProductDTO> search(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean available,
+                                    Pageable pageable) {
+        List<Long> ids = name == null ? null : match(name);
+        if (ids == null) {
+            return productRepository.findMatchingProducts(name, minPrice, maxPrice, available, null, pageable);
+        }
+        if (ids.isEmpty()) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+        return productRepository.findMatchingProducts(null, minPrice, maxPrice, available, ids, pageable);
+    }
+    
+    @Override
+    public long count(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean available) {
+        List<Long> ids = name == null ? null : match(name);
+        if (ids == null) {
+            return productRepository.countMatchingProducts(name, minPrice, maxPrice, available, null);
+        }
+        return ids.isEmpty() ? 0 : productRepository.countMatchingProducts(null, minPrice, maxPrice, available, ids);
+    }
+    
+    @Override
+    public void track(Long productId, String name) {
+        afterCommit(() -> changes.put(productId, new Change(normalize(name))));
+    }
+    
+    @Override
+    public void forget(Long productId) {
+        afterCommit(() -> changes.put(productId, Change.DELETED));
+    }
+    
+    /**
+     * Rebuilds the snapshot from the table. Writes committed while it loads stay in the change set, so none are lost.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.products.search.ngram.rebuild-ms:300000}",
+            initialDelayString = "${app.products.search.ngram.rebuild-ms:300000}")
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        Map<Long, Change> applied = Map.copyOf(changes);
+        List<ProductName> products = productRepository.findProductNames();
+        Snapshot rebuilt = Snapshot.build(products);
+        snapshot = rebuilt;
+        applied.forEach(changes::remove);
+        log.info("Product search index rebuilt with {} products and {} trigrams in {} ms", products.size(),
+                rebuilt.postings.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+    
+    /**
+     * Ids of live products whose name contains {@code text}, or null when the index is not built yet or
+     * more than {@code max-ids} products match.
+     */
+    List<Long> match(String text) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        String term = normalize(text);
+        // Terms shorter than a trigram have no posting list to narrow them, so every name is checked
+        int[] candidates = term.length() < GRAM ? null : current.candidates(term);
+        int count = candidates == null ? current.ids.length : candidates.length;
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int ordinal = candidates == null ? i : candidates[i];
+            long id = current.ids[ordinal];
+            if (current.names[ordinal].contains(term) && !changes.containsKey(id)) {
+                ids.add(id);
+                if (ids.size() > maxIds) {
+                    return null;
+                }
+            }
+        }
+        for (Map.Entry<Long, Change> change : changes.entrySet()) {
+            String name = change.getValue().name();
+            if (name != null && name.contains(term)) {
+                ids.add(change.getKey());
+            }
+        }
+        return ids.size() > maxIds ? null : ids;
+    }
+    
+    // Lower-cased like the SQL filter's LOWER(name), so both engines agree on what matches
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+    
+    private static long gram(String text, int at) {
+        return (long) text.charAt(at) << 32 | (long) text.charAt(at + 1) << 16 | text.charAt(at + 2);
+    }
+    
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
+    private record Change(String name) {
+        private static final Change DELETED = new Change(null);
+    }
+    
+    /**
+     * Names by ordinal, and per trigram the ascending ordinals of the names containing it. Posting lists are
+     * plain int arrays: a million names of about twenty characters take some 80 MB, not the gigabytes boxed sets would.
+     */
+    private static final class Snapshot {
+        
+        private final long[] ids;
+        private final String[] names;
+        private final Map<Long, int[]> postings;
+        
+        private Snapshot(long[] ids, String[] names, Map<Long, int[]> postings) {
+            this.ids = ids;
+            this.names = names;
+            this.postings = postings;
+        }
+        
+        static Snapshot build(List<ProductName> products) {
+            long[] ids = new long[products.size()];
+            String[] names = new String[products.size()];
+            Map<Long, IntList> lists = new HashMap<>();
+            for (int ordinal = 0; ordinal < names.length; ordinal++) {
+                ids[ordinal] = products.get(ordinal).productId();
+                names[ordinal] = normalize(products.get(ordinal).name());
+                for (int at = 0; at + GRAM <= names[ordinal].length(); at++) {
+                    lists.computeIfAbsent(gram(names[ordinal], at), g -> new IntList()).add(ordinal);
+                }
+            }
+            Map<Long, int[]> postings = new HashMap<>(lists.size() * 4 / 3 + 1);
+            lists.forEach((gram, list) -> postings.put(gram, list.toArray()));
+            return new Snapshot(ids, names, postings);
+        }
+        
+        /**
+         * Ordinals of names containing every trigram of {@code term}, a superset of the names containing the term.
+         */
+        int[] candidates(String term) {
+            List<int[]> lists = new ArrayList<>();
+            for (int at = 0; at + GRAM <= term.length(); at++) {
+                int[] list = postings.get(gram(term, at));
+                if (list == null) {
+                    return new int[0];
+                }
+                lists.add(list);
+            }
+            // Shortest first: each later list is only probed for what survived the earlier ones
+            lists.sort(Comparator.comparingInt(list -> list.length));
+            int[] result = lists.get(0);
+            for (int i = 1; i < lists.size() && result.length > 0; i++) {
+                int[] next = lists.get(i);
+                int[] kept = new int[result.length];
+                int size = 0;
+                for (int ordinal : result) {
+                    if (Arrays.binarySearch(next, ordinal) >= 0) {
+                        kept[size++] = ordinal;
+                    }
+                }
+                result = Arrays.copyOf(kept, size);
+            }
+            return result;
+        }
+    }
+    
+    private static final class IntList {
+        
+        private int[] values = new int[4];
+        private int size;
+        
+        // Ordinals arrive in ascending order, so a name repeating a trigram is only added once
+        void add(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+        
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
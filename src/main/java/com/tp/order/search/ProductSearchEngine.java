@@ -0,0 +1,34 @@
+package com.tp.order.search;
+
+import com.tp.order.dto.ProductDTO;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.math.BigDecimal;
+
+/**
+ * Product search behind {@code ProductService.searchProducts}. {@code name} matches case-insensitively anywhere
+ * in the product name; a null filter matches every product.
+ */
+public interface ProductSearchEngine {
+    
+    /**
+     * One page of matches in {@code pageable}'s order; whether more follow is known without counting them.
+     */
+    Slice<ProductDTO> search(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean available, Pageable pageable);
+    
+    long count(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean available);
+    
+    /**
+     * Picks up a created or renamed product once its transaction commits. Engines that query the table
+     * directly have nothing to do.
+     */
+    default void track(Long productId, String name) {
+    }
+    
+    /**
+     * Drops a deleted product once its transaction commits.
+     */
+    default void forget(Long productId) {
+    }
+}
@@ -0,0 +1,36 @@
+package com.tp.order.search;
+
+import com.tp.order.dto.ProductDTO;
+import com.tp.order.repository.ProductRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Searches the products table directly. On Postgres the name filter is served by the {@code pg_trgm} GIN index
+ * on {@code LOWER(name)} (see {@code schema-postgresql.sql}); elsewhere it is a scan.
+ */
+@Component
+@ConditionalOnProperty(name = "app.products.search.engine", havingValue = "sql", matchIfMissing = true)
+public class SqlProductSearchEngine implements ProductSearchEngine {
+    
+    private final ProductRepository productRepository;
+    
+    public SqlProductSearchEngine(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+    
+    @Override
+    public Slice<ProductDTO> search(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean available,
+                                    Pageable pageable) {
+        return productRepository.findMatchingProducts(name, minPrice, maxPrice, available, null, pageable);
+    }
+    
+    @Override
+    public long count(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean available) {
+        return productRepository.countMatchingProducts(name, minPrice, maxPrice, available, null);
+    }
+}
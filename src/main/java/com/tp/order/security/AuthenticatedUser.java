@@ -0,0 +1,74 @@
+package com.tp.order.security;
+
+import com.tp.order.entity.User;
+import com.tp.order.entity.UserRole;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal put into the security context by {@link JwtAuthenticationFilter}. Carries the user's id and role
+ * so services can scope queries to the caller without looking the user up again.
+ */
+public record AuthenticatedUser(
+        Long userId,
+        String username,
+        String password,
+        UserRole role
+) implements UserDetails {
+    
+    public static AuthenticatedUser of(User user) {
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getPassword(), user.getRole());
+    }
+    
+    public AuthenticatedUser withoutPassword() {
+        return new AuthenticatedUser(userId, username, null, role);
+    }
+    
+    public boolean isAdmin() {
+        return role == UserRole.ADMIN;
+    }
+    
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+    
+    @Override
+    public String getPassword() {
+        return password;
+    }
+    
+    @Override
+    public String getUsername() {
+        return username;
+    }
+    
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+    
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+    
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+    
+    @Override
+    public String toString() {
+        return "AuthenticatedUser[userId=" + userId + ", username=" + username + ", role=" + role + "]";
+    }
+}
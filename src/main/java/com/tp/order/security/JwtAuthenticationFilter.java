@@ -51,8 +51,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 
                 // Validate token
                 if (jwtUtil.validateToken(jwt, userDetails)) {
+                    // The principal carries user id and role for the services; the password hash stays behind
+                    Object principal = userDetails instanceof AuthenticatedUser user ? user.withoutPassword() : userDetails;
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
+                            principal,
                             null,
                             userDetails.getAuthorities()
                     );
@@ -0,0 +1,238 @@
+package com.tp.order.service;
+
+import com.tp.order.dto.AsyncOrderStatus;
+import com.tp.order.dto.BulkOrderResult;
+import com.tp.order.dto.CreateOrderRequest;
+import com.tp.order.entity.OrderStatus;
+import com.tp.order.entity.User;
+import com.tp.order.exception.OrderQueueClosedException;
+import com.tp.order.exception.OrderQueueFullException;
+import com.tp.order.exception.ResourceNotFoundException;
+import com.tp.order.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Accepts orders onto a bounded in-process queue and places them from a small pool of writer threads.
+ * Each writer drains whatever has queued up, up to {@code app.orders.async.max-group-size}, and commits
+ * it in a single transaction, so request latency no longer includes a database commit.
+ * <p>
+ * Queued orders live in memory only: anything still queued when the process dies is lost, and the
+ * client sees its reference disappear.
+ */
+@Service
+public class AsyncOrderService {
+    
+    private static final Logger log = LoggerFactory.getLogger(AsyncOrderService.class);
+    private final BulkOrderService bulkOrderService;
+    private final UserRepository userRepository;
+    private final BlockingQueue<Submission> queue;
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final int writerCount;
+    private final int maxGroupSize;
+    private final long retentionMillis;
+    private ExecutorService writers;
+    private volatile boolean running;
+    
+    public AsyncOrderService(BulkOrderService bulkOrderService,
+                             UserRepository userRepository,
+                             @Value("${app.orders.async.queue-capacity:4096}") int queueCapacity,
+                             @Value("${app.orders.async.writers:2}") int writerCount,
+                             @Value("${app.orders.async.max-group-size:200}") int maxGroupSize,
+                             @Value("${app.orders.async.retention-seconds:600}") long retentionSeconds) {
+        this.bulkOrderService = bulkOrderService;
+        this.userRepository = userRepository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerCount = writerCount;
+        this.maxGroupSize = maxGroupSize;
+        this.retentionMillis = TimeUnit.SECONDS.toMillis(retentionSeconds);
+    }
+    
+    @PostConstruct
+    void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(writerCount, runnable -> {
+            Thread thread = new Thread(runnable, "order-writer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        for (int i = 0; i < writerCount; i++) {
+            writers.execute(this::drain);
+        }
+    }
+    
+    /**
+     * Queues an order for the current user and returns its reference.
+     *
+     * @throws OrderQueueClosedException if the writers are not running, e.g. while the service shuts down
+     * @throws OrderQueueFullException if the queue is at capacity
+     */
+    public AsyncOrderStatus submit(CreateOrderRequest request) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        String reference = UUID.randomUUID().toString();
+        Ticket ticket = new Ticket(username);
+        tickets.put(reference, ticket);
+        
+        if (!running || writers.isShutdown()) {
+            tickets.remove(reference);
+            throw new OrderQueueClosedException("Order queue is closed while the service shuts down, place the order synchronously");
+        }
+        Submission submission = new Submission(reference, username, request);
+        if (!queue.offer(submission)) {
+            tickets.remove(reference);
+            throw new OrderQueueFullException("Order queue is full, retry later or place the order synchronously");
+        }
+        // shutdown() may have stopped the writers between the check above and the offer; if no writer
+        // took the order by now, none ever will
+        if (!running && queue.remove(submission)) {
+            tickets.remove(reference);
+            throw new OrderQueueClosedException("Order queue is closed while the service shuts down, place the order synchronously");
+        }
+        return AsyncOrderStatus.queued(reference);
+    }
+    
+    public AsyncOrderStatus getStatus(String reference) {
+        Ticket ticket = findTicket(reference);
+        return ticket.result.isDone() ? ticket.result.join() : AsyncOrderStatus.queued(reference);
+    }
+    
+    /**
+     * Completes with the final status once the order has been placed or rejected.
+     */
+    public CompletableFuture<AsyncOrderStatus> awaitStatus(String reference) {
+        return findTicket(reference).result;
+    }
+    
+    private Ticket findTicket(String reference) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        Ticket ticket = tickets.get(reference);
+        if (ticket == null || !ticket.username.equals(username)) {
+            throw new ResourceNotFoundException("Order reference not found: " + reference);
+        }
+        return ticket;
+    }
+    
+    private void drain() {
+        List<Submission> group = new ArrayList<>(maxGroupSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Submission first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, maxGroupSize - 1);
+                commit(group);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+    
+    void commit(List<Submission> group) {
+        try {
+            Map<String, User> users = userRepository.findByUsernameIn(group.stream().map(Submission::username).distinct().toList())
+                    .stream()
+                    .collect(Collectors.toMap(User::getUsername, Function.identity()));
+            
+            List<BulkOrderService.Placement> placements = new ArrayList<>(group.size());
+            for (int i = 0; i < group.size(); i++) {
+                Submission submission = group.get(i);
+                User user = users.get(submission.username());
+                if (user == null) {
+                    complete(submission.reference(), AsyncOrderStatus.rejected(submission.reference(), "User not found: " + submission.username()));
+                } else {
+                    placements.add(new BulkOrderService.Placement(i, user, submission.request()));
+                }
+            }
+            if (placements.isEmpty()) {
+                return;
+            }
+            
+            for (BulkOrderResult result : bulkOrderService.placeGroup(placements)) {
+                String reference = group.get(result.index()).reference();
+                // buildOrder always places orders as PENDING
+                complete(reference, result.orderId() != null
+                        ? AsyncOrderStatus.placed(reference, result.orderId(), OrderStatus.PENDING)
+                        : AsyncOrderStatus.rejected(reference, result.error()));
+            }
+        } catch (RuntimeException ex) {
+            if (group.size() == 1) {
+                log.error("Failed to place queued order {}", group.get(0).reference(), ex);
+                complete(group.get(0).reference(), AsyncOrderStatus.rejected(group.get(0).reference(), "Order could not be committed"));
+                return;
+            }
+            // Orders of other users must not fail with the one that broke the group
+            log.warn("Failed to place group of {} queued orders, placing them one by one", group.size(), ex);
+            group.forEach(submission -> commit(List.of(submission)));
+        }
+    }
+    
+    private void complete(String reference, AsyncOrderStatus status) {
+        Ticket ticket = tickets.get(reference);
+        if (ticket != null) {
+            ticket.completedAt = System.currentTimeMillis();
+            ticket.result.complete(status);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${app.orders.async.eviction-interval-ms:60000}")
+    public void evictCompleted() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        tickets.values().removeIf(ticket -> ticket.result.isDone() && ticket.completedAt < cutoff);
+    }
+    
+    /**
+     * Stops accepting orders and lets the writers drain what is already queued.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writers == null) {
+            return;
+        }
+        writers.shutdown();
+        if (!writers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Order writers did not drain within 30s, {} queued orders dropped", queue.size());
+            writers.shutdownNow();
+        }
+    }
+    
+    record Submission(String reference, String username, CreateOrderRequest request) {
+    }
+    
+    private static final class Ticket {
+        private final String username;
+        private final CompletableFuture<AsyncOrderStatus> result = new CompletableFuture<>();
+        private volatile long completedAt;
+        
+        private Ticket(String username) {
+            this.username = username;
+        }
+    }
+}
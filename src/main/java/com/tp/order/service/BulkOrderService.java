@@ -0,0 +1,213 @@
+package com.tp.order.service;
+
+import com.tp.order.analytics.SalesRollup;
+import com.tp.order.dto.BulkOrderResult;
+import com.tp.order.dto.CreateOrderRequest;
+import com.tp.order.dto.OrderItemRequest;
+import com.tp.order.entity.Order;
+import com.tp.order.entity.Product;
+import com.tp.order.entity.User;
+import com.tp.order.exception.ResourceNotFoundException;
+import com.tp.order.readmodel.OrderReadModel;
+import com.tp.order.repository.OrderRepository;
+import com.tp.order.repository.ProductRepository;
+import com.tp.order.repository.UserRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Service
+public class BulkOrderService {
+    
+    private static final Logger log = LoggerFactory.getLogger(BulkOrderService.class);
+    private final OrderService orderService;
+    private final StockReservationService stockReservationService;
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final ObjectProvider<OrderReadModel> orderReadModel;
+    private final ObjectProvider<SalesRollup> salesRollup;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    
+    public BulkOrderService(OrderService orderService,
+                            StockReservationService stockReservationService,
+                            OrderRepository orderRepository,
+                            ProductRepository productRepository,
+                            UserRepository userRepository,
+                            ObjectProvider<OrderReadModel> orderReadModel,
+                            ObjectProvider<SalesRollup> salesRollup,
+                            Validator validator,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.orders.batch.chunk-size:200}") int chunkSize) {
+        this.orderService = orderService;
+        this.stockReservationService = stockReservationService;
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.orderReadModel = orderReadModel;
+        this.salesRollup = salesRollup;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+    
+    /**
+     * Places a stream of orders for one user. Requests are read and validated
+     * {@code app.orders.batch.chunk-size} at a time and each chunk is committed before the next one
+     * is read, so the batch is never held in memory as a whole. Every result is handed to
+     * {@code resultSink} as soon as it is known.
+     */
+    public void placeOrders(String username, Iterator<CreateOrderRequest> requests,
+                            Consumer<BulkOrderResult> resultSink) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
+        
+        int index = 0;
+        int placed = 0;
+        List<Placement> chunk = new ArrayList<>(chunkSize);
+        while (requests.hasNext()) {
+            CreateOrderRequest request = requests.next();
+            Set<ConstraintViolation<CreateOrderRequest>> violations = validator.validate(request);
+            if (violations.isEmpty()) {
+                chunk.add(new Placement(index, user, request));
+            } else {
+                resultSink.accept(BulkOrderResult.rejected(index, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .collect(Collectors.joining("; "))));
+            }
+            index++;
+            if (chunk.size() == chunkSize) {
+                commitChunk(chunk).forEach(resultSink);
+                placed += chunk.size();
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            commitChunk(chunk).forEach(resultSink);
+            placed += chunk.size();
+        }
+        log.info("Placed batch of {} orders ({} valid) in chunks of {}", index, placed, chunkSize);
+    }
+    
+    /**
+     * Places orders that may belong to different users in one transaction. Used by the async writers
+     * to group-commit whatever has queued up since their last commit.
+     */
+    public List<BulkOrderResult> placeGroup(List<Placement> placements) {
+        return commitChunk(placements);
+    }
+    
+    private Map<Long, Product> loadProducts(List<Placement> placements) {
+        Set<Long> productIds = new HashSet<>();
+        placements.forEach(placement -> placement.request().items().forEach(item -> productIds.add(item.productId())));
+        Map<Long, Product> productsById = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            if (!product.getDeleted()) {
+                productsById.put(product.getId(), product);
+            }
+        }
+        return productsById;
+    }
+    
+    private List<BulkOrderResult> commitChunk(List<Placement> chunk) {
+        try {
+            return transactionTemplate.execute(status -> placeChunk(chunk));
+        } catch (RuntimeException ex) {
+            if (chunk.size() == 1) {
+                log.error("Failed to commit order at index {}", chunk.get(0).index(), ex);
+                return List.of(BulkOrderResult.rejected(chunk.get(0).index(), "Order could not be committed"));
+            }
+            // One bad order must not take the rest of the chunk down with it
+            log.warn("Failed to commit chunk of {} orders starting at index {}, retrying them one by one",
+                    chunk.size(), chunk.get(0).index(), ex);
+            List<BulkOrderResult> results = new ArrayList<>(chunk.size());
+            chunk.forEach(placement -> results.addAll(commitChunk(List.of(placement))));
+            return results;
+        }
+    }
+    
+    private List<BulkOrderResult> placeChunk(List<Placement> chunk) {
+        List<BulkOrderResult> results = new ArrayList<>(chunk.size());
+        // Loaded in the chunk's own transaction so prices and deletions are current for every chunk
+        Map<Long, Product> productsById = loadProducts(chunk);
+        
+        List<Placement> placeable = new ArrayList<>(chunk.size());
+        for (Placement placement : chunk) {
+            List<Long> unknown = placement.request().items().stream()
+                    .map(OrderItemRequest::productId)
+                    .filter(productId -> !productsById.containsKey(productId))
+                    .distinct()
+                    .toList();
+            if (unknown.isEmpty()) {
+                placeable.add(placement);
+            } else {
+                results.add(BulkOrderResult.rejected(placement.index(), "Product not found: " + unknown));
+            }
+        }
+        
+        // Reserve the whole chunk's demand at once; only if that fails fall back to order by order
+        Map<Long, Integer> demand = new LinkedHashMap<>();
+        placeable.forEach(placement -> OrderService.aggregateQuantities(placement.request().items())
+                .forEach((productId, quantity) -> demand.merge(productId, quantity, Integer::sum)));
+        
+        List<Placement> reserved;
+        if (demand.isEmpty() || stockReservationService.reserve(demand).isEmpty()) {
+            reserved = placeable;
+        } else {
+            reserved = new ArrayList<>(placeable.size());
+            for (Placement placement : placeable) {
+                List<Long> rejected = stockReservationService.reserve(OrderService.aggregateQuantities(placement.request().items()));
+                if (rejected.isEmpty()) {
+                    reserved.add(placement);
+                } else {
+                    results.add(BulkOrderResult.rejected(placement.index(), "Insufficient stock for products: " + rejected));
+                }
+            }
+        }
+        
+        List<Order> orders = new ArrayList<>(reserved.size());
+        for (Placement placement : reserved) {
+            List<Product> products = placement.request().items().stream()
+                    .map(item -> productsById.get(item.productId()))
+                    .distinct()
+                    .toList();
+            orders.add(orderService.buildOrder(placement.user(), placement.request().items(), products));
+        }
+        orderRepository.saveAll(orders);
+        orderReadModel.ifAvailable(readModel -> readModel.record(orders));
+        salesRollup.ifAvailable(rollup -> rollup.record(orders));
+        orderRepository.flush();
+        
+        for (int i = 0; i < reserved.size(); i++) {
+            results.add(BulkOrderResult.created(reserved.get(i).index(), orders.get(i).getId()));
+        }
+        results.sort(Comparator.comparing(BulkOrderResult::index));
+        return results;
+    }
+    
+    /**
+     * One order of a chunk together with the user it is placed for.
+     */
+    public record Placement(Integer index, User user, CreateOrderRequest request) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.tp.order.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs a product read-modify-write in its own transaction and re-runs it when another writer
+ * bumped the product's version in between. Backoff is exponential with full jitter and capped at
+ * {@code app.products.optimistic-retry.max-backoff-ms}.
+ * <p>
+ * Conflicts and retries are counted per product as {@code product.optimistic.conflicts} and
+ * {@code product.optimistic.retries}; attempts that give up increment {@code product.optimistic.exhausted}.
+ */
+@Component
+public class OptimisticLockRetry {
+    
+    private static final Logger log = LoggerFactory.getLogger(OptimisticLockRetry.class);
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    
+    public OptimisticLockRetry(PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.products.optimistic-retry.max-attempts:4}") int maxAttempts,
+                               @Value("${app.products.optimistic-retry.initial-backoff-ms:10}") long initialBackoffMillis,
+                               @Value("${app.products.optimistic-retry.max-backoff-ms:200}") long maxBackoffMillis) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+    
+    /**
+     * Executes {@code action} for {@code productId}, retrying on optimistic lock conflicts.
+     * <p>
+     * Inside an already active transaction the action runs once: the stale entity lives in the caller's
+     * persistence context, so only the caller can retry meaningfully.
+     *
+     * @throws OptimisticLockingFailureException if every attempt conflicted
+     */
+    public <T> T execute(Long productId, String operation, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        
+        String product = String.valueOf(productId);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException ex) {
+                meterRegistry.counter("product.optimistic.conflicts", "product", product, "operation", operation).increment();
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("product.optimistic.exhausted", "product", product, "operation", operation).increment();
+                    log.warn("Giving up {} of product {} after {} conflicting attempts", operation, productId, attempt);
+                    throw ex;
+                }
+                meterRegistry.counter("product.optimistic.retries", "product", product, "operation", operation).increment();
+                log.debug("Version conflict on {} of product {}, attempt {} of {}", operation, productId, attempt, maxAttempts);
+                backoff(attempt);
+            }
+        }
+    }
+    
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off from a version conflict", ex);
+        }
+    }
+}
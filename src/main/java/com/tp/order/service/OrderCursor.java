@@ -0,0 +1,34 @@
+package com.tp.order.service;
+
+import com.tp.order.dto.OrderDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Seek position in the newest-first order listing: the {@code (createdAt, id)} of the last order already
+ * returned. Handed to clients base64url encoded so they treat it as opaque.
+ */
+record OrderCursor(LocalDateTime createdAt, Long id) {
+    
+    static OrderCursor after(OrderDTO order) {
+        return new OrderCursor(order.createdAt(), order.id());
+    }
+    
+    String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    static OrderCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new OrderCursor(LocalDateTime.parse(raw.substring(0, separator)), Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
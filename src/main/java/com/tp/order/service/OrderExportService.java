@@ -0,0 +1,138 @@
+package com.tp.order.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tp.order.dto.ExportFormat;
+import com.tp.order.dto.OrderDTO;
+import com.tp.order.dto.OrderExportFilter;
+import com.tp.order.repository.OrderLineRow;
+import com.tp.order.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Streams orders for bulk extraction. Rows come from one forward-only cursor, are written as they are read
+ * and are never managed by the persistence context, so heap use does not grow with the number of orders and
+ * the whole export holds a single connection.
+ */
+@Service
+public class OrderExportService {
+    
+    private static final Logger log = LoggerFactory.getLogger(OrderExportService.class);
+    private static final String CSV_HEADER = "order_id,user_id,username,status,order_total,created_at,updated_at," +
+            "item_id,product_id,product_name,quantity,unit_price,discount_applied,total_price";
+    
+    private final OrderRepository orderRepository;
+    private final ObjectMapper objectMapper;
+    
+    public OrderExportService(OrderRepository orderRepository, ObjectMapper objectMapper) {
+        this.orderRepository = orderRepository;
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * Writes every order matching {@code filter} to {@code out}, ordered by id. Does not close {@code out}.
+     *
+     * @return the number of orders written
+     */
+    @Transactional(readOnly = true)
+    public long export(OrderExportFilter filter, ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        long orders;
+        try (Stream<OrderLineRow> rows = orderRepository.streamLineRows(filter.from(), filter.to(), filter.status())) {
+            orders = switch (format) {
+                case NDJSON -> writeNdjson(rows.iterator(), writer);
+                case CSV -> writeCsv(rows.iterator(), writer);
+            };
+        }
+        writer.flush();
+        log.info("Exported {} orders as {} for {}", orders, format, filter);
+        return orders;
+    }
+    
+    // Rows arrive ordered by order id, so an order is complete as soon as the next one starts
+    private long writeNdjson(Iterator<OrderLineRow> rows, Writer writer) throws IOException {
+        long orders = 0;
+        List<OrderLineRow> lines = new ArrayList<>();
+        while (rows.hasNext()) {
+            OrderLineRow row = rows.next();
+            if (!lines.isEmpty() && !lines.get(0).orderId().equals(row.orderId())) {
+                writeOrder(lines, writer);
+                orders++;
+                lines.clear();
+            }
+            lines.add(row);
+        }
+        if (!lines.isEmpty()) {
+            writeOrder(lines, writer);
+            orders++;
+        }
+        return orders;
+    }
+    
+    private void writeOrder(List<OrderLineRow> lines, Writer writer) throws IOException {
+        OrderDTO order = OrderLineRow.assemble(lines).values().iterator().next();
+        writer.write(objectMapper.writeValueAsString(order));
+        writer.write('\n');
+    }
+    
+    private long writeCsv(Iterator<OrderLineRow> rows, Writer writer) throws IOException {
+        long orders = 0;
+        Long previousOrderId = null;
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        while (rows.hasNext()) {
+            OrderLineRow row = rows.next();
+            if (!row.orderId().equals(previousOrderId)) {
+                orders++;
+                previousOrderId = row.orderId();
+            }
+            writer.write(String.join(",",
+                    String.valueOf(row.orderId()),
+                    String.valueOf(row.userId()),
+                    csv(row.username()),
+                    row.status().name(),
+                    plain(row.orderTotal()),
+                    Objects.toString(row.createdAt(), ""),
+                    Objects.toString(row.updatedAt(), ""),
+                    Objects.toString(row.itemId(), ""),
+                    Objects.toString(row.productId(), ""),
+                    csv(row.productName()),
+                    Objects.toString(row.quantity(), ""),
+                    plain(row.unitPrice()),
+                    plain(row.discountApplied()),
+                    plain(row.totalPrice())));
+            writer.write('\n');
+        }
+        return orders;
+    }
+    
+    private static String plain(BigDecimal value) {
+        return value == null ? "" : value.toPlainString();
+    }
+    
+    // RFC 4180: quote fields holding a separator, quote or line break and double embedded quotes
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -3,17 +3,28 @@ import com.tp.order.entity.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.tp.order.analytics.SalesRollup;
+import com.tp.order.cache.OrderDetailCache;
 import com.tp.order.dto.CreateOrderRequest;
+import com.tp.order.dto.CursorPage;
+import com.tp.order.dto.FieldSelection;
+import com.tp.order.dto.ListEnvelope;
 import com.tp.order.dto.OrderDTO;
 import com.tp.order.dto.OrderItemDTO;
 import com.tp.order.dto.OrderItemRequest;
+import com.tp.order.dto.ReadModelRebuildResult;
 import com.tp.order.entity.*;
 import com.tp.order.exception.InsufficientStockException;
 import com.tp.order.exception.ResourceNotFoundException;
+import com.tp.order.pricing.OrderPricingEngine;
+import com.tp.order.readmodel.OrderReadModel;
+import com.tp.order.repository.OrderLineRow;
 import com.tp.order.repository.OrderRepository;
 import com.tp.order.repository.ProductRepository;
 import com.tp.order.repository.UserRepository;
-import com.tp.order.strategy.DiscountCalculator;
+import com.tp.order.security.AuthenticatedUser;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
@@ -21,146 +32,301 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class OrderService {
     
     private static final Logger log = LoggerFactory.getLogger(OrderService.class);
+    public static final List<String> LISTING_FIELDS = OrderRepository.FIELDS;
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
-    private final DiscountCalculator discountCalculator;
-    public OrderService(OrderRepository orderRepository, ProductRepository productRepository, UserRepository userRepository, DiscountCalculator discountCalculator) {
+    private final OrderPricingEngine pricingEngine;
+    private final StockReservationService stockReservationService;
+    private final ObjectProvider<OrderReadModel> orderReadModel;
+    private final ObjectProvider<OrderDetailCache> orderDetailCache;
+    private final ObjectProvider<SalesRollup> salesRollup;
+    public OrderService(OrderRepository orderRepository, ProductRepository productRepository, UserRepository userRepository, OrderPricingEngine pricingEngine, StockReservationService stockReservationService, ObjectProvider<OrderReadModel> orderReadModel, ObjectProvider<OrderDetailCache> orderDetailCache, ObjectProvider<SalesRollup> salesRollup) {
         this.orderRepository = orderRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
-        this.discountCalculator = discountCalculator;
+        this.pricingEngine = pricingEngine;
+        this.stockReservationService = stockReservationService;
+        this.orderReadModel = orderReadModel;
+        this.orderDetailCache = orderDetailCache;
+        this.salesRollup = salesRollup;
     }
     
     @Transactional
     public OrderDTO createOrder(CreateOrderRequest request) {
         log.info("inside creating new order service>>>>>>");
         
-        // Get current authenticated user
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
-        
-        Order order = Order.builder().user(user).status(OrderStatus.PENDING).build();
-        
-        BigDecimal subtotal = BigDecimal.ZERO;
-        List<Long> productIds=request.items().stream().map(OrderItemRequest::productId).toList();
-        List<Product> products = productRepository.findAllById(productIds);
-        checkProductAvailability(products, request.items());
+        AuthenticatedUser principal = currentUser();
         
-        // Process each order item
-        for (var itemRequest : request.items()) {
-            
-        	Product product = products.stream().filter(p -> p.getId().equals(itemRequest.productId())).findFirst()
-					.get();
-			BigDecimal itemTotal = product.getPrice().multiply(BigDecimal.valueOf(itemRequest.quantity()));
-			subtotal = subtotal.add(itemTotal);
-
-			OrderItem orderItem = OrderItem.builder().product(product).quantity(itemRequest.quantity())
-					.unitPrice(product.getPrice()).discountApplied(BigDecimal.ZERO).totalPrice(itemTotal).build();
-
-			order.addItem(orderItem);
-            
-            // Decrease product stock
-            product.setQuantity(product.getQuantity() - itemRequest.quantity());
-            productRepository.save(product);
+        // Reserve stock for every line in one batched round trip before loading anything
+        Map<Long, Integer> requestedQuantities = aggregateQuantities(request.items());
+        List<Long> rejectedProductIds = stockReservationService.reserve(requestedQuantities);
+        if (!rejectedProductIds.isEmpty()) {
+            throw new InsufficientStockException("Insufficient stock for products: " + rejectedProductIds);
         }
         
-        log.info("Initial Order Total = " + subtotal);
-        BigDecimal totalDiscount = discountCalculator.calculateDiscount(user.getRole(), subtotal);
-        log.info("totalDiscount = " + totalDiscount);
-        BigDecimal orderTotal = subtotal.subtract(totalDiscount);
-        log.info("orderTotal  = " + orderTotal);
-        
-        if (totalDiscount.compareTo(BigDecimal.ZERO) > 0) {
-            for (OrderItem item : order.getItems()) {
-            	log.info("Order Product id = " + item.getProduct().getId() + " totalDiscount  = " + totalDiscount);
-
-				BigDecimal itemDiscount = totalDiscount.multiply(item.getTotalPrice()).divide(subtotal, 2,
-						RoundingMode.HALF_UP);
-
-				log.info("Item Total Amount = " + item.getTotalPrice() + "itemDiscount  = " + itemDiscount);
-
-				item.setDiscountApplied(itemDiscount);
-				item.setTotalPrice(item.getTotalPrice().subtract(itemDiscount));
-            }
-        }
-        
-        order.setOrderTotal(orderTotal);
+        List<Product> products = productRepository.findAllById(List.copyOf(requestedQuantities.keySet()));
+        // The principal carries everything an order needs from the users row, so its user stays an unloaded reference
+        Order order = buildOrder(userRepository.getReferenceById(principal.userId()), principal.role(), request.items(), products);
         
         Order savedOrder = orderRepository.save(order);
+        orderReadModel.ifAvailable(readModel -> readModel.record(savedOrder, principal.username()));
+        salesRollup.ifAvailable(rollup -> rollup.record(List.of(savedOrder)));
         log.info("Order created successfully with id: {}", savedOrder.getId());
         
-        return mapToDTO(savedOrder);
+        return mapToDTO(savedOrder, principal.username());
     }
     
     @Transactional(readOnly = true)
     public OrderDTO getOrderById(Long id) {
         log.debug("Fetching the order details with id: {}", id);
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found for input id: " + id));
+        AuthenticatedUser principal = currentUser();
         
-        // Check if user has permission to view this order
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
+        // Cached entries are shared between users, so ownership is checked on every hit instead of in the query
+        OrderDetailCache cache = orderDetailCache.getIfAvailable();
+        if (cache != null) {
+            OrderDTO order = cache.get(id, this::loadOrder);
+            checkCanView(principal, order.userId(), id);
+            return order;
+        }
         
-        if (!order.getUser().getUsername().equals(username) && 
-            !authentication.getAuthorities().stream()
-                    .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))) {
-            throw new ResourceNotFoundException("Order not found for input id: " + id);
+        // Served from the read model when it has the order; orders placed before it was enabled fall through
+        OrderReadModel readModel = orderReadModel.getIfAvailable();
+        if (readModel != null) {
+            Optional<OrderDTO> view = readModel.find(id);
+            if (view.isPresent()) {
+                checkCanView(principal, view.get().userId(), id);
+                return view.get();
+            }
         }
         
-        return mapToDTO(order);
+        // Other users' orders look exactly like missing ones
+        Optional<OrderDTO> order = principal.isAdmin()
+                ? orderRepository.findById(id).map(this::mapToDTO)
+                : orderRepository.findByIdAndUserId(id, principal.userId()).map(owned -> mapToDTO(owned, principal.username()));
+        return order.orElseThrow(() -> new ResourceNotFoundException("Order not found for input id: " + id));
+    }
+    
+    // Cache loader: the order regardless of owner, from the read model if it has it, else in one projection query
+    private OrderDTO loadOrder(Long id) {
+        OrderReadModel readModel = orderReadModel.getIfAvailable();
+        if (readModel != null) {
+            Optional<OrderDTO> view = readModel.find(id);
+            if (view.isPresent()) {
+                return view.get();
+            }
+        }
+        OrderDTO order = OrderLineRow.assemble(orderRepository.findLineRowsByIdIn(List.of(id))).get(id);
+        if (order == null) {
+            throw new ResourceNotFoundException("Order not found for input id: " + id);
+        }
+        return order;
     }
     
     @Transactional(readOnly = true)
     public Page<OrderDTO> getMyOrders(Pageable pageable) {
         log.debug("Fetching order details for current user");
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
+        AuthenticatedUser principal = currentUser();
         
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
+        OrderReadModel readModel = orderReadModel.getIfAvailable();
+        if (readModel != null) {
+            return readModel.findByUsername(principal.username(), pageable);
+        }
         
-        return orderRepository.findByUser(user, pageable)
-                .map(this::mapToDTO);
+        return fetchPage(orderRepository.findOrderIdsByUserId(principal.userId(), pageable));
     }
     
     @Transactional(readOnly = true)
     public Page<OrderDTO> getAllOrders(Pageable pageable) {
         log.debug("Fetching all the orders::::::::::");
-        return orderRepository.findAll(pageable)
-                .map(this::mapToDTO);
+        OrderReadModel readModel = orderReadModel.getIfAvailable();
+        if (readModel != null) {
+            return readModel.findAll(pageable);
+        }
+        return fetchPage(orderRepository.findOrderIds(pageable));
     }
     
-    private void checkProductAvailability(List<Product> products, List<OrderItemRequest> orderItems) {
-		for (OrderItemRequest item : orderItems) {
-			Product product = products.stream().filter(p -> p.getId().equals(item.productId())).findFirst()
-					.orElseThrow(() -> new InsufficientStockException("Product not found: " + item.productId()));
-
-			if (product.getDeleted()) {
-				throw new InsufficientStockException(String.valueOf(product.getId()));
-			}
-
-			if (product.getQuantity() < item.quantity() && product.getDeleted()) {
-				throw new InsufficientStockException(String.valueOf(item.quantity()));
-			}
-		}
-	}
-
+    /**
+     * Sparse variant of {@link #getMyOrders(Pageable)}: only the selected fields, in a {@link ListEnvelope}
+     * whose {@code next} is the following page number.
+     */
+    @Transactional(readOnly = true)
+    public ListEnvelope<Map<String, Object>> getMyOrders(Pageable pageable, FieldSelection fields) {
+        AuthenticatedUser principal = currentUser();
+        OrderReadModel readModel = orderReadModel.getIfAvailable();
+        if (readModel != null) {
+            return envelope(readModel.findByUsername(principal.username(), pageable).map(order -> select(order, fields)));
+        }
+        return fetchFields(orderRepository.findOrderIdsByUserId(principal.userId(), pageable), fields);
+    }
+    
+    /**
+     * Sparse variant of {@link #getAllOrders(Pageable)}.
+     */
+    @Transactional(readOnly = true)
+    public ListEnvelope<Map<String, Object>> getAllOrders(Pageable pageable, FieldSelection fields) {
+        OrderReadModel readModel = orderReadModel.getIfAvailable();
+        if (readModel != null) {
+            return envelope(readModel.findAll(pageable).map(order -> select(order, fields)));
+        }
+        return fetchFields(orderRepository.findOrderIds(pageable), fields);
+    }
+    
+    /**
+     * Keyset variant of {@link #getMyOrders(Pageable)}: newest first, starting after {@code cursor}
+     * (null for the first page), without a count query.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderDTO> getMyOrders(String cursor, int size) {
+        Long userId = currentUser().userId();
+        OrderCursor after = cursor == null ? null : OrderCursor.decode(cursor);
+        Limit limit = Limit.of(size + 1);
+        List<Long> orderIds = after == null
+                ? orderRepository.findLatestOrderIdsByUserId(userId, limit)
+                : orderRepository.findOrderIdsByUserIdBefore(userId, after.createdAt(), after.id(), limit);
+        return fetchSlice(orderIds, size);
+    }
+    
+    /**
+     * Keyset variant of {@link #getAllOrders(Pageable)}.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderDTO> getAllOrders(String cursor, int size) {
+        OrderCursor after = cursor == null ? null : OrderCursor.decode(cursor);
+        Limit limit = Limit.of(size + 1);
+        List<Long> orderIds = after == null
+                ? orderRepository.findLatestOrderIds(limit)
+                : orderRepository.findOrderIdsBefore(after.createdAt(), after.id(), limit);
+        return fetchSlice(orderIds, size);
+    }
+    
+    // One id past the page size is fetched only to learn whether another page follows
+    private CursorPage<OrderDTO> fetchSlice(List<Long> orderIds, int size) {
+        List<Long> pageIds = orderIds.size() > size ? orderIds.subList(0, size) : orderIds;
+        if (pageIds.isEmpty()) {
+            return new CursorPage<>(List.of(), null);
+        }
+        Map<Long, OrderDTO> ordersById = OrderLineRow.assemble(orderRepository.findLineRowsByIdIn(pageIds));
+        List<OrderDTO> orders = pageIds.stream().map(ordersById::get).toList();
+        String next = orderIds.size() > size ? OrderCursor.after(orders.get(orders.size() - 1)).encode() : null;
+        return new CursorPage<>(orders, next);
+    }
+    
+    // Projects the orders of an id page with user, items and products in one query, keeping the page's order.
+    // Nothing is loaded into the persistence context, so there is no snapshot to dirty-check on the way out.
+    private Page<OrderDTO> fetchPage(Page<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return orderIds.map(id -> null);
+        }
+        Map<Long, OrderDTO> ordersById = OrderLineRow.assemble(orderRepository.findLineRowsByIdIn(orderIds.getContent()));
+        return orderIds.map(ordersById::get);
+    }
+    
+    // Lines need the full projection; without them only the selected order columns are read
+    private ListEnvelope<Map<String, Object>> fetchFields(Page<Long> orderIds, FieldSelection fields) {
+        if (fields.includes("items")) {
+            return envelope(fetchPage(orderIds).map(order -> select(order, fields)));
+        }
+        Map<Long, Map<String, Object>> rowsById = new LinkedHashMap<>();
+        for (Map<String, Object> row : orderRepository.findOrderFields(fields, orderIds.getContent())) {
+            rowsById.put((Long) (fields.includes("id") ? row.get("id") : row.remove("id")), row);
+        }
+        return envelope(orderIds.map(rowsById::get));
+    }
+    
+    private static Map<String, Object> select(OrderDTO order, FieldSelection fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : fields.names()) {
+            row.put(field, switch (field) {
+                case "id" -> order.id();
+                case "userId" -> order.userId();
+                case "username" -> order.username();
+                case "orderTotal" -> order.orderTotal();
+                case "status" -> order.status();
+                case "createdAt" -> order.createdAt();
+                case "updatedAt" -> order.updatedAt();
+                case "items" -> order.items();
+                default -> throw new IllegalArgumentException("Unknown order field: " + field);
+            });
+        }
+        return row;
+    }
+    
+    private static <T> ListEnvelope<T> envelope(Page<T> page) {
+        return new ListEnvelope<>(page.getContent(), page.hasNext() ? String.valueOf(page.getNumber() + 1) : null,
+                page.getTotalElements());
+    }
+    
+    /**
+     * Re-renders the whole order read model from the orders tables.
+     */
+    public ReadModelRebuildResult rebuildReadModel() {
+        OrderReadModel readModel = orderReadModel.getIfAvailable();
+        if (readModel == null) {
+            throw new ResourceNotFoundException("Order read model is not enabled");
+        }
+        return readModel.rebuild();
+    }
+    
+    // Check if user has permission to view this order
+    private void checkCanView(AuthenticatedUser principal, Long ownerId, Long orderId) {
+        if (!principal.isAdmin() && !ownerId.equals(principal.userId())) {
+            throw new ResourceNotFoundException("Order not found for input id: " + orderId);
+        }
+    }
+    
+    /**
+     * The caller as put into the security context by the JWT filter. Other authentication paths carry only a
+     * username, in which case the user is looked up once.
+     */
+    private AuthenticatedUser currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal;
+        }
+        String username = authentication.getName();
+        return userRepository.findByUsername(username)
+                .map(AuthenticatedUser::of)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
+    }
+    
+    /**
+     * Prices the requested lines against already loaded products and applies the user's discount.
+     * Stock must have been reserved by the caller.
+     */
+    public Order buildOrder(User user, List<OrderItemRequest> items, List<Product> products) {
+        return buildOrder(user, user.getRole(), items, products);
+    }
+    
+    private Order buildOrder(User user, UserRole role, List<OrderItemRequest> items, List<Product> products) {
+        Order order = pricingEngine.price(user, role, items, products);
+        order.setStatus(OrderStatus.PENDING);
+        return order;
+    }
+    
+    static Map<Long, Integer> aggregateQuantities(List<OrderItemRequest> items) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItemRequest item : items) {
+            quantities.merge(item.productId(), item.quantity(), Integer::sum);
+        }
+        return quantities;
+    }
     
     private OrderDTO mapToDTO(Order order) {
+        return mapToDTO(order, order.getUser().getUsername());
+    }
+    
+    // Reading only the id of a lazy user leaves it uninitialized, so a known username saves its select
+    private OrderDTO mapToDTO(Order order, String username) {
         List<OrderItemDTO> itemDTOs = order.getItems().stream()
                 .map(item -> new OrderItemDTO(
                         item.getId(),
@@ -176,7 +342,7 @@ public class OrderService {
         return new OrderDTO(
                 order.getId(),
                 order.getUser().getId(),
-                order.getUser().getUsername(),
+                username,
                 itemDTOs,
                 order.getOrderTotal(),
                 order.getStatus().name(),
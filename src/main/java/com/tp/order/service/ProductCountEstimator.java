@@ -0,0 +1,77 @@
+package com.tp.order.service;
+
+import com.tp.order.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Approximate product listing totals for {@code count=estimate}. Each distinct filter is counted once
+ * on first use and then recounted in the background every {@code app.products.count-estimate.refresh-ms};
+ * filters nobody asked for since the previous refresh are dropped instead.
+ * <p>
+ * Postgres' {@code reltuples} would be cheaper still, but it includes soft-deleted rows and says
+ * nothing about filtered searches.
+ */
+@Component
+public class ProductCountEstimator {
+    
+    private final ProductRepository productRepository;
+    private final int maxEntries;
+    private final Map<Filter, CachedCount> counts = new ConcurrentHashMap<>();
+    
+    public ProductCountEstimator(ProductRepository productRepository,
+                                 @Value("${app.products.count-estimate.max-entries:1000}") int maxEntries) {
+        this.productRepository = productRepository;
+        this.maxEntries = maxEntries;
+    }
+    
+    public long estimate(Filter filter) {
+        CachedCount cached = counts.get(filter);
+        if (cached != null) {
+            if (!cached.requested()) {
+                counts.replace(filter, cached, new CachedCount(cached.count(), true));
+            }
+            return cached.count();
+        }
+        long count = count(filter);
+        // Past the cap, unusual filters are counted exactly rather than evicting popular ones
+        if (counts.size() < maxEntries) {
+            counts.putIfAbsent(filter, new CachedCount(count, true));
+        }
+        return count;
+    }
+    
+    @Scheduled(fixedDelayString = "${app.products.count-estimate.refresh-ms:60000}")
+    public void refresh() {
+        counts.forEach((filter, cached) -> {
+            if (cached.requested()) {
+                counts.replace(filter, cached, new CachedCount(count(filter), false));
+            } else {
+                counts.remove(filter, cached);
+            }
+        });
+    }
+    
+    private long count(Filter filter) {
+        return productRepository.countSearchResults(filter.name(), filter.minPrice(), filter.maxPrice(), filter.available());
+    }
+    
+    public record Filter(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean available) {
+        
+        public static final Filter NONE = new Filter(null, null, null, null);
+        
+        // The search matches names case-insensitively, so differently cased names share a count
+        public Filter {
+            name = name == null ? null : name.toLowerCase(Locale.ROOT);
+        }
+    }
+    
+    private record CachedCount(long count, boolean requested) {
+    }
+}
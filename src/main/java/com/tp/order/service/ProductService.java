@@ -2,27 +2,66 @@ package com.tp.order.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.tp.order.cache.ProductPageCache;
+import com.tp.order.dto.CountMode;
+import com.tp.order.dto.FieldSelection;
+import com.tp.order.dto.ListEnvelope;
 import com.tp.order.dto.ProductDTO;
 import com.tp.order.entity.Product;
 import com.tp.order.exception.ResourceNotFoundException;
+import com.tp.order.inventory.InventoryLedger;
 import com.tp.order.repository.ProductRepository;
+import com.tp.order.repository.ProductStockLevel;
+import com.tp.order.search.CatalogIndex;
+import com.tp.order.search.ProductSearchEngine;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
     
     private static final Logger log = LoggerFactory.getLogger(ProductService.class);
+    private static final int MAX_STOCK_SHARDS = 128;
+    public static final List<String> LISTING_FIELDS = ProductRepository.FIELDS;
     private final ProductRepository productRepository;
+    private final ObjectProvider<InventoryLedger> inventoryLedger;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final ProductCountEstimator countEstimator;
+    private final ProductSearchEngine productSearchEngine;
+    private final ObjectProvider<CatalogIndex> catalogIndex;
+    private final ObjectProvider<ProductPageCache> productPageCache;
     
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ObjectProvider<InventoryLedger> inventoryLedger,
+                          OptimisticLockRetry optimisticLockRetry, ProductCountEstimator countEstimator,
+                          ProductSearchEngine productSearchEngine, ObjectProvider<CatalogIndex> catalogIndex,
+                          ObjectProvider<ProductPageCache> productPageCache) {
         this.productRepository = productRepository;
+        this.inventoryLedger = inventoryLedger;
+        this.optimisticLockRetry = optimisticLockRetry;
+        this.countEstimator = countEstimator;
+        this.productSearchEngine = productSearchEngine;
+        this.catalogIndex = catalogIndex;
+        this.productPageCache = productPageCache;
     }
     
     @Transactional(readOnly = true)
@@ -42,8 +81,21 @@ public class ProductService {
     @Transactional(readOnly = true)
     public Page<ProductDTO> getAllProducts(Pageable pageable) {
         log.debug("Fetching all the products ::::::::::");
-        return productRepository.findByDeletedFalse(pageable)
-                .map(this::mapToDTO);
+        return cachedPage("all", () -> productRepository.findProductDTOs(pageable).map(ledgerStock()),
+                pageable, CountMode.EXACT);
+    }
+    
+    /**
+     * Like {@link #getAllProducts(Pageable)}, with the total counted exactly, estimated, or not at all.
+     */
+    @Transactional(readOnly = true)
+    public Slice<ProductDTO> getAllProducts(Pageable pageable, CountMode countMode) {
+        return cachedPage("all", () -> switch (countMode) {
+            case EXACT -> productRepository.findProductDTOs(pageable).map(ledgerStock());
+            case NONE -> productRepository.sliceProductDTOs(pageable).map(ledgerStock());
+            case ESTIMATE -> withEstimatedTotal(productRepository.sliceProductDTOs(pageable).map(ledgerStock()),
+                    ProductCountEstimator.Filter.NONE);
+        }, pageable, countMode);
     }
     
     @Transactional(readOnly = true)
@@ -52,12 +104,87 @@ public class ProductService {
                                            Pageable pageable) {
         log.debug("Searching products with filters - name: {}, minPrice: {}, maxPrice: {}, available: {}", 
                 name, minPrice, maxPrice, available);
-        return productRepository.searchProducts(name, minPrice, maxPrice, available, pageable)
-                .map(this::mapToDTO);
+        return cachedPage("search", () -> searchAllMatches(name, minPrice, maxPrice, available, pageable),
+                searchTerm(name), amount(minPrice), amount(maxPrice), available, pageable, CountMode.EXACT);
+    }
+    
+    @Transactional(readOnly = true)
+    public Slice<ProductDTO> searchProducts(String name, BigDecimal minPrice,
+                                            BigDecimal maxPrice, Boolean available,
+                                            Pageable pageable, CountMode countMode) {
+        if (countMode == CountMode.EXACT) {
+            return searchProducts(name, minPrice, maxPrice, available, pageable);
+        }
+        return cachedPage("search", () -> searchMatches(name, minPrice, maxPrice, available, pageable, countMode),
+                searchTerm(name), amount(minPrice), amount(maxPrice), available, pageable, countMode);
+    }
+    
+    private Page<ProductDTO> searchAllMatches(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean available,
+                                              Pageable pageable) {
+        Page<ProductDTO> indexed = name == null ? searchCatalogIndex(minPrice, maxPrice, available, pageable) : null;
+        if (indexed != null) {
+            return indexed;
+        }
+        Slice<ProductDTO> products = productSearchEngine.search(name, minPrice, maxPrice, available, pageable);
+        return PageableExecutionUtils.getPage(products.getContent(), pageable,
+                () -> productSearchEngine.count(name, minPrice, maxPrice, available)).map(ledgerStock());
+    }
+    
+    private Slice<ProductDTO> searchMatches(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean available,
+                                            Pageable pageable, CountMode countMode) {
+        Page<ProductDTO> indexed = name == null ? searchCatalogIndex(minPrice, maxPrice, available, pageable) : null;
+        if (indexed != null) {
+            // The index counts as it goes, so an estimate gets the exact total
+            return countMode == CountMode.NONE ? new SliceImpl<>(indexed.getContent(), pageable, indexed.hasNext()) : indexed;
+        }
+        Slice<ProductDTO> products = productSearchEngine.search(name, minPrice, maxPrice, available, pageable)
+                .map(ledgerStock());
+        return countMode == CountMode.NONE ? products
+                : withEstimatedTotal(products, new ProductCountEstimator.Filter(name, minPrice, maxPrice, available));
+    }
+    
+    /**
+     * Sparse listing: only the selected fields are read from the database and returned, in a {@link ListEnvelope}
+     * whose {@code next} is the following page number. Null filters match every product.
+     */
+    @Transactional(readOnly = true)
+    public ListEnvelope<Map<String, Object>> listProductFields(FieldSelection fields, String name, BigDecimal minPrice,
+                                                               BigDecimal maxPrice, Boolean available,
+                                                               Pageable pageable, CountMode countMode) {
+        return cachedPage("fields", () -> loadProductFields(fields, name, minPrice, maxPrice, available, pageable, countMode),
+                List.copyOf(fields.names()), searchTerm(name), amount(minPrice), amount(maxPrice), available, pageable,
+                countMode);
+    }
+    
+    private ListEnvelope<Map<String, Object>> loadProductFields(FieldSelection fields, String name, BigDecimal minPrice,
+                                                                BigDecimal maxPrice, Boolean available,
+                                                                Pageable pageable, CountMode countMode) {
+        Slice<Map<String, Object>> rows = productRepository.sliceProductFields(fields, name, minPrice, maxPrice,
+                available, pageable);
+        
+        InventoryLedger ledger = inventoryLedger.getIfAvailable();
+        boolean overlayStock = fields.includes("quantity") && ledger != null && ledger.isReady();
+        for (Map<String, Object> row : rows) {
+            if (overlayStock) {
+                Integer stock = ledger.available((Long) row.get("id"));
+                if (stock != null) {
+                    row.put("quantity", stock);
+                }
+            }
+            if (!fields.includes("id")) {
+                row.remove("id");
+            }
+        }
+        
+        Long total = switch (countMode) {
+            case EXACT -> productRepository.countProductFields(name, minPrice, maxPrice, available);
+            case NONE -> null;
+            case ESTIMATE -> estimatedTotal(rows, new ProductCountEstimator.Filter(name, minPrice, maxPrice, available));
+        };
+        return new ListEnvelope<>(rows.getContent(), rows.hasNext() ? String.valueOf(rows.getNumber() + 1) : null, total);
     }
     
     @Transactional
-    @CacheEvict(value = "products", allEntries = true)
     public ProductDTO createProduct(ProductDTO productDTO) {
         log.info("Creating new product: {}", productDTO.name());
         Product product = Product.builder()
@@ -69,29 +196,45 @@ public class ProductService {
                 .build();
         
         Product savedProduct = productRepository.save(product);
+        inventoryLedger.ifAvailable(ledger -> ledger.track(savedProduct.getId(), savedProduct.getQuantity()));
+        productSearchEngine.track(savedProduct.getId(), savedProduct.getName());
+        ProductDTO created = mapToDTO(savedProduct);
+        catalogIndex.ifAvailable(index -> index.track(created.id(), created.name(), created.price(), created.quantity()));
+        productPageCache.ifAvailable(ProductPageCache::catalogChanged);
         log.info("Product created successfully with id: {}", savedProduct.getId());
-        return mapToDTO(savedProduct);
+        return created;
     }
     
-    @Transactional
+    // Each attempt runs in its own transaction, see OptimisticLockRetry
     @CacheEvict(value = "products", key = "#id")
     public ProductDTO updateProduct(Long id, ProductDTO productDTO) {
         log.info("Updating product with id: {}", id);
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
-        
-        if (product.getDeleted()) {
-            throw new ResourceNotFoundException("Product not found with id: " + id);
-        }
-        
-        product.setName(productDTO.name());
-        product.setDescription(productDTO.description());
-        product.setPrice(productDTO.price());
-        product.setQuantity(productDTO.quantity());
-        
-        Product updatedProduct = productRepository.save(product);
-        log.info("Product updated successfully with id: {}", id);
-        return mapToDTO(updatedProduct);
+        return optimisticLockRetry.execute(id, "update", () -> {
+            Product product = productRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+            
+            if (product.getDeleted()) {
+                throw new ResourceNotFoundException("Product not found with id: " + id);
+            }
+            
+            product.setName(productDTO.name());
+            product.setDescription(productDTO.description());
+            product.setPrice(productDTO.price());
+            if (product.getStockShards() > 0) {
+                productRepository.overwriteStock(id, productDTO.quantity());
+            } else {
+                product.setQuantity(productDTO.quantity());
+            }
+            
+            Product updatedProduct = productRepository.save(product);
+            inventoryLedger.ifAvailable(ledger -> ledger.reconcile(id, productDTO.quantity()));
+            productSearchEngine.track(id, updatedProduct.getName());
+            ProductDTO updated = mapToDTO(updatedProduct);
+            catalogIndex.ifAvailable(index -> index.track(id, updated.name(), updated.price(), updated.quantity()));
+            productPageCache.ifAvailable(ProductPageCache::catalogChanged);
+            log.info("Product updated successfully with id: {}", id);
+            return updated;
+        });
     }
     
     @Transactional
@@ -103,33 +246,172 @@ public class ProductService {
         
         product.setDeleted(true);
         productRepository.save(product);
+        inventoryLedger.ifAvailable(ledger -> ledger.forget(id));
+        productSearchEngine.forget(id);
+        catalogIndex.ifAvailable(index -> index.forget(id));
+        productPageCache.ifAvailable(ProductPageCache::catalogChanged);
         log.info("Product deleted successfully with id: {}", id);
     }
     
-    @Transactional
     public void decreaseStock(Long productId, Integer quantity) {
         log.debug("Decreasing stock for product id: {} by quantity: {}", productId, quantity);
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
-        
-        if (product.getQuantity() < quantity) {
-            throw new IllegalStateException("Insufficient stock for product: " + product.getName());
+        InventoryLedger ledger = inventoryLedger.getIfAvailable();
+        if (ledger != null && ledger.isReady()) {
+            if (!ledger.reserve(Map.of(productId, quantity)).isEmpty()) {
+                throw new IllegalStateException("Insufficient stock for product: " + productId);
+            }
+            catalogIndex.ifAvailable(index -> index.reserved(Map.of(productId, quantity)));
+            productPageCache.ifAvailable(ProductPageCache::stockChanged);
+            return;
         }
         
-        product.setQuantity(product.getQuantity() - quantity);
-        productRepository.save(product);
+        optimisticLockRetry.execute(productId, "decrease-stock", () -> {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
+            
+            if (product.getStockShards() > 0) {
+                if (!productRepository.reserveStock(Map.of(productId, quantity)).isEmpty()) {
+                    throw new IllegalStateException("Insufficient stock for product: " + product.getName());
+                }
+                return product;
+            }
+            
+            if (product.getQuantity() < quantity) {
+                throw new IllegalStateException("Insufficient stock for product: " + product.getName());
+            }
+            
+            product.setQuantity(product.getQuantity() - quantity);
+            return productRepository.save(product);
+        });
+        catalogIndex.ifAvailable(index -> index.reserved(Map.of(productId, quantity)));
+        productPageCache.ifAvailable(ProductPageCache::stockChanged);
+    }
+    
+    /**
+     * Splits a product's stock over {@code shards} rows so concurrent orders stop queueing on a single
+     * row lock, or folds it back into the product row when {@code shards} is 0.
+     */
+    @Transactional
+    @CacheEvict(value = "products", key = "#id")
+    public ProductDTO reshardStock(Long id, int shards) {
+        if (shards < 0 || shards > MAX_STOCK_SHARDS) {
+            throw new IllegalArgumentException("Shard count must be between 0 and " + MAX_STOCK_SHARDS);
+        }
+        // Reshard before loading the entity so the persistence context never holds the pre-reshard row
+        int total;
+        try {
+            total = productRepository.reshardStock(id, shards);
+        } catch (EmptyResultDataAccessException ex) {
+            throw new ResourceNotFoundException("Product not found with id: " + id);
+        }
+        log.info("Product {} now keeps its stock of {} in {} shards", id, total, shards);
+        return getProductById(id);
+    }
+    
+    /**
+     * Evens out the stock of a sharded product across its shards, e.g. after orders drained a few of them.
+     */
+    @Transactional
+    @CacheEvict(value = "products", key = "#id")
+    public ProductDTO rebalanceStock(Long id) {
+        int shards = productRepository.findStockShards(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+        if (shards == 0) {
+            throw new IllegalArgumentException("Product " + id + " does not use sharded stock");
+        }
+        return reshardStock(id, shards);
+    }
+    
+    private <T> T cachedPage(String listing, Supplier<T> loader, Object... parameters) {
+        ProductPageCache cache = productPageCache.getIfAvailable();
+        return cache != null ? cache.get(listing, Arrays.asList(parameters), loader) : loader.get();
+    }
+    
+    // Name matching ignores case, and 10 and 10.00 are the same price, so either spelling hits the same page
+    private static String searchTerm(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+    
+    private static BigDecimal amount(BigDecimal price) {
+        return price == null ? null : price.stripTrailingZeros();
+    }
+    
+    // Price and stock filters alone are answered by the catalog index; only the page itself is loaded, by id
+    private Page<ProductDTO> searchCatalogIndex(BigDecimal minPrice, BigDecimal maxPrice, Boolean available,
+                                                Pageable pageable) {
+        CatalogIndex index = catalogIndex.getIfAvailable();
+        CatalogIndex.Result result = index != null ? index.search(minPrice, maxPrice, available, pageable) : null;
+        if (result == null) {
+            return null;
+        }
+        List<ProductDTO> products = List.of();
+        if (!result.ids().isEmpty()) {
+            Map<Long, ProductDTO> byId = productRepository.findMatchingProducts(null, null, null, null, result.ids(),
+                            Pageable.unpaged()).stream()
+                    .collect(Collectors.toMap(ProductDTO::id, Function.identity()));
+            // A product deleted since the index answered is left out rather than failing the page
+            products = result.ids().stream().map(byId::get).filter(Objects::nonNull).toList();
+        }
+        return new PageImpl<>(products, pageable, result.total()).map(ledgerStock());
+    }
+    
+    private Page<ProductDTO> withEstimatedTotal(Slice<ProductDTO> products, ProductCountEstimator.Filter filter) {
+        return new PageImpl<>(products.getContent(), products.getPageable(), estimatedTotal(products, filter));
+    }
+    
+    // The estimate can be stale, so it is clamped to what the slice itself proves about the total
+    private long estimatedTotal(Slice<?> slice, ProductCountEstimator.Filter filter) {
+        long seen = slice.getPageable().isPaged()
+                ? slice.getPageable().getOffset() + slice.getNumberOfElements()
+                : slice.getNumberOfElements();
+        return slice.hasNext() ? Math.max(countEstimator.estimate(filter), seen + 1) : seen;
+    }
+    
+    // Listings are projected by the repository; only the ledger's view of stock has to be laid over them
+    private Function<ProductDTO, ProductDTO> ledgerStock() {
+        InventoryLedger ledger = inventoryLedger.getIfAvailable();
+        if (ledger == null || !ledger.isReady()) {
+            return Function.identity();
+        }
+        return product -> {
+            Integer available = ledger.available(product.id());
+            return available == null ? product : new ProductDTO(product.id(), product.name(), product.description(),
+                    product.price(), available, product.deleted(), product.createdAt(), product.updatedAt());
+        };
     }
     
     private ProductDTO mapToDTO(Product product) {
+        int shardedStock = 0;
+        if (product.getStockShards() > 0) {
+            shardedStock = productRepository.findShardedStockLevels(List.of(product.getId())).stream()
+                    .mapToInt(ProductStockLevel::quantity)
+                    .sum();
+        }
+        return mapToDTO(product, shardedStock);
+    }
+    
+    private ProductDTO mapToDTO(Product product, int shardedStock) {
         return new ProductDTO(
                 product.getId(),
                 product.getName(),
                 product.getDescription(),
                 product.getPrice(),
-                product.getQuantity(),
+                availableQuantity(product, shardedStock),
                 product.getDeleted(),
                 product.getCreatedAt(),
                 product.getUpdatedAt()
         );
     }
+    
+    // With the ledger enabled the row lags behind reservations until the next flush
+    private Integer availableQuantity(Product product, int shardedStock) {
+        InventoryLedger ledger = inventoryLedger.getIfAvailable();
+        if (ledger != null && ledger.isReady()) {
+            Integer available = ledger.available(product.getId());
+            if (available != null) {
+                return available;
+            }
+        }
+        return product.getQuantity() + shardedStock;
+    }
 }
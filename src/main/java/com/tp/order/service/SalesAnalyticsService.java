@@ -0,0 +1,102 @@
+package com.tp.order.service;
+
+import com.tp.order.analytics.SalesRollup;
+import com.tp.order.dto.DailySalesDTO;
+import com.tp.order.dto.ProductSalesDTO;
+import com.tp.order.dto.SalesBackfillResult;
+import com.tp.order.exception.ResourceNotFoundException;
+import com.tp.order.repository.DailySalesRepository;
+import com.tp.order.repository.ProductDailySalesRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Sales figures served from the rollup tables maintained by {@link SalesRollup}, so a query touches one row
+ * per day (and product) in the range instead of every order in it.
+ */
+@Service
+public class SalesAnalyticsService {
+    
+    static final int MAX_RANGE_DAYS = 3660;
+    
+    private final DailySalesRepository dailySalesRepository;
+    private final ProductDailySalesRepository productDailySalesRepository;
+    private final ObjectProvider<SalesRollup> salesRollup;
+    
+    public SalesAnalyticsService(DailySalesRepository dailySalesRepository,
+                                 ProductDailySalesRepository productDailySalesRepository,
+                                 ObjectProvider<SalesRollup> salesRollup) {
+        this.dailySalesRepository = dailySalesRepository;
+        this.productDailySalesRepository = productDailySalesRepository;
+        this.salesRollup = salesRollup;
+    }
+    
+    /**
+     * Totals for every day of {@code from}..{@code to}, oldest first. Days without sales are included as zeros.
+     */
+    @Transactional(readOnly = true)
+    public List<DailySalesDTO> getDailySales(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return fillGaps(from, to, dailySalesRepository.findDailySales(from, to));
+    }
+    
+    /**
+     * Daily totals of one product, with the same gap filling as {@link #getDailySales}.
+     */
+    @Transactional(readOnly = true)
+    public List<DailySalesDTO> getProductDailySales(Long productId, LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return fillGaps(from, to, productDailySalesRepository.findProductDailySales(productId, from, to));
+    }
+    
+    /**
+     * The {@code limit} products with the highest revenue over {@code from}..{@code to}.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductSalesDTO> getTopProducts(LocalDate from, LocalDate to, int limit) {
+        checkRange(from, to);
+        return productDailySalesRepository.findTopProducts(from, to, Limit.of(limit));
+    }
+    
+    public SalesBackfillResult backfill(LocalDate from, LocalDate to) {
+        SalesRollup rollup = salesRollup.getIfAvailable();
+        if (rollup == null) {
+            throw new ResourceNotFoundException("Sales rollups are not enabled");
+        }
+        checkRange(from, to);
+        return rollup.backfill(from, to);
+    }
+    
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Date range must not exceed " + MAX_RANGE_DAYS + " days");
+        }
+    }
+    
+    // Rows come back sorted by date, so the gaps can be filled in one pass
+    private static List<DailySalesDTO> fillGaps(LocalDate from, LocalDate to, List<DailySalesDTO> rows) {
+        List<DailySalesDTO> days = new ArrayList<>((int) ChronoUnit.DAYS.between(from, to) + 1);
+        Iterator<DailySalesDTO> iterator = rows.iterator();
+        DailySalesDTO next = iterator.hasNext() ? iterator.next() : null;
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            if (next != null && next.date().equals(date)) {
+                days.add(next);
+                next = iterator.hasNext() ? iterator.next() : null;
+            } else {
+                days.add(DailySalesDTO.empty(date));
+            }
+        }
+        return days;
+    }
+}
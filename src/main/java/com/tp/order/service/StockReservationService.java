@@ -0,0 +1,67 @@
+package com.tp.order.service;
+
+import com.tp.order.cache.ProductPageCache;
+import com.tp.order.inventory.InventoryLedger;
+import com.tp.order.repository.ProductRepository;
+import com.tp.order.search.CatalogIndex;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class StockReservationService {
+    
+    private final ProductRepository productRepository;
+    private final ObjectProvider<InventoryLedger> inventoryLedger;
+    private final ObjectProvider<CatalogIndex> catalogIndex;
+    private final ObjectProvider<ProductPageCache> productPageCache;
+    
+    public StockReservationService(ProductRepository productRepository, ObjectProvider<InventoryLedger> inventoryLedger,
+                                   ObjectProvider<CatalogIndex> catalogIndex,
+                                   ObjectProvider<ProductPageCache> productPageCache) {
+        this.productRepository = productRepository;
+        this.inventoryLedger = inventoryLedger;
+        this.catalogIndex = catalogIndex;
+        this.productPageCache = productPageCache;
+    }
+    
+    /**
+     * Reserves every quantity or none of them. Returns the ids of products that could not be
+     * reserved; an empty list means the whole set was taken.
+     */
+    @Transactional
+    public List<Long> reserve(Map<Long, Integer> quantities) {
+        List<Long> rejected = take(quantities);
+        if (rejected.isEmpty()) {
+            catalogIndex.ifAvailable(index -> index.reserved(quantities));
+            productPageCache.ifAvailable(ProductPageCache::stockChanged);
+        }
+        return rejected;
+    }
+    
+    private List<Long> take(Map<Long, Integer> quantities) {
+        InventoryLedger ledger = inventoryLedger.getIfAvailable();
+        if (ledger != null && ledger.isReady()) {
+            return ledger.reserve(quantities);
+        }
+        
+        List<Long> rejected = productRepository.reserveStock(quantities);
+        if (!rejected.isEmpty()) {
+            // The batch is not atomic across lines: give back whatever it did take
+            Map<Long, Integer> taken = new LinkedHashMap<>();
+            quantities.forEach((productId, quantity) -> {
+                if (!rejected.contains(productId)) {
+                    taken.put(productId, -quantity);
+                }
+            });
+            if (!taken.isEmpty()) {
+                productRepository.applyStockDeltas(taken);
+            }
+        }
+        return rejected;
+    }
+}
@@ -0,0 +1,47 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Creates the pooled id sequences used by the entities. Implemented in Java because the start
+ * value depends on the rows already present and neither H2 nor PostgreSQL accept a sub-query in
+ * {@code CREATE SEQUENCE ... START WITH}.
+ */
+public class V3__Pooled_Id_Sequences extends BaseJavaMigration {
+
+    // Must match allocationSize on the entities' @SequenceGenerator
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final Map<String, String> SEQUENCES = new LinkedHashMap<>();
+
+    static {
+        SEQUENCES.put("users", "users_seq");
+        SEQUENCES.put("products", "products_seq");
+        SEQUENCES.put("orders", "orders_seq");
+        SEQUENCES.put("order_items", "order_items_seq");
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            for (Map.Entry<String, String> entry : SEQUENCES.entrySet()) {
+                long maxId;
+                try (ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + entry.getKey())) {
+                    resultSet.next();
+                    maxId = resultSet.getLong(1);
+                }
+                // The pooled optimizer treats the first value it reads as the top of a block of
+                // ALLOCATION_SIZE ids, so start one full block above the existing rows.
+                statement.execute("CREATE SEQUENCE " + entry.getValue()
+                        + " START WITH " + (maxId + ALLOCATION_SIZE)
+                        + " INCREMENT BY " + ALLOCATION_SIZE);
+            }
+        }
+    }
+}
@@ -8,7 +8,7 @@ INSERT INTO users (username, email, password, role) VALUES
 
 -- Insert sample products
 INSERT INTO products (name, description, price, quantity) VALUES
-('realme t3 ultra', 'High quality camera with 6.5-inch display'', 129.99, 50),
+('realme t3 ultra', 'High quality camera with 6.5-inch display', 129.99, 50),
 ('samsung s24', 'High quality camera with gorilla glass', 29.99, 200),
 ('samsung s24 ultra', 'High quality hd camera with 6.5-inch display', 89.99, 150),
 ('vivo t4', '16 gb ram with 256 gb rom', 399.99, 75),
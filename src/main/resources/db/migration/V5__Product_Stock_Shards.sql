@@ -0,0 +1,11 @@
+-- Optional sharded stock for hot products. A product with stock_shards > 0 keeps its stock in
+-- product_stock_shards (shards 0..stock_shards-1) and products.quantity stays at 0.
+ALTER TABLE products ADD COLUMN stock_shards INT NOT NULL DEFAULT 0;
+
+CREATE TABLE product_stock_shards (
+    product_id BIGINT NOT NULL,
+    shard INT NOT NULL,
+    quantity INT NOT NULL,
+    PRIMARY KEY (product_id, shard),
+    FOREIGN KEY (product_id) REFERENCES products(id)
+);
@@ -0,0 +1,14 @@
+-- Denormalized order read model, one row per order with its item lines pre-rendered as JSON
+CREATE TABLE order_views (
+    order_id BIGINT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    username VARCHAR(50) NOT NULL,
+    order_total DECIMAL(10, 2) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    items TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP
+);
+
+CREATE INDEX idx_order_views_username_created_at ON order_views(username, created_at);
+CREATE INDEX idx_order_views_created_at ON order_views(created_at);
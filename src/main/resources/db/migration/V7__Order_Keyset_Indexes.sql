@@ -0,0 +1,4 @@
+-- Keyset pagination seeks on (created_at, id), newest first, for all orders and per user. The keys are
+-- declared descending because H2 reads an index in its declared order only
+CREATE INDEX idx_orders_created_at_desc_id_desc ON orders(created_at DESC, id DESC);
+CREATE INDEX idx_orders_user_id_created_at_desc_id_desc ON orders(user_id, created_at DESC, id DESC);
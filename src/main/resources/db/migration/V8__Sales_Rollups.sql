@@ -0,0 +1,21 @@
+-- Sales rollups per day and per product and day, incremented as orders commit and rebuilt by the backfill.
+-- Revenue and discounts are sums of the item lines, which add up to the order totals.
+CREATE TABLE daily_sales (
+    sales_date DATE PRIMARY KEY,
+    orders BIGINT NOT NULL,
+    units BIGINT NOT NULL,
+    revenue DECIMAL(19, 2) NOT NULL,
+    discounts DECIMAL(19, 2) NOT NULL
+);
+
+CREATE TABLE product_daily_sales (
+    sales_date DATE NOT NULL,
+    product_id BIGINT NOT NULL,
+    orders BIGINT NOT NULL,
+    units BIGINT NOT NULL,
+    revenue DECIMAL(19, 2) NOT NULL,
+    discounts DECIMAL(19, 2) NOT NULL,
+    PRIMARY KEY (sales_date, product_id)
+);
+
+CREATE INDEX idx_product_daily_sales_product_id_sales_date ON product_daily_sales(product_id, sales_date);
@@ -0,0 +1,39 @@
+-- Runs on every prod startup (spring.sql.init.platform=postgresql), after Hibernate's ddl-auto update,
+-- because prod does not run Flyway. Every statement must be safe to repeat.
+
+-- Pooled id sequences (see V3__Pooled_Id_Sequences). Hibernate creates missing sequences starting at 1,
+-- below the ids the tables already hold, so move each one up to the highest existing id. The pooled
+-- optimizer takes the next value as the top of a block of 50, so that block starts at MAX(id) + 1.
+-- GREATEST keeps a sequence that is already ahead from moving backwards.
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS products_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS orders_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS order_items_seq INCREMENT BY 50;
+SELECT setval('users_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM users), (SELECT last_value FROM users_seq)));
+SELECT setval('products_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM products), (SELECT last_value FROM products_seq)));
+SELECT setval('orders_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM orders), (SELECT last_value FROM orders_seq)));
+SELECT setval('order_items_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM order_items), (SELECT last_value FROM order_items_seq)));
+
+-- Product search matches LOWER(name) LIKE '%term%', which a B-tree cannot serve; a trigram GIN index can.
+-- pg_trgm is a trusted extension from Postgres 13, so the database owner may create it. The first build of
+-- the index blocks writes to products until it finishes.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_products_name_trgm ON products USING gin (LOWER(name) gin_trgm_ops);
+
+-- Listing indexes (the H2 equivalents are in db/migration and db/vendor/h2). Postgres walks the (created_at, id)
+-- indexes backwards for the createdAt DESC listings, and the per-user one also serves lookups by user_id alone.
+CREATE INDEX IF NOT EXISTS idx_orders_created_at_id ON orders(created_at, id);
+CREATE INDEX IF NOT EXISTS idx_orders_user_id_created_at_id ON orders(user_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_order_views_username_created_at ON order_views(username, created_at);
+CREATE INDEX IF NOT EXISTS idx_order_views_created_at ON order_views(created_at);
+
+-- Every product listing filters on deleted = false, so index only the live rows for each listing's sort
+-- or range column
+CREATE INDEX IF NOT EXISTS idx_products_live_created_at ON products(created_at DESC) WHERE deleted = false;
+CREATE INDEX IF NOT EXISTS idx_products_live_name ON products(name) WHERE deleted = false;
+CREATE INDEX IF NOT EXISTS idx_products_live_price ON products(price) WHERE deleted = false;
+
+-- Postgres does not index foreign key columns by itself
+CREATE INDEX IF NOT EXISTS idx_order_items_order_id ON order_items(order_id);
+CREATE INDEX IF NOT EXISTS idx_order_items_product_id ON order_items(product_id);
+CREATE INDEX IF NOT EXISTS idx_product_daily_sales_product_id_sales_date ON product_daily_sales(product_id, sales_date);
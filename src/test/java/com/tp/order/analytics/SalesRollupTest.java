@@ -0,0 +1,165 @@
+package com.tp.order.analytics;
+
+import com.tp.order.config.JpaAuditingConfiguration;
+import com.tp.order.dto.CreateOrderRequest;
+import com.tp.order.dto.DailySalesDTO;
+import com.tp.order.dto.OrderItemRequest;
+import com.tp.order.dto.ProductSalesDTO;
+import com.tp.order.dto.SalesBackfillResult;
+import com.tp.order.pricing.OrderPricingEngine;
+import com.tp.order.service.OrderService;
+import com.tp.order.service.SalesAnalyticsService;
+import com.tp.order.service.StockReservationService;
+import com.tp.order.strategy.CompositeDiscountStrategy;
+import com.tp.order.strategy.DiscountCalculator;
+import com.tp.order.strategy.LargeOrderDiscountStrategy;
+import com.tp.order.strategy.PremiumUserDiscountStrategy;
+import com.tp.order.strategy.UserDiscountStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({SalesRollup.class, SalesAnalyticsService.class, JpaAuditingConfiguration.class, OrderService.class, OrderPricingEngine.class,
+        StockReservationService.class, DiscountCalculator.class, CompositeDiscountStrategy.class,
+        UserDiscountStrategy.class, PremiumUserDiscountStrategy.class, LargeOrderDiscountStrategy.class})
+@TestPropertySource(properties = "app.orders.sales-rollup.backfill.partition-days=7")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SalesRollupTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SalesRollup salesRollup;
+
+    @Autowired
+    private SalesAnalyticsService salesAnalyticsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        // user1 and products 1..10 come from V2__Seed_Data.sql
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("user1", "password", List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("DELETE FROM daily_sales");
+        jdbcTemplate.update("DELETE FROM product_daily_sales");
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+    }
+
+    @Test
+    void flush_shouldAddCommittedOrdersToTodaysRollups() {
+        orderService.createOrder(new CreateOrderRequest(List.of(new OrderItemRequest(1L, 1), new OrderItemRequest(2L, 2))));
+        salesRollup.flush();
+        orderService.createOrder(new CreateOrderRequest(List.of(new OrderItemRequest(1L, 3))));
+        salesRollup.flush();
+
+        LocalDate today = LocalDate.now();
+        Map<String, Object> daily = jdbcTemplate.queryForMap("SELECT * FROM daily_sales WHERE sales_date = ?", today);
+        assertEquals(2L, ((Number) daily.get("ORDERS")).longValue());
+        assertEquals(6L, ((Number) daily.get("UNITS")).longValue());
+        assertEquals(jdbcTemplate.queryForObject("SELECT SUM(order_total) FROM orders", BigDecimal.class),
+                daily.get("REVENUE"));
+
+        List<DailySalesDTO> product1 = salesAnalyticsService.getProductDailySales(1L, today, today);
+        assertEquals(2, product1.get(0).orders());
+        assertEquals(4, product1.get(0).units());
+    }
+
+    @Test
+    void flush_shouldIgnoreRolledBackOrders() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            orderService.createOrder(new CreateOrderRequest(List.of(new OrderItemRequest(1L, 1))));
+            status.setRollbackOnly();
+        });
+        salesRollup.flush();
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM daily_sales", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_daily_sales", Integer.class));
+    }
+
+    @Test
+    void backfill_shouldRebuildPastDaysInPartitions() {
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'user1'", Long.class);
+        insertOrder(9001, userId, "2024-01-10T09:00:00", new long[]{1, 2}, new int[]{1, 2});
+        insertOrder(9002, userId, "2024-01-10T23:59:59", new long[]{1}, new int[]{3});
+        insertOrder(9003, userId, "2024-01-20T12:00:00", new long[]{3}, new int[]{1});
+        // A stale row inside the range must be replaced, one outside of it left alone
+        jdbcTemplate.update("INSERT INTO daily_sales VALUES (DATE '2024-01-15', 7, 7, 70.00, 0)");
+        jdbcTemplate.update("INSERT INTO daily_sales VALUES (DATE '2024-02-15', 5, 5, 50.00, 0)");
+
+        SalesBackfillResult result = salesRollup.backfill(LocalDate.parse("2024-01-01"), LocalDate.parse("2024-01-31"));
+
+        assertEquals(31, result.days());
+        assertEquals(2, result.daysWithSales());
+        assertEquals(5, result.partitions());
+        List<DailySalesDTO> january = salesAnalyticsService.getDailySales(LocalDate.parse("2024-01-01"), LocalDate.parse("2024-01-31"));
+        assertEquals(31, january.size());
+        assertEquals(new DailySalesDTO(LocalDate.parse("2024-01-10"), 2, 6, new BigDecimal("30.00"), new BigDecimal("3.00")),
+                january.get(9));
+        assertEquals(DailySalesDTO.empty(LocalDate.parse("2024-01-15")), january.get(14));
+        assertEquals(1, january.get(19).orders());
+        assertEquals(5, jdbcTemplate.queryForObject(
+                "SELECT orders FROM daily_sales WHERE sales_date = DATE '2024-02-15'", Integer.class));
+
+        List<ProductSalesDTO> top = salesAnalyticsService.getTopProducts(LocalDate.parse("2024-01-01"), LocalDate.parse("2024-01-31"), 2);
+        assertEquals(2, top.size());
+        assertEquals(1L, top.get(0).productId());
+        assertEquals(2, top.get(0).orders());
+        assertEquals(4, top.get(0).units());
+        assertNotNull(top.get(0).productName());
+    }
+
+    @Test
+    void backfill_shouldRejectToday() {
+        LocalDate today = LocalDate.now();
+        assertThrows(IllegalArgumentException.class, () -> salesRollup.backfill(today.minusDays(3), today));
+    }
+
+    // Lines cost 5.00 each with a 0.50 discount per unit
+    private void insertOrder(long orderId, Long userId, String createdAt, long[] productIds, int[] quantities) {
+        int units = 0;
+        for (int quantity : quantities) {
+            units += quantity;
+        }
+        jdbcTemplate.update("INSERT INTO orders (id, user_id, order_total, status, created_at) VALUES (?, ?, ?, 'PENDING', ?)",
+                orderId, userId, BigDecimal.valueOf(units * 5L), LocalDateTime.parse(createdAt));
+        for (int line = 0; line < productIds.length; line++) {
+            jdbcTemplate.update("INSERT INTO order_items (id, order_id, product_id, quantity, unit_price, discount_applied, total_price) " +
+                            "VALUES (?, ?, ?, ?, 5.50, ?, ?)", orderId * 10 + line, orderId, productIds[line], quantities[line],
+                    BigDecimal.valueOf(quantities[line] * 50L, 2), BigDecimal.valueOf(quantities[line] * 5L));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.tp.order.benchmark;
+
+import com.tp.order.OrderManagementApiApplication;
+import com.tp.order.dto.ProductDTO;
+import com.tp.order.repository.ProductRepository;
+import com.tp.order.search.CatalogIndex;
+import com.tp.order.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-stock price-range listing over 1,000,000 products, page 5 of 20 with its total, as the search query
+ * serves it versus {@link ProductService#searchProducts} answering from the {@link CatalogIndex} and hydrating
+ * the page by primary key. Boots the application on the dev profile's in-memory H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CatalogIndexBenchmark {
+    
+    private static final int PRODUCTS = 1_000_000;
+    
+    @Param({"price", "name"})
+    private String sort;
+    
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private ProductService productService;
+    private final BigDecimal minPrice = new BigDecimal("10.00");
+    private final BigDecimal maxPrice = new BigDecimal("20.00");
+    private Pageable page;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OrderManagementApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.profiles.active=dev", "spring.jpa.show-sql=false", "app.products.catalog-index.enabled=true",
+                        "logging.level.root=WARN", "logging.level.com.tp=WARN", "logging.level.org.hibernate.SQL=WARN")
+                .run();
+        productRepository = context.getBean(ProductRepository.class);
+        productService = context.getBean(ProductService.class);
+        context.getBean(JdbcTemplate.class).update("INSERT INTO products (id, name, description, price, quantity, deleted, created_at) " +
+                "SELECT 10000 + X, 'Product ' || X, 'Description ' || X, MOD(X * 7919, 10000) / 100.0, MOD(X, 50), false, " +
+                "CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, ?)", PRODUCTS);
+        context.getBean(CatalogIndex.class).rebuild();
+        page = PageRequest.of(5, 20, Sort.by(sort));
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public Page<ProductDTO> searchQuery() {
+        return productRepository.searchProductDTOs(null, minPrice, maxPrice, true, page);
+    }
+    
+    @Benchmark
+    public Page<ProductDTO> catalogIndex() {
+        return productService.searchProducts(null, minPrice, maxPrice, true, page);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CatalogIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
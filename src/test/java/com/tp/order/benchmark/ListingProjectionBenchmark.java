@@ -0,0 +1,152 @@
+package com.tp.order.benchmark;
+
+import com.tp.order.OrderManagementApiApplication;
+import com.tp.order.dto.OrderDTO;
+import com.tp.order.dto.OrderItemDTO;
+import com.tp.order.dto.ProductDTO;
+import com.tp.order.entity.Order;
+import com.tp.order.entity.Product;
+import com.tp.order.repository.OrderLineRow;
+import com.tp.order.repository.OrderRepository;
+import com.tp.order.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap allocated per 100-row listing page when the rows are hydrated as managed entities and copied into DTOs
+ * (how the listings worked before) versus projected straight into DTO-shaped records. Boots the application on
+ * the dev profile's in-memory H2; look at {@code gc.alloc.rate.norm} rather than the timings. Run via
+ * {@link #main(String[])}, which adds the GC profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingProjectionBenchmark {
+    
+    private static final int PAGE_SIZE = 100;
+    private static final int LINES_PER_ORDER = 3;
+    
+    private ConfigurableApplicationContext context;
+    private EntityManager entityManager;
+    private OrderRepository orderRepository;
+    private ProductRepository productRepository;
+    private TransactionTemplate readOnly;
+    private List<Long> orderIds;
+    private final Pageable productPage = PageRequest.of(0, PAGE_SIZE);
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OrderManagementApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.profiles.active=dev", "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN", "logging.level.com.tp=WARN", "logging.level.org.hibernate.SQL=WARN")
+                .run();
+        entityManager = context.getBean(EntityManager.class);
+        orderRepository = context.getBean(OrderRepository.class);
+        productRepository = context.getBean(ProductRepository.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            jdbcTemplate.update("INSERT INTO products (id, name, description, price, quantity, deleted, created_at) " +
+                    "VALUES (?, ?, ?, 9.99, 1000, false, CURRENT_TIMESTAMP)", 10_000 + i, "Bench product " + i, "Description " + i);
+        }
+        for (long orderId = 10_000; orderId < 10_000 + PAGE_SIZE; orderId++) {
+            jdbcTemplate.update("INSERT INTO orders (id, user_id, order_total, status, created_at) " +
+                    "VALUES (?, 1, 29.97, 'PENDING', CURRENT_TIMESTAMP)", orderId);
+            for (int line = 0; line < LINES_PER_ORDER; line++) {
+                jdbcTemplate.update("INSERT INTO order_items (id, order_id, product_id, quantity, unit_price, discount_applied, total_price) " +
+                        "VALUES (?, ?, ?, 1, 9.99, 0, 9.99)", orderId * 10 + line, orderId, 10_000 + line);
+            }
+        }
+        orderIds = jdbcTemplate.queryForList("SELECT id FROM orders WHERE id >= 10000 ORDER BY id", Long.class);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public List<OrderDTO> ordersEntityMapping() {
+        return readOnly.execute(status -> fetchOrders(orderIds).stream().map(ListingProjectionBenchmark::toDTO).toList());
+    }
+    
+    @Benchmark
+    public Collection<OrderDTO> ordersProjection() {
+        return readOnly.execute(status -> OrderLineRow.assemble(orderRepository.findLineRowsByIdIn(orderIds)).values());
+    }
+    
+    @Benchmark
+    public List<ProductDTO> productsEntityMapping() {
+        return readOnly.execute(status -> productRepository.findByDeletedFalse(productPage)
+                .map(ListingProjectionBenchmark::toDTO)
+                .getContent());
+    }
+    
+    @Benchmark
+    public List<ProductDTO> productsProjection() {
+        return readOnly.execute(status -> productRepository.findProductDTOs(productPage).getContent());
+    }
+    
+    // The fetch join the order listing used before it switched to projections
+    private List<Order> fetchOrders(List<Long> ids) {
+        return entityManager.createQuery("SELECT DISTINCT o FROM Order o JOIN FETCH o.user LEFT JOIN FETCH o.items i " +
+                        "LEFT JOIN FETCH i.product WHERE o.id IN :ids", Order.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+    
+    private static OrderDTO toDTO(Order order) {
+        List<OrderItemDTO> items = new ArrayList<>(order.getItems().size());
+        order.getItems().forEach(item -> items.add(new OrderItemDTO(item.getId(), item.getProduct().getId(),
+                item.getProduct().getName(), item.getQuantity(), item.getUnitPrice(), item.getDiscountApplied(),
+                item.getTotalPrice())));
+        return new OrderDTO(order.getId(), order.getUser().getId(), order.getUser().getUsername(), items,
+                order.getOrderTotal(), order.getStatus().name(), order.getCreatedAt(), order.getUpdatedAt());
+    }
+    
+    private static ProductDTO toDTO(Product product) {
+        return new ProductDTO(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                product.getQuantity(), product.getDeleted(), product.getCreatedAt(), product.getUpdatedAt());
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ListingProjectionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
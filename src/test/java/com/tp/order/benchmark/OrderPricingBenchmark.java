@@ -0,0 +1,108 @@
+package com.tp.order.benchmark;
+
+import com.tp.order.dto.OrderItemRequest;
+import com.tp.order.entity.Order;
+import com.tp.order.entity.OrderItem;
+import com.tp.order.entity.Product;
+import com.tp.order.entity.User;
+import com.tp.order.entity.UserRole;
+import com.tp.order.pricing.OrderPricingEngine;
+import com.tp.order.strategy.CompositeDiscountStrategy;
+import com.tp.order.strategy.DiscountCalculator;
+import com.tp.order.strategy.LargeOrderDiscountStrategy;
+import com.tp.order.strategy.PremiumUserDiscountStrategy;
+import com.tp.order.strategy.UserDiscountStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link OrderPricingEngine} with the BigDecimal pricing loop it replaced in
+ * {@code OrderService.buildOrder}. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.tp.order.benchmark.OrderPricingBenchmark}
+ * or from the IDE via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderPricingBenchmark {
+    
+    @Param({"1", "10", "500"})
+    private int lineItems;
+    
+    private DiscountCalculator discountCalculator;
+    private OrderPricingEngine pricingEngine;
+    private User user;
+    private List<Product> products;
+    private List<OrderItemRequest> items;
+    
+    @Setup
+    public void setUp() {
+        discountCalculator = new DiscountCalculator(new CompositeDiscountStrategy(List.of(
+                new UserDiscountStrategy(), new PremiumUserDiscountStrategy(), new LargeOrderDiscountStrategy())));
+        pricingEngine = new OrderPricingEngine(discountCalculator);
+        user = User.builder().id(1L).username("bench").role(UserRole.PREMIUM_USER).build();
+        
+        Random random = new Random(7);
+        products = new ArrayList<>(lineItems);
+        items = new ArrayList<>(lineItems);
+        for (long id = 1; id <= lineItems; id++) {
+            products.add(Product.builder().id(id).name("Product " + id)
+                    .price(BigDecimal.valueOf(random.nextInt(50_000) + 1, 2)).quantity(1_000).deleted(false).build());
+            items.add(new OrderItemRequest(id, random.nextInt(5) + 1));
+        }
+    }
+    
+    @Benchmark
+    public Order pricingEngine() {
+        return pricingEngine.price(user, items, products);
+    }
+    
+    @Benchmark
+    public Order legacyBigDecimalLoop() {
+        Order order = Order.builder().user(user).build();
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (var itemRequest : items) {
+            Product product = products.stream().filter(p -> p.getId().equals(itemRequest.productId())).findFirst().get();
+            BigDecimal itemTotal = product.getPrice().multiply(BigDecimal.valueOf(itemRequest.quantity()));
+            subtotal = subtotal.add(itemTotal);
+            order.addItem(OrderItem.builder().product(product).quantity(itemRequest.quantity())
+                    .unitPrice(product.getPrice()).discountApplied(BigDecimal.ZERO).totalPrice(itemTotal).build());
+        }
+        BigDecimal totalDiscount = discountCalculator.calculateDiscount(user.getRole(), subtotal);
+        if (totalDiscount.compareTo(BigDecimal.ZERO) > 0) {
+            for (OrderItem item : order.getItems()) {
+                BigDecimal itemDiscount = totalDiscount.multiply(item.getTotalPrice()).divide(subtotal, 2, RoundingMode.HALF_UP);
+                item.setDiscountApplied(itemDiscount);
+                item.setTotalPrice(item.getTotalPrice().subtract(itemDiscount));
+            }
+        }
+        order.setOrderTotal(subtotal.subtract(totalDiscount));
+        return order;
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OrderPricingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,99 @@
+package com.tp.order.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.tp.order.dto.ProductDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Time to serialize a 1,000-product page in each format the API negotiates, and the bytes each puts on the wire
+ * (logged at setup). {@code json-gzip} is what a JSON caller receives with compression on. The mappers are set up
+ * like the application's: ISO dates, as MessageFormatConfiguration gets from Boot's builder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadFormatBenchmark {
+    
+    private static final Logger log = LoggerFactory.getLogger(PayloadFormatBenchmark.class);
+    private static final int PAGE_SIZE = 1_000;
+    
+    @Param({"json", "json-gzip", "cbor", "smile"})
+    private String format;
+    
+    private ObjectMapper mapper;
+    private boolean gzip;
+    private Page<ProductDTO> page;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<ProductDTO> products = new ArrayList<>(PAGE_SIZE);
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 10, 9, 30);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            products.add(new ProductDTO(10_000L + i, "Bench product " + i, "Description of bench product " + i,
+                    new BigDecimal("9.99").add(BigDecimal.valueOf(i, 2)), 1000 - i, false,
+                    createdAt.plusMinutes(i), createdAt.plusHours(i)));
+        }
+        page = new PageImpl<>(products, PageRequest.of(0, PAGE_SIZE), 25_000);
+        
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper = switch (format) {
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            default -> builder.build();
+        };
+        gzip = format.endsWith("-gzip");
+        log.info("{}: {} bytes", format, serialize().length);
+    }
+    
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * 1024);
+        try (OutputStream out = gzip ? new GZIPOutputStream(bytes, 8192) : bytes) {
+            mapper.writeValue(out, page);
+        }
+        return bytes.toByteArray();
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PayloadFormatBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,112 @@
+package com.tp.order.benchmark;
+
+import com.tp.order.OrderManagementApiApplication;
+import com.tp.order.dto.ProductDTO;
+import com.tp.order.repository.ProductRepository;
+import com.tp.order.search.NgramProductSearchEngine;
+import com.tp.order.search.ProductSearchEngine;
+import com.tp.order.search.SqlProductSearchEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A name search over 1,000,000 products, first page of 10 by name with its total, as the
+ * {@code LOWER(name) LIKE} query served it before versus each {@link ProductSearchEngine}. Boots the application
+ * on the dev profile's in-memory H2, where the SQL engine still scans; the pg_trgm index it relies on needs
+ * Postgres, which this benchmark does not start.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ProductSearchBenchmark {
+    
+    private static final int PRODUCTS = 1_000_000;
+    
+    // A model name matching a handful of products, and a bare number matching a dozen
+    @Param({"gizmo 31413", "77777"})
+    private String term;
+    
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private ProductSearchEngine sqlEngine;
+    private ProductSearchEngine ngramEngine;
+    private final Pageable page = PageRequest.of(0, 10, Sort.by("name"));
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OrderManagementApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.profiles.active=dev", "spring.jpa.show-sql=false", "app.products.search.engine=ngram",
+                        "logging.level.root=WARN", "logging.level.com.tp=WARN", "logging.level.org.hibernate.SQL=WARN")
+                .run();
+        productRepository = context.getBean(ProductRepository.class);
+        context.getBean(JdbcTemplate.class).update("INSERT INTO products (id, name, description, price, quantity, deleted, created_at) " +
+                "SELECT 10000 + X, CASE MOD(X, 5) WHEN 0 THEN 'Widget ' WHEN 1 THEN 'Gadget ' WHEN 2 THEN 'Sprocket ' " +
+                "WHEN 3 THEN 'Gizmo ' ELSE 'Doohickey ' END || X, 'Description ' || X, 9.99, MOD(X, 50), false, " +
+                "CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, ?)", PRODUCTS);
+        sqlEngine = new SqlProductSearchEngine(productRepository);
+        NgramProductSearchEngine ngram = context.getBean(NgramProductSearchEngine.class);
+        ngram.rebuild();
+        ngramEngine = ngram;
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public Page<ProductDTO> likeQuery() {
+        return productRepository.searchProductDTOs(term, null, null, null, page);
+    }
+    
+    @Benchmark
+    public Page<ProductDTO> sqlEngine() {
+        return search(sqlEngine);
+    }
+    
+    @Benchmark
+    public Page<ProductDTO> ngramEngine() {
+        return search(ngramEngine);
+    }
+    
+    // What ProductService.searchProducts does with an engine
+    private Page<ProductDTO> search(ProductSearchEngine engine) {
+        return PageableExecutionUtils.getPage(engine.search(term, null, null, null, page).getContent(), page,
+                () -> engine.count(term, null, null, null));
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,102 @@
+package com.tp.order.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tp.order.OrderManagementApiApplication;
+import com.tp.order.dto.CountMode;
+import com.tp.order.dto.FieldSelection;
+import com.tp.order.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialized bytes and time for a 100-product listing page, rendered in full as the paged DTO body versus as the
+ * compact envelope restricted to {@code id,name,price,quantity}. Boots the application on the dev profile's
+ * in-memory H2 and logs both payload sizes at setup. Run via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SparseFieldsBenchmark {
+    
+    private static final Logger log = LoggerFactory.getLogger(SparseFieldsBenchmark.class);
+    private static final int PAGE_SIZE = 100;
+    private static final String DESCRIPTION = "Long-form catalogue copy that listing screens never show. ".repeat(6);
+    
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private ObjectMapper objectMapper;
+    private final Pageable page = PageRequest.of(0, PAGE_SIZE);
+    private FieldSelection fields;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        context = new SpringApplicationBuilder(OrderManagementApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.profiles.active=dev", "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN", "logging.level.com.tp=WARN", "logging.level.org.hibernate.SQL=WARN",
+                        "logging.level.com.tp.order.benchmark=INFO")
+                .run();
+        productService = context.getBean(ProductService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        fields = FieldSelection.parse("id,name,price,quantity", ProductService.LISTING_FIELDS);
+        
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            jdbcTemplate.update("INSERT INTO products (id, name, description, price, quantity, deleted, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, 9.99, 1000, false, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)",
+                    10_000 + i, "Bench product " + i, DESCRIPTION + i);
+        }
+        log.info("full page: {} bytes, sparse envelope: {} bytes", fullPage().length, sparsePage().length);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public byte[] fullPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(productService.getAllProducts(page));
+    }
+    
+    @Benchmark
+    public byte[] sparsePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(productService.listProductFields(fields, null, null, null, null, page,
+                CountMode.EXACT));
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SparseFieldsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,94 @@
+package com.tp.order.benchmark;
+
+import com.tp.order.repository.ProductStockRepositoryImpl;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Order throughput for one hot product whose stock is split over 1, 8 or 32 shard rows. Each operation
+ * reserves one unit and then keeps its transaction (and so the row lock) open for a fixed pause, standing in
+ * for the round trips of the order inserts that follow the reservation in {@code createOrder}.
+ * <p>
+ * Runs against in-memory H2, so absolute numbers say little about Postgres; the ratio between shard
+ * counts is the interesting part. Run via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class StockShardContentionBenchmark {
+    
+    private static final long PRODUCT_ID = 1L;
+    private static final long LOCK_HOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    
+    @Param({"1", "8", "32"})
+    private int shards;
+    
+    private HikariDataSource dataSource;
+    private ProductStockRepositoryImpl stockRepository;
+    private TransactionTemplate transactionTemplate;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:shards" + shards + ";LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(32);
+        
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, quantity INT NOT NULL, deleted BOOLEAN DEFAULT FALSE, " +
+                "stock_shards INT NOT NULL DEFAULT 0, version BIGINT NOT NULL DEFAULT 0, updated_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE product_stock_shards (product_id BIGINT NOT NULL, shard INT NOT NULL, " +
+                "quantity INT NOT NULL, PRIMARY KEY (product_id, shard))");
+        jdbcTemplate.update("INSERT INTO products (id, quantity) VALUES (?, ?)", PRODUCT_ID, 2_000_000_000);
+        
+        stockRepository = new ProductStockRepositoryImpl(jdbcTemplate);
+        stockRepository.reshardStock(PRODUCT_ID, shards);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+        dataSource.close();
+    }
+    
+    @Benchmark
+    public List<Long> reserveHotProduct() {
+        return transactionTemplate.execute(status -> {
+            List<Long> rejected = stockRepository.reserveStock(Map.of(PRODUCT_ID, 1));
+            LockSupport.parkNanos(LOCK_HOLD_NANOS);
+            return rejected;
+        });
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StockShardContentionBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,83 @@
+package com.tp.order.cache;
+
+import com.tp.order.dto.OrderDTO;
+import com.tp.order.dto.OrderItemDTO;
+import com.tp.order.entity.Order;
+import com.tp.order.entity.OrderItem;
+import com.tp.order.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class OrderDetailCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OrderDetailCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new OrderDetailCache(meterRegistry, 100, 60);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void get_shouldLoadOnce_andPublishHitRatio() {
+        cache.get(1L, this::load);
+        cache.get(1L, this::load);
+        cache.get(1L, this::load);
+
+        assertEquals(1, loads.get());
+        assertEquals(2, meterRegistry.get("cache.gets").tag("cache", "orderDetails").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(2.0 / 3, meterRegistry.get("cache.hit.ratio").gauge().value(), 1e-9);
+        assertNotNull(meterRegistry.find("cache.evictions").tag("cache", "orderDetails").functionCounter());
+    }
+
+    @Test
+    void get_shouldReturnImmutableItems() {
+        OrderDTO order = cache.get(1L, this::load);
+
+        assertThrows(UnsupportedOperationException.class, () -> order.items().clear());
+    }
+
+    @Test
+    void get_shouldNotCacheMissingOrders() {
+        assertThrows(ResourceNotFoundException.class, () -> cache.get(1L, id -> {
+            throw new ResourceNotFoundException("Order not found for input id: " + id);
+        }));
+
+        cache.get(1L, this::load);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidator_shouldEvictOrder_whenItOrOneOfItsItemsIsWritten() {
+        OrderDetailCacheInvalidator invalidator = new OrderDetailCacheInvalidator(cache, mock(EntityManagerFactory.class));
+        cache.get(1L, this::load);
+
+        invalidator.invalidate(Order.builder().id(1L).build());
+        cache.get(1L, this::load);
+        invalidator.invalidate(OrderItem.builder().order(Order.builder().id(1L).build()).build());
+        cache.get(1L, this::load);
+
+        assertEquals(3, loads.get());
+    }
+
+    private OrderDTO load(Long id) {
+        loads.incrementAndGet();
+        List<OrderItemDTO> items = new ArrayList<>();
+        items.add(new OrderItemDTO(1L, 1L, "Laptop", 1, BigDecimal.TEN, BigDecimal.ZERO, BigDecimal.TEN));
+        return new OrderDTO(id, 1L, "user1", items, BigDecimal.TEN, "PENDING", null, null);
+    }
+}
@@ -0,0 +1,96 @@
+package com.tp.order.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductPageCacheTest {
+
+    private final List<Object> firstPage = Arrays.asList("pixel", null, 0, 10);
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void get_shouldLoadEachPageOnce_andPublishHitRatio() {
+        ProductPageCache cache = cache(60_000, noBus());
+
+        assertEquals(1, cache.get("search", firstPage, this::load));
+        assertEquals(1, cache.get("search", Arrays.asList("pixel", null, 0, 10), this::load));
+        assertEquals(2, cache.get("search", Arrays.asList("pixel", null, 1, 10), this::load));
+        assertEquals(3, cache.get("all", firstPage, this::load));
+
+        assertEquals(0.25, meterRegistry.get("cache.hit.ratio").tag("cache", "productPages").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void catalogChanged_shouldRetireEveryPage() {
+        ProductPageCache cache = cache(60_000, noBus());
+        cache.get("search", firstPage, this::load);
+
+        cache.catalogChanged();
+
+        assertEquals(2, cache.get("search", firstPage, this::load));
+        assertEquals(1, cache.catalogGeneration());
+    }
+
+    @Test
+    void stockChanged_shouldRetirePages_onlyOncePerStalenessWindow() {
+        ProductPageCache lagging = cache(60_000, noBus());
+        lagging.get("search", firstPage, this::load);
+        lagging.stockChanged();
+        assertEquals(1, lagging.get("search", firstPage, this::load));
+
+        ProductPageCache current = cache(0, noBus());
+        current.get("search", firstPage, this::load);
+        current.stockChanged();
+        current.stockChanged();
+        assertEquals(3, current.get("search", firstPage, this::load));
+        assertEquals(3, current.get("search", firstPage, this::load));
+        assertEquals(1, current.stockGeneration());
+        assertEquals(0, current.catalogGeneration());
+    }
+
+    @Test
+    void changes_shouldReachTheOtherNodes() {
+        ObjectProvider<CacheInvalidationBus> bus = new StaticListableBeanFactory(
+                Map.of("cacheInvalidationBus", new LocalCacheInvalidationBus())).getBeanProvider(CacheInvalidationBus.class);
+        ProductPageCache nodeA = cache(0, bus);
+        ProductPageCache nodeB = cache(0, bus);
+        nodeB.get("search", firstPage, this::load);
+
+        nodeA.catalogChanged();
+        assertEquals(2, nodeB.get("search", firstPage, this::load));
+
+        nodeA.stockChanged();
+        assertEquals(3, nodeB.get("search", firstPage, this::load));
+        assertEquals(0, nodeA.stockGeneration());
+        assertEquals(1, nodeB.stockGeneration());
+    }
+
+    private ProductPageCache cache(long stockStalenessMs, ObjectProvider<CacheInvalidationBus> bus) {
+        return new ProductPageCache(meterRegistry, bus, 100, 60, stockStalenessMs);
+    }
+
+    private static ObjectProvider<CacheInvalidationBus> noBus() {
+        return new StaticListableBeanFactory().getBeanProvider(CacheInvalidationBus.class);
+    }
+
+    private Integer load() {
+        return loads.incrementAndGet();
+    }
+}
@@ -0,0 +1,125 @@
+package com.tp.order.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TwoLevelCacheTest {
+
+    // Two nodes sharing one remote cache and one bus, as two instances share Redis
+    private final ConcurrentMapCacheManager remote = new ConcurrentMapCacheManager();
+    private final LocalCacheInvalidationBus bus = new LocalCacheInvalidationBus();
+    private SimpleMeterRegistry meterRegistry;
+    private Cache nodeA;
+    private Cache nodeB;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        nodeA = new TwoLevelCacheManager(remote, bus, meterRegistry, 100, Duration.ofMinutes(1)).getCache("products");
+        nodeB = new TwoLevelCacheManager(remote, bus, new SimpleMeterRegistry(), 100, Duration.ofMinutes(1))
+                .getCache("products");
+    }
+
+    @Test
+    void get_shouldServeRepeatReadsFromTheNearLevel_andPublishHitRatioPerLevel() {
+        remote.getCache("products").put(1L, "pixel");
+
+        assertEquals("pixel", nodeA.get(1L).get());
+        remote.getCache("products").put(1L, "changed behind the near level");
+        assertEquals("pixel", nodeA.get(1L).get());
+        assertEquals("pixel", nodeA.get(1L).get());
+        assertNull(nodeA.get(2L));
+
+        assertEquals(2, meterRegistry.get("cache.gets").tag("cache", "products.near").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(0.5, meterRegistry.get("cache.hit.ratio").tag("cache", "products.near").gauge().value(), 1e-9);
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "products.remote").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "products.remote").tag("result", "miss")
+                .functionCounter().count());
+        assertEquals(0.5, meterRegistry.get("cache.hit.ratio").tag("cache", "products.remote").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void evict_shouldDropTheEntryFromEveryNodesNearLevel() {
+        nodeA.put(1L, "pixel");
+        assertEquals("pixel", nodeB.get(1L).get());
+
+        nodeA.evict(1L);
+        nodeA.put(1L, "pixel pro");
+
+        assertEquals("pixel pro", nodeB.get(1L).get());
+        assertEquals("pixel pro", remote.getCache("products").get(1L).get());
+    }
+
+    @Test
+    void get_shouldNotKeepARemoteRead_thatAnInvalidationOvertook() {
+        // node A updates the entry while node B's remote read is in flight
+        AtomicReference<Runnable> duringRead = new AtomicReference<>();
+        ConcurrentMapCacheManager slowRemote = new ConcurrentMapCacheManager() {
+            @Override
+            protected Cache createConcurrentMapCache(String name) {
+                return new ConcurrentMapCache(name, false) {
+                    @Override
+                    public ValueWrapper get(Object key) {
+                        ValueWrapper value = super.get(key);
+                        Runnable hook = duringRead.getAndSet(null);
+                        if (hook != null) {
+                            hook.run();
+                        }
+                        return value;
+                    }
+                };
+            }
+        };
+        Cache writer = new TwoLevelCacheManager(slowRemote, bus, new SimpleMeterRegistry(), 100, Duration.ofMinutes(1))
+                .getCache("products");
+        Cache reader = new TwoLevelCacheManager(slowRemote, bus, new SimpleMeterRegistry(), 100, Duration.ofMinutes(1))
+                .getCache("products");
+        writer.put(1L, "pixel");
+        duringRead.set(() -> {
+            writer.evict(1L);
+            writer.put(1L, "pixel pro");
+        });
+
+        assertEquals("pixel", reader.get(1L).get());
+
+        assertEquals("pixel pro", reader.get(1L).get());
+    }
+
+    @Test
+    void clear_shouldEmptyEveryNodesNearLevel() {
+        nodeA.put(1L, "pixel");
+        nodeA.put(2L, "galaxy");
+        nodeB.get(1L);
+        nodeB.get(2L);
+
+        nodeB.clear();
+
+        assertNull(nodeA.get(1L));
+        assertNull(nodeA.get(2L));
+        assertNull(remote.getCache("products").get(1L));
+    }
+
+    @Test
+    void get_withLoader_shouldLoadOnce_andNotCacheNulls() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("pixel", nodeA.get(1L, () -> loads.incrementAndGet() > 0 ? "pixel" : null));
+        assertEquals("pixel", nodeB.get(1L, () -> loads.incrementAndGet() > 0 ? "pixel" : null));
+        nodeA.put(2L, null);
+
+        assertEquals(1, loads.get());
+        assertNull(nodeB.get(2L));
+    }
+}
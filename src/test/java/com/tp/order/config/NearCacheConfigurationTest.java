@@ -0,0 +1,66 @@
+package com.tp.order.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NearCacheConfigurationTest {
+
+    @Test
+    void context_shouldStart_andKeepSubscribing_whileRedisIsUnresponsive() throws Exception {
+        // Accepts connections but never answers, like a Redis that is down behind a load balancer
+        List<Socket> connections = new CopyOnWriteArrayList<>();
+        try (ServerSocket unresponsiveRedis = new ServerSocket(0)) {
+            Thread acceptor = new Thread(() -> {
+                try {
+                    while (true) {
+                        connections.add(unresponsiveRedis.accept());
+                    }
+                } catch (IOException closed) {
+                    // test finished
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            new ApplicationContextRunner()
+                    .withConfiguration(AutoConfigurations.of(RedisAutoConfiguration.class, JacksonAutoConfiguration.class))
+                    .withUserConfiguration(CacheConfiguration.class, NearCacheConfiguration.class)
+                    .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+                    .withPropertyValues("app.cache.enabled=true", "app.cache.near.enabled=true",
+                            "app.cache.near.recovery-interval-ms=100",
+                            "spring.data.redis.port=" + unresponsiveRedis.getLocalPort(), "spring.data.redis.timeout=200ms")
+                    .run(context -> {
+                        assertNull(context.getStartupFailure());
+                        assertNotNull(context.getBean(CacheManager.class));
+                        assertFalse(context.getBean(RedisMessageListenerContainer.class).isListening());
+
+                        int attemptsAtStartup = connections.size();
+                        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                        while (connections.size() <= attemptsAtStartup && System.nanoTime() < deadline) {
+                            Thread.sleep(50);
+                        }
+                        assertTrue(connections.size() > attemptsAtStartup, "container should retry the subscription");
+                    });
+        } finally {
+            for (Socket connection : connections) {
+                connection.close();
+            }
+        }
+    }
+}
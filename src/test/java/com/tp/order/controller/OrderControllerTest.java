@@ -6,6 +6,11 @@ import com.tp.order.dto.CreateOrderRequest;
 import com.tp.order.dto.OrderDTO;
 import com.tp.order.dto.OrderItemDTO;
 import com.tp.order.dto.OrderItemRequest;
+import com.tp.order.entity.OrderStatus;
+import com.tp.order.security.JwtUtil;
+import com.tp.order.service.AsyncOrderService;
+import com.tp.order.service.BulkOrderService;
+import com.tp.order.service.OrderExportService;
 import com.tp.order.service.OrderService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,12 +23,20 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -41,6 +54,18 @@ class OrderControllerTest {
     @MockBean
     private OrderService orderService;
     
+    @MockBean
+    private BulkOrderService bulkOrderService;
+    
+    @MockBean
+    private AsyncOrderService asyncOrderService;
+    
+    @MockBean
+    private OrderExportService orderExportService;
+    
+    @MockBean
+    private JwtUtil jwtUtil;
+    
     @Test
     @WithMockUser
     void createOrder_Success() throws Exception {
@@ -89,6 +114,31 @@ class OrderControllerTest {
                 .andExpect(jsonPath("$.orderTotal").value(2599.98));
     }
     
+    @Test
+    @WithMockUser
+    void getOrderById_NotModified_WhenValidatorsMatch() throws Exception {
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 1, 10, 9, 30, 15, 123_456_000);
+        OrderDTO order = new OrderDTO(1L, 1L, "testuser", List.of(), 
+                new BigDecimal("10.00"), "PENDING", updatedAt.minusHours(1), updatedAt);
+        when(orderService.getOrderById(1L)).thenReturn(order);
+        
+        MvcResult first = mockMvc.perform(get("/api/orders/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+        String lastModified = first.getResponse().getHeader("Last-Modified");
+        
+        mockMvc.perform(get("/api/orders/1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/orders/1").header("If-Modified-Since", lastModified))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/orders/1").header("If-None-Match", "\"1-stale\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+    }
+    
     @Test
     @WithMockUser
     void getMyOrders_Success() throws Exception {
@@ -105,6 +155,23 @@ class OrderControllerTest {
                 .andExpect(jsonPath("$.content[0].orderTotal").value(2599.98));
     }
     
+    @Test
+    @WithMockUser
+    void getMyOrdersByCursor_ReturnsNextCursor() throws Exception {
+        OrderDTO order = new OrderDTO(1L, 1L, "testuser", List.of(),
+                new BigDecimal("2599.98"), "PENDING", LocalDateTime.now(), LocalDateTime.now());
+        
+        when(orderService.getMyOrders("abc", 5)).thenReturn(new CursorPage<>(List.of(order), "def"));
+        
+        mockMvc.perform(get("/api/orders/my-orders/cursor").param("cursor", "abc").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1))
+                .andExpect(jsonPath("$.next").value("def"));
+        
+        mockMvc.perform(get("/api/orders/my-orders/cursor").param("size", "1000"))
+                .andExpect(status().isBadRequest());
+    }
+    
     @Test
     @WithMockUser(roles = "ADMIN")
     void getAllOrders_Success_WhenAdmin() throws Exception {
@@ -127,4 +194,77 @@ class OrderControllerTest {
         mockMvc.perform(get("/api/orders"))
                 .andExpect(status().isForbidden());
     }
+    
+    @Test
+    @WithMockUser(username = "b2b")
+    void createOrders_StreamsPerOrderResults() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<BulkOrderResult> sink = invocation.getArgument(2);
+            Iterator<CreateOrderRequest> orders = invocation.getArgument(1);
+            for (int index = 0; orders.hasNext(); index++) {
+                CreateOrderRequest order = orders.next();
+                sink.accept(order.items().isEmpty()
+                        ? BulkOrderResult.rejected(index, "Order must contain at least one item")
+                        : BulkOrderResult.created(index, 40L + index));
+            }
+            return null;
+        }).when(bulkOrderService).placeOrders(eq("b2b"), any(), any());
+        
+        String ndjson = objectMapper.writeValueAsString(new CreateOrderRequest(List.of(new OrderItemRequest(1L, 2)))) + "\n"
+                + objectMapper.writeValueAsString(new CreateOrderRequest(List.of())) + "\n";
+        
+        MvcResult asyncResult = mockMvc.perform(post("/api/orders/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(ndjson))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        
+        String body = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        
+        List<String> lines = body.lines().toList();
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"orderId\":40") && lines.get(0).contains("CREATED"));
+        assertTrue(lines.get(1).contains("\"index\":1") && lines.get(1).contains("REJECTED"));
+    }
+    
+    @Test
+    @WithMockUser
+    void createOrder_AsyncMode_ReturnsAcceptedWithReference() throws Exception {
+        when(asyncOrderService.submit(any(CreateOrderRequest.class))).thenReturn(AsyncOrderStatus.queued("ref-1"));
+        
+        mockMvc.perform(post("/api/orders")
+                .param("mode", "async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CreateOrderRequest(List.of(new OrderItemRequest(1L, 2))))))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/orders/async/ref-1"))
+                .andExpect(jsonPath("$.state").value("QUEUED"));
+    }
+    
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void exportOrders_StreamsCsvAttachment() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(2).write("order_id\n1\n".getBytes());
+            return 1L;
+        }).when(orderExportService).export(eq(new OrderExportFilter(null, null, OrderStatus.SHIPPED)), eq(ExportFormat.CSV), any());
+        
+        MvcResult asyncResult = mockMvc.perform(get("/api/orders/export").param("format", "csv").param("status", "SHIPPED"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"orders.csv\""))
+                .andExpect(content().string("order_id\n1\n"));
+    }
+    
+    @Test
+    @WithMockUser(roles = "USER")
+    void exportOrders_Forbidden_WhenNotAdmin() throws Exception {
+        mockMvc.perform(get("/api/orders/export"))
+                .andExpect(status().isForbidden());
+    }
 }
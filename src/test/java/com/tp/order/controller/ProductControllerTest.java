@@ -1,7 +1,15 @@
 package com.tp.order.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.tp.order.config.MessageFormatConfiguration;
+import com.tp.order.dto.CountMode;
+import com.tp.order.dto.FieldSelection;
+import com.tp.order.dto.ListEnvelope;
 import com.tp.order.dto.ProductDTO;
+import com.tp.order.security.JwtUtil;
 import com.tp.order.service.ProductService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,16 +25,22 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ProductController.class)
-@Import(TestSecurityConfig.class)
+@Import({TestSecurityConfig.class, MessageFormatConfiguration.class})
 class ProductControllerTest {
     
     @Autowired
@@ -38,6 +52,9 @@ class ProductControllerTest {
     @MockBean
     private ProductService productService;
     
+    @MockBean
+    private JwtUtil jwtUtil;
+    
     @Test
     @WithMockUser
     void getAllProducts_Success() throws Exception {
@@ -67,6 +84,99 @@ class ProductControllerTest {
                 .andExpect(jsonPath("$.price").value(1299.99));
     }
     
+    @Test
+    @WithMockUser
+    void getProductById_NegotiatesBinaryFormats_WithJsonByDefault() throws Exception {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 10, 9, 30);
+        when(productService.getProductById(1L)).thenReturn(new ProductDTO(1L, "Laptop", "Gaming laptop",
+                new BigDecimal("1299.99"), 50, false, createdAt, createdAt));
+        
+        byte[] cbor = mockMvc.perform(get("/api/products/1").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andExpect(header().stringValues("Vary", hasItem("Accept")))
+                .andReturn().getResponse().getContentAsByteArray();
+        JsonNode product = new CBORMapper().readTree(cbor);
+        assertEquals("Laptop", product.get("name").asText());
+        // Same date settings as JSON rather than timestamp arrays
+        assertEquals("2024-01-10T09:30:00", product.get("createdAt").asText());
+        
+        byte[] smile = mockMvc.perform(get("/api/products/1").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(product, new SmileMapper().readTree(smile));
+        
+        mockMvc.perform(get("/api/products/1").accept(MediaType.ALL))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.createdAt").value("2024-01-10T09:30:00"));
+    }
+    
+    @Test
+    @WithMockUser
+    void getProductById_NotModified_OnlyWhileTagMatches() throws Exception {
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 1, 10, 9, 30);
+        when(productService.getProductById(1L)).thenReturn(new ProductDTO(1L, "Laptop", "Gaming laptop",
+                new BigDecimal("1299.99"), 50, false, updatedAt, updatedAt));
+        String etag = mockMvc.perform(get("/api/products/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+        
+        mockMvc.perform(get("/api/products/1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        
+        // Stock moved without touching updatedAt
+        when(productService.getProductById(1L)).thenReturn(new ProductDTO(1L, "Laptop", "Gaming laptop",
+                new BigDecimal("1299.99"), 49, false, updatedAt, updatedAt));
+        mockMvc.perform(get("/api/products/1").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity").value(49));
+    }
+    
+    @Test
+    @WithMockUser
+    void getAllProducts_NotModified_WhilePageUnchanged() throws Exception {
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 1, 10, 9, 30);
+        ProductDTO product = new ProductDTO(1L, "Laptop", "Gaming laptop",
+                new BigDecimal("1299.99"), 50, false, updatedAt, updatedAt);
+        when(productService.getAllProducts(any())).thenReturn(new PageImpl<>(List.of(product), PageRequest.of(0, 10), 1));
+        String etag = mockMvc.perform(get("/api/products"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        
+        mockMvc.perform(get("/api/products").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        
+        // Same content, but one more product further down the catalog
+        when(productService.getAllProducts(any())).thenReturn(new PageImpl<>(List.of(product), PageRequest.of(0, 10), 11));
+        mockMvc.perform(get("/api/products").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+    
+    @Test
+    @WithMockUser
+    void getAllProducts_WithFields_ReturnsCompactEnvelope() throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1L);
+        row.put("name", "Laptop");
+        when(productService.listProductFields(eq(new FieldSelection(Set.of("id", "name"))), isNull(), isNull(), isNull(),
+                isNull(), any(), eq(CountMode.NONE))).thenReturn(new ListEnvelope<>(List.of(row), "1", null));
+        
+        mockMvc.perform(get("/api/products").param("fields", "id,name").param("count", "false"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(content().json("{\"items\":[{\"id\":1,\"name\":\"Laptop\"}],\"next\":\"1\"}", true));
+    }
+    
+    @Test
+    @WithMockUser
+    void getAllProducts_BadRequest_WhenFieldUnknown() throws Exception {
+        mockMvc.perform(get("/api/products").param("fields", "id,secret"))
+                .andExpect(status().isBadRequest());
+    }
+    
     @Test
     @WithMockUser
     void searchProducts_Success() throws Exception {
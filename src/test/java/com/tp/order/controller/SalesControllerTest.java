@@ -0,0 +1,83 @@
+package com.tp.order.controller;
+
+import com.tp.order.dto.DailySalesDTO;
+import com.tp.order.dto.ProductSalesDTO;
+import com.tp.order.security.JwtUtil;
+import com.tp.order.service.SalesAnalyticsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(SalesController.class)
+@Import(TestSecurityConfig.class)
+class SalesControllerTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @MockBean
+    private SalesAnalyticsService salesAnalyticsService;
+    
+    @MockBean
+    private JwtUtil jwtUtil;
+    
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getDailySales_ReturnsOneEntryPerDay() throws Exception {
+        LocalDate from = LocalDate.parse("2024-01-01");
+        when(salesAnalyticsService.getDailySales(from, from.plusDays(1))).thenReturn(List.of(
+                new DailySalesDTO(from, 3, 7, new BigDecimal("70.00"), new BigDecimal("1.50")),
+                DailySalesDTO.empty(from.plusDays(1))));
+        
+        mockMvc.perform(get("/api/admin/sales/daily").param("from", "2024-01-01").param("to", "2024-01-02"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].date").value("2024-01-01"))
+                .andExpect(jsonPath("$[0].revenue").value(70.00))
+                .andExpect(jsonPath("$[1].orders").value(0));
+    }
+    
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getTopProducts_PassesLimit() throws Exception {
+        LocalDate day = LocalDate.parse("2024-01-01");
+        when(salesAnalyticsService.getTopProducts(day, day, 5)).thenReturn(List.of(
+                new ProductSalesDTO(1L, "Laptop", 2, 2, new BigDecimal("2000.00"), BigDecimal.ZERO)));
+        
+        mockMvc.perform(get("/api/admin/sales/products").param("from", "2024-01-01").param("to", "2024-01-01").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].productName").value("Laptop"));
+    }
+    
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getTopProducts_BadRequest_WhenLimitTooLarge() throws Exception {
+        mockMvc.perform(get("/api/admin/sales/products").param("from", "2024-01-01").param("to", "2024-01-01").param("limit", "5000"))
+                .andExpect(status().isBadRequest());
+        
+        verify(salesAnalyticsService, never()).getTopProducts(any(), any(), anyInt());
+    }
+    
+    @Test
+    @WithMockUser(roles = "USER")
+    void getDailySales_Forbidden_WhenNotAdmin() throws Exception {
+        mockMvc.perform(get("/api/admin/sales/daily").param("from", "2024-01-01").param("to", "2024-01-02"))
+                .andExpect(status().isForbidden());
+    }
+}
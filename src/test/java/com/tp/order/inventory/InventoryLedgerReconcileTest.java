@@ -0,0 +1,73 @@
+package com.tp.order.inventory;
+
+import com.tp.order.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// With pooled connections that are not auto-commit, a write that joins an already committed transaction
+// is rolled back when the connection goes back to the pool instead of slipping through as its own commit
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledger-reconcile",
+        "spring.datasource.hikari.auto-commit=false",
+        "spring.jpa.properties.hibernate.connection.provider_disables_autocommit=true"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventoryLedgerReconcileTest {
+
+    private static final long PRODUCT_ID = 1L;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private InventoryLedger ledger;
+    private int originalQuantity;
+
+    @BeforeEach
+    void setUp() {
+        originalQuantity = quantity();
+        ledger = new InventoryLedger(productRepository, transactionManager, 8, false, null);
+        ledger.hydrate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("UPDATE products SET quantity = ? WHERE id = ?", originalQuantity, PRODUCT_ID);
+    }
+
+    @Test
+    void reconcile_shouldCommitTheOverwrite_afterTheAdminTransactionCommits() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE products SET name = name WHERE id = ?", PRODUCT_ID);
+            ledger.reconcile(PRODUCT_ID, originalQuantity + 7);
+        });
+
+        assertEquals(originalQuantity + 7, ledger.available(PRODUCT_ID));
+        assertEquals(originalQuantity + 7, quantity());
+    }
+
+    // Read in a transaction of its own so only committed stock is visible
+    private int quantity() {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                jdbcTemplate.queryForObject("SELECT quantity FROM products WHERE id = ?", Integer.class, PRODUCT_ID));
+    }
+}
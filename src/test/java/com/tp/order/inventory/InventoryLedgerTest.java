@@ -0,0 +1,183 @@
+package com.tp.order.inventory;
+
+import com.tp.order.repository.ProductRepository;
+import com.tp.order.repository.ProductStockLevel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryLedgerTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @TempDir
+    private Path journalDirectory;
+
+    private InventoryLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findStockLevels()).thenReturn(List.of(
+                new ProductStockLevel(1L, 10),
+                new ProductStockLevel(2L, 1)
+        ));
+        ledger = new InventoryLedger(productRepository, 8, null, TransactionOperations.withoutTransaction());
+        ledger.hydrate();
+    }
+
+    @Test
+    void reserve_shouldDecrementCounters_whenStockIsAvailable() {
+        List<Long> rejected = ledger.reserve(Map.of(1L, 4, 2L, 1));
+
+        assertTrue(rejected.isEmpty());
+        assertEquals(6, ledger.available(1L));
+        assertEquals(0, ledger.available(2L));
+    }
+
+    @Test
+    void reserve_shouldBeAllOrNothing() {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(1L, 4);
+        quantities.put(2L, 2);
+        quantities.put(99L, 1);
+
+        List<Long> rejected = ledger.reserve(quantities);
+
+        assertEquals(List.of(2L, 99L), rejected);
+        assertEquals(10, ledger.available(1L));
+        assertEquals(1, ledger.available(2L));
+    }
+
+    @Test
+    void reserve_shouldNeverOversell_underConcurrency() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger successes = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            executor.submit(() -> {
+                start.await();
+                if (ledger.reserve(Map.of(1L, 1)).isEmpty()) {
+                    successes.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(10, successes.get());
+        assertEquals(0, ledger.available(1L));
+    }
+
+    @Test
+    void flush_shouldWriteNetDeltasInOneBatch() {
+        ledger.reserve(Map.of(1L, 3));
+        ledger.reserve(Map.of(1L, 2, 2L, 1));
+        ledger.release(Map.of(1L, 1));
+
+        ledger.flush();
+
+        verify(productRepository).applyStockDeltas(Map.of(1L, 4, 2L, 1));
+        ledger.flush();
+        verify(productRepository, times(1)).applyStockDeltas(any());
+    }
+
+    @Test
+    void flush_shouldKeepDeltas_whenWriteFails() {
+        ledger.reserve(Map.of(1L, 3));
+        doThrow(new IllegalStateException("db down")).doNothing()
+                .when(productRepository).applyStockDeltas(any());
+
+        ledger.flush();
+        ledger.flush();
+
+        verify(productRepository, times(2)).applyStockDeltas(Map.of(1L, 3));
+    }
+
+    @Test
+    void reconcile_shouldOverwriteCounterAndDropPendingDeltas() {
+        ledger.reserve(Map.of(1L, 3));
+
+        ledger.reconcile(1L, 50);
+        ledger.flush();
+
+        assertEquals(50, ledger.available(1L));
+        verify(productRepository).overwriteStock(1L, 50);
+        verify(productRepository, never()).applyStockDeltas(any());
+    }
+
+    @Test
+    void rollback_shouldNotReleaseIntoAnOverwriteMadeAfterTheReservation() {
+        TransactionSynchronizationManager.initSynchronization();
+        List<TransactionSynchronization> synchronizations;
+        try {
+            ledger.reserve(Map.of(1L, 3));
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        ledger.reconcile(1L, 50);
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        ledger.flush();
+
+        assertEquals(50, ledger.available(1L));
+        verify(productRepository, never()).applyStockDeltas(any());
+    }
+
+    @Test
+    void rollback_shouldReleaseTheReservation_whenNoOverwriteIntervened() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            ledger.reserve(Map.of(1L, 3, 2L, 1));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        ledger.flush();
+
+        assertEquals(10, ledger.available(1L));
+        assertEquals(1, ledger.available(2L));
+        verify(productRepository, never()).applyStockDeltas(any());
+    }
+
+    @Test
+    void hydrate_shouldReplayUnflushedJournalDeltas() {
+        InventoryLedger crashed = new InventoryLedger(productRepository, 8, new StockDeltaJournal(journalDirectory), TransactionOperations.withoutTransaction());
+        crashed.hydrate();
+        crashed.reserve(Map.of(1L, 3));
+        crashed.reserve(Map.of(2L, 1));
+        crashed.reconcile(2L, 5);
+        // no flush: simulate a crash before write-back
+
+        InventoryLedger restarted = new InventoryLedger(productRepository, 8, new StockDeltaJournal(journalDirectory), TransactionOperations.withoutTransaction());
+        restarted.hydrate();
+
+        verify(productRepository).applyStockDeltas(Map.of(1L, 3));
+        assertTrue(new StockDeltaJournal(journalDirectory).replay().isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+package com.tp.order.pricing;
+
+import com.tp.order.dto.OrderItemRequest;
+import com.tp.order.entity.Order;
+import com.tp.order.entity.OrderItem;
+import com.tp.order.entity.Product;
+import com.tp.order.entity.User;
+import com.tp.order.entity.UserRole;
+import com.tp.order.exception.ResourceNotFoundException;
+import com.tp.order.strategy.DiscountCalculator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderPricingEngineTest {
+
+    @Mock
+    private DiscountCalculator discountCalculator;
+
+    private OrderPricingEngine pricingEngine;
+    private User premiumUser;
+
+    @BeforeEach
+    void setUp() {
+        pricingEngine = new OrderPricingEngine(discountCalculator);
+        premiumUser = User.builder().id(1L).username("premium").role(UserRole.PREMIUM_USER).build();
+    }
+
+    @Test
+    void price_shouldAllocateDiscount_soThatItemDiscountsSumToOrderDiscount() {
+        // Three equal lines sharing a 1.00 discount: per-line HALF_UP would give 0.33 * 3 = 0.99
+        List<Product> products = List.of(product(1L, "3.33"), product(2L, "3.33"), product(3L, "3.34"));
+        when(discountCalculator.calculateDiscount(eq(UserRole.PREMIUM_USER), any())).thenReturn(new BigDecimal("1.00"));
+
+        Order order = pricingEngine.price(premiumUser,
+                List.of(new OrderItemRequest(1L, 1), new OrderItemRequest(2L, 1), new OrderItemRequest(3L, 1)), products);
+
+        assertEquals(new BigDecimal("9.00"), order.getOrderTotal());
+        assertEquals(new BigDecimal("1.00"), sum(order, OrderItem::getDiscountApplied));
+        assertEquals(order.getOrderTotal(), sum(order, OrderItem::getTotalPrice));
+        assertEquals(new BigDecimal("0.34"), order.getItems().get(2).getDiscountApplied());
+    }
+
+    @Test
+    void price_shouldReconcileTotals_forManyRandomLines() {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>();
+        List<OrderItemRequest> items = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            products.add(product(id, BigDecimal.valueOf(random.nextInt(100_000) + 1, 2).toPlainString()));
+            items.add(new OrderItemRequest(id, random.nextInt(9) + 1));
+        }
+        when(discountCalculator.calculateDiscount(eq(UserRole.PREMIUM_USER), any()))
+                .thenAnswer(invocation -> ((BigDecimal) invocation.getArgument(1)).multiply(new BigDecimal("0.15"))
+                        .setScale(2, RoundingMode.HALF_UP));
+
+        Order order = pricingEngine.price(premiumUser, items, products);
+
+        BigDecimal subtotal = sum(order, item -> item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        BigDecimal discount = sum(order, OrderItem::getDiscountApplied);
+        assertEquals(0, subtotal.subtract(discount).compareTo(order.getOrderTotal()));
+        assertEquals(0, sum(order, OrderItem::getTotalPrice).compareTo(order.getOrderTotal()));
+    }
+
+    @Test
+    void price_shouldRejectUnknownProduct() {
+        assertThrows(ResourceNotFoundException.class, () -> pricingEngine.price(premiumUser,
+                List.of(new OrderItemRequest(99L, 1)), List.of(product(1L, "1.00"))));
+    }
+
+    @Test
+    void allocate_shouldGiveLeftoverCentsToLargestRemainders() {
+        assertArrayEquals(new long[]{4, 3, 3}, OrderPricingEngine.allocate(10, new long[]{1, 1, 1}, 3));
+        assertArrayEquals(new long[]{1, 6}, OrderPricingEngine.allocate(7, new long[]{20, 100}, 120));
+        assertArrayEquals(new long[]{0, 0}, OrderPricingEngine.allocate(0, new long[]{5, 5}, 10));
+    }
+
+    private static Product product(Long id, String price) {
+        return Product.builder().id(id).name("P" + id).price(new BigDecimal(price)).quantity(100).deleted(false).build();
+    }
+
+    private static BigDecimal sum(Order order, Function<OrderItem, BigDecimal> value) {
+        return order.getItems().stream().map(value).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
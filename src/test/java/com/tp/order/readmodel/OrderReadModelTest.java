@@ -0,0 +1,196 @@
+package com.tp.order.readmodel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tp.order.config.JpaAuditingConfiguration;
+import com.tp.order.dto.CreateOrderRequest;
+import com.tp.order.dto.OrderDTO;
+import com.tp.order.dto.OrderItemRequest;
+import com.tp.order.dto.ReadModelRebuildResult;
+import com.tp.order.entity.Order;
+import com.tp.order.pricing.OrderPricingEngine;
+import com.tp.order.repository.OrderRepository;
+import com.tp.order.repository.OrderViewRepository;
+import com.tp.order.service.OrderService;
+import com.tp.order.service.StockReservationService;
+import com.tp.order.strategy.CompositeDiscountStrategy;
+import com.tp.order.strategy.DiscountCalculator;
+import com.tp.order.strategy.LargeOrderDiscountStrategy;
+import com.tp.order.strategy.PremiumUserDiscountStrategy;
+import com.tp.order.strategy.UserDiscountStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+@Import({OrderReadModel.class, JacksonAutoConfiguration.class, JpaAuditingConfiguration.class, OrderService.class, OrderPricingEngine.class,
+        StockReservationService.class, DiscountCalculator.class, CompositeDiscountStrategy.class,
+        UserDiscountStrategy.class, PremiumUserDiscountStrategy.class, LargeOrderDiscountStrategy.class})
+@TestPropertySource(properties = {"app.orders.read-model.enabled=true", "app.orders.read-model.rebuild.chunk-size=2"})
+class OrderReadModelTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderReadModel orderReadModel;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderViewRepository orderViewRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        // user1 and products 1..10 come from V2__Seed_Data.sql
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("user1", "password", List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void createOrder_shouldWriteView_thatReadsServeFrom() {
+        OrderDTO created = orderService.createOrder(new CreateOrderRequest(
+                List.of(new OrderItemRequest(1L, 1), new OrderItemRequest(2L, 2))));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_views WHERE order_id = ?", Integer.class, created.id()));
+        assertSameOrder(created, orderService.getOrderById(created.id()));
+        List<OrderDTO> myOrders = orderService.getMyOrders(PageRequest.of(0, 10)).getContent();
+        assertEquals(1, myOrders.size());
+        assertSameOrder(created, myOrders.get(0));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void rebuild_shouldBackfillViewsInChunks() {
+        List<OrderDTO> orders = List.of(
+                orderService.createOrder(new CreateOrderRequest(List.of(new OrderItemRequest(3L, 1)))),
+                orderService.createOrder(new CreateOrderRequest(List.of(new OrderItemRequest(4L, 1)))),
+                orderService.createOrder(new CreateOrderRequest(List.of(new OrderItemRequest(5L, 1)))));
+        try {
+            jdbcTemplate.update("DELETE FROM order_views");
+
+            ReadModelRebuildResult result = orderReadModel.rebuild();
+
+            assertEquals(3, result.orders());
+            for (OrderDTO order : orders) {
+                assertEquals(order.items(), orderReadModel.find(order.id()).orElseThrow().items());
+            }
+        } finally {
+            jdbcTemplate.update("DELETE FROM order_views");
+            jdbcTemplate.update("DELETE FROM order_items");
+            jdbcTemplate.update("DELETE FROM orders");
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void rebuild_shouldKeepViewsOfOrdersCommittedMidChunk_andDropOrphans() {
+        List<OrderDTO> orders = List.of(
+                orderService.createOrder(new CreateOrderRequest(List.of(new OrderItemRequest(3L, 1)))),
+                orderService.createOrder(new CreateOrderRequest(List.of(new OrderItemRequest(4L, 1)))),
+                orderService.createOrder(new CreateOrderRequest(List.of(new OrderItemRequest(5L, 1)))),
+                orderService.createOrder(new CreateOrderRequest(List.of(new OrderItemRequest(6L, 1)))));
+        long lateId = orders.get(1).id();
+        long orphanId = orders.get(2).id();
+        try {
+            // lateId is committed again, view and all, right after its chunk has selected the orders
+            deleteOrder(lateId, true);
+            // orphanId is gone but its view is left behind
+            deleteOrder(orphanId, false);
+            AtomicBoolean committed = new AtomicBoolean();
+            OrderRepository racingRepository = mock(OrderRepository.class, delegatesTo(orderRepository));
+            doAnswer(invocation -> {
+                long fromId = invocation.getArgument(0);
+                long toId = invocation.getArgument(1);
+                List<Order> selected = orderRepository.findWithItemsByIdBetween(fromId, toId);
+                if (fromId <= lateId && lateId <= toId && committed.compareAndSet(false, true)) {
+                    Thread writer = new Thread(() -> commitOrderWithView(lateId, orders.get(0).userId()));
+                    writer.start();
+                    writer.join();
+                }
+                return selected;
+            }).when(racingRepository).findWithItemsByIdBetween(anyLong(), anyLong());
+            OrderReadModel readModel = new OrderReadModel(
+                    orderViewRepository, racingRepository, objectMapper, transactionManager, 2, 1);
+
+            readModel.rebuild();
+
+            assertTrue(committed.get());
+            assertTrue(readModel.find(lateId).isPresent());
+            assertTrue(readModel.find(orphanId).isEmpty());
+            assertEquals(orders.get(3).items(), readModel.find(orders.get(3).id()).orElseThrow().items());
+        } finally {
+            jdbcTemplate.update("DELETE FROM order_views");
+            jdbcTemplate.update("DELETE FROM order_items");
+            jdbcTemplate.update("DELETE FROM orders");
+        }
+    }
+
+    private void deleteOrder(long orderId, boolean withView) {
+        if (withView) {
+            jdbcTemplate.update("DELETE FROM order_views WHERE order_id = ?", orderId);
+        }
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id = ?", orderId);
+        jdbcTemplate.update("DELETE FROM orders WHERE id = ?", orderId);
+    }
+
+    private void commitOrderWithView(long orderId, long userId) {
+        jdbcTemplate.update("INSERT INTO orders (id, user_id, order_total, status) VALUES (?, ?, 10.00, 'PENDING')",
+                orderId, userId);
+        jdbcTemplate.update("INSERT INTO order_views (order_id, user_id, username, order_total, status, items, created_at) "
+                + "VALUES (?, ?, 'user1', 10.00, 'PENDING', '[]', CURRENT_TIMESTAMP)", orderId, userId);
+    }
+
+    // The database keeps timestamps at microsecond precision, so compare everything else
+    private static void assertSameOrder(OrderDTO expected, OrderDTO actual) {
+        assertEquals(expected.id(), actual.id());
+        assertEquals(expected.userId(), actual.userId());
+        assertEquals(expected.username(), actual.username());
+        assertEquals(expected.items(), actual.items());
+        assertEquals(expected.orderTotal(), actual.orderTotal());
+        assertEquals(expected.status(), actual.status());
+    }
+}
@@ -0,0 +1,206 @@
+package com.tp.order.repository;
+
+import com.tp.order.dto.FieldSelection;
+import com.tp.order.dto.ProductDTO;
+import com.tp.order.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class ProductRepositoryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long phoneId;
+    private Long tabletId;
+
+    @BeforeEach
+    void setUp() {
+        phoneId = productRepository.saveAndFlush(Product.builder()
+                .name("Phone")
+                .price(new BigDecimal("10.00"))
+                .quantity(5)
+                .deleted(false)
+                .build()).getId();
+        tabletId = productRepository.saveAndFlush(Product.builder()
+                .name("Tablet")
+                .price(new BigDecimal("20.00"))
+                .quantity(1)
+                .deleted(false)
+                .build()).getId();
+    }
+
+    @Test
+    void reserveStock_shouldDecrementEveryLine_whenStockIsAvailable() {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(phoneId, 3);
+        quantities.put(tabletId, 1);
+
+        List<Long> rejected = productRepository.reserveStock(quantities);
+
+        assertTrue(rejected.isEmpty());
+        assertEquals(2, quantityOf(phoneId));
+        assertEquals(0, quantityOf(tabletId));
+    }
+
+    @Test
+    void reserveStock_shouldReportOnlyLinesWithoutEnoughStock() {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(phoneId, 2);
+        quantities.put(tabletId, 2);
+
+        List<Long> rejected = productRepository.reserveStock(quantities);
+
+        assertEquals(List.of(tabletId), rejected);
+        assertEquals(3, quantityOf(phoneId));
+        assertEquals(1, quantityOf(tabletId));
+    }
+
+    @Test
+    void reserveStock_shouldRejectMissingAndDeletedProducts() {
+        jdbcTemplate.update("UPDATE products SET deleted = true WHERE id = ?", tabletId);
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(tabletId, 1);
+        quantities.put(Long.MAX_VALUE, 1);
+
+        List<Long> rejected = productRepository.reserveStock(quantities);
+
+        assertEquals(List.of(tabletId, Long.MAX_VALUE), rejected);
+    }
+
+    @Test
+    void reserveStock_shouldBumpVersion_soStaleEntitiesCannotOverwriteStock() {
+        Long versionBefore = jdbcTemplate.queryForObject("SELECT version FROM products WHERE id = ?", Long.class, phoneId);
+
+        productRepository.reserveStock(Map.of(phoneId, 1));
+
+        assertEquals(versionBefore + 1,
+                jdbcTemplate.queryForObject("SELECT version FROM products WHERE id = ?", Long.class, phoneId));
+    }
+
+    @Test
+    void reserveStock_shouldDrawFromSeveralShards_andRollBackShortLines() {
+        assertEquals(5, productRepository.reshardStock(phoneId, 2));
+        assertEquals(0, quantityOf(phoneId));
+        assertEquals(List.of(2, 3), shardQuantities(phoneId).stream().sorted().toList());
+
+        // 4 fits in neither shard alone, so it is gathered from both
+        assertTrue(productRepository.reserveStock(Map.of(phoneId, 4)).isEmpty());
+        assertEquals(1, totalShardStock(phoneId));
+
+        assertEquals(List.of(phoneId), productRepository.reserveStock(Map.of(phoneId, 2)));
+        assertEquals(1, totalShardStock(phoneId));
+    }
+
+    @Test
+    void stockMutations_shouldTargetShards_ofShardedProducts() {
+        productRepository.reshardStock(phoneId, 4);
+
+        productRepository.applyStockDeltas(Map.of(phoneId, -3, tabletId, -1));
+        assertEquals(8, totalShardStock(phoneId));
+        assertEquals(2, quantityOf(tabletId));
+
+        productRepository.overwriteStock(phoneId, 10);
+        assertEquals(List.of(2, 2, 3, 3), shardQuantities(phoneId).stream().sorted().toList());
+
+        ProductStockLevel level = productRepository.findStockLevels().stream()
+                .filter(stock -> stock.productId().equals(phoneId))
+                .findFirst().orElseThrow();
+        assertEquals(10, level.quantity());
+        assertTrue(productRepository.searchProducts("Phone", null, null, true, PageRequest.of(0, 100)).stream()
+                .anyMatch(product -> product.getId().equals(phoneId)));
+
+        assertEquals(10, productRepository.reshardStock(phoneId, 0));
+        assertEquals(10, quantityOf(phoneId));
+        assertTrue(shardQuantities(phoneId).isEmpty());
+    }
+
+    @Test
+    void productDTOProjections_shouldMatchEntities_andIncludeShardedStock() {
+        productRepository.reshardStock(phoneId, 3);
+
+        List<ProductDTO> page = productRepository.findProductDTOs(PageRequest.of(0, 100, Sort.by("name"))).getContent();
+        ProductDTO phone = page.stream().filter(product -> product.id().equals(phoneId)).findFirst().orElseThrow();
+        assertEquals("Phone", phone.name());
+        assertEquals(0, new BigDecimal("10.00").compareTo(phone.price()));
+        assertEquals(5, phone.quantity());
+        assertEquals(productRepository.findByDeletedFalse(PageRequest.of(0, 100)).getTotalElements(), page.size());
+        assertEquals(page.stream().map(ProductDTO::name).sorted().toList(), page.stream().map(ProductDTO::name).toList());
+
+        List<ProductDTO> tablets = productRepository.searchProductDTOs("tablet", new BigDecimal("15.00"), null, true,
+                PageRequest.of(0, 10)).getContent();
+        assertTrue(tablets.stream().anyMatch(product -> product.id().equals(tabletId)));
+        assertTrue(tablets.stream().noneMatch(product -> product.id().equals(phoneId)));
+    }
+
+    @Test
+    void sliceProductDTOs_shouldReportNextPage_withoutTotal() {
+        long total = productRepository.countSearchResults(null, null, null, null);
+        assertEquals(productRepository.findByDeletedFalse(PageRequest.of(0, 1)).getTotalElements(), total);
+
+        assertTrue(productRepository.sliceProductDTOs(PageRequest.of(0, (int) total - 1)).hasNext());
+        Slice<ProductDTO> last = productRepository.sliceProductDTOs(PageRequest.of(0, (int) total));
+        assertFalse(last.hasNext());
+        assertEquals(total, last.getNumberOfElements());
+
+        assertEquals(productRepository.searchProducts("tablet", new BigDecimal("15.00"), null, true, PageRequest.of(0, 1))
+                        .getTotalElements(),
+                productRepository.countSearchResults("tablet", new BigDecimal("15.00"), null, true));
+        assertTrue(productRepository.sliceSearchProductDTOs("tablet", new BigDecimal("15.00"), null, true, PageRequest.of(0, 100))
+                .stream().anyMatch(product -> product.id().equals(tabletId)));
+    }
+
+    @Test
+    void sliceProductFields_shouldReturnOnlySelectedFields_withShardedStockAndSorting() {
+        jdbcTemplate.update("INSERT INTO product_stock_shards (product_id, shard, quantity) VALUES (?, 0, 4)", tabletId);
+
+        Slice<Map<String, Object>> rows = productRepository.sliceProductFields(
+                FieldSelection.parse("price,quantity", ProductRepository.FIELDS), null, new BigDecimal("10.00"),
+                new BigDecimal("20.00"), null, PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "price")));
+
+        assertTrue(rows.hasNext());
+        // id is always read, ahead of the selected fields
+        assertEquals(Map.of("id", tabletId, "price", new BigDecimal("20.00"), "quantity", 5), rows.getContent().get(0));
+        assertEquals(List.of("id", "price", "quantity"), List.copyOf(rows.getContent().get(0).keySet()));
+
+        Slice<Map<String, Object>> phones = productRepository.sliceProductFields(
+                FieldSelection.parse("name,id", ProductRepository.FIELDS), "phone", null, null, true, PageRequest.of(0, 10));
+        assertFalse(phones.hasNext());
+        assertTrue(phones.stream().anyMatch(row -> row.equals(Map.of("name", "Phone", "id", phoneId))));
+        assertEquals(List.of("name", "id"), List.copyOf(phones.getContent().get(0).keySet()));
+        assertEquals(productRepository.countSearchResults("phone", null, null, true),
+                productRepository.countProductFields("phone", null, null, true));
+        assertEquals(productRepository.countSearchResults(null, new BigDecimal("10.00"), new BigDecimal("20.00"), null),
+                productRepository.countProductFields(null, new BigDecimal("10.00"), new BigDecimal("20.00"), null));
+    }
+
+    private List<Integer> shardQuantities(Long productId) {
+        return jdbcTemplate.queryForList("SELECT quantity FROM product_stock_shards WHERE product_id = ?", Integer.class, productId);
+    }
+
+    private int totalShardStock(Long productId) {
+        return shardQuantities(productId).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private int quantityOf(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+}
@@ -0,0 +1,147 @@
+package com.tp.order.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the listing and lookup queries against a seeded dataset and checks H2's plan for each SQL statement
+ * they issue, subqueries included, reads through an index rather than scanning the table. Queries that read
+ * every live row by design, such as the catalog snapshots, the export stream and the rollup rebuild, are not
+ * listed. The Postgres indexes in {@code schema-postgresql.sql} are not covered here.
+ */
+@DataJpaTest
+@TestPropertySource(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.tp.order.repository.QueryPlanTest$CapturedStatements")
+class QueryPlanTest {
+    
+    private static final long USER_ID = 10_001L;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private ProductDailySalesRepository productDailySalesRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private final Pageable newestFirst = PageRequest.of(1, 10, Sort.by(Sort.Direction.DESC, "createdAt"));
+    
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO users (id, username, email, password, role) " +
+                "SELECT 10000 + X, 'planner' || X, 'planner' || X || '@example.com', 'secret', 'USER' FROM SYSTEM_RANGE(1, 50)");
+        jdbcTemplate.update("INSERT INTO products (id, name, description, price, quantity, deleted, created_at) " +
+                "SELECT 10000 + X, 'Planned ' || X, 'Description ' || X, MOD(X, 200) + 0.99, MOD(X, 7), MOD(X, 10) = 0, " +
+                "DATEADD('MINUTE', X, TIMESTAMP '2024-01-01 00:00:00') FROM SYSTEM_RANGE(1, 3000)");
+        jdbcTemplate.update("INSERT INTO orders (id, user_id, order_total, status, created_at) " +
+                "SELECT 10000 + X, 10001 + MOD(X, 50), 19.98, 'PENDING', " +
+                "DATEADD('MINUTE', X, TIMESTAMP '2024-01-01 00:00:00') FROM SYSTEM_RANGE(1, 5000)");
+        jdbcTemplate.update("INSERT INTO order_items (id, order_id, product_id, quantity, unit_price, total_price) " +
+                "SELECT 10000 + X, 10000 + (X + 1) / 2, 10001 + MOD(X, 3000), 1, 9.99, 9.99 FROM SYSTEM_RANGE(1, 10000)");
+        CapturedStatements.clear();
+    }
+    
+    @Test
+    void orderListings_shouldReadThroughIndexes() {
+        assertIndexed(() -> orderRepository.findOrderIds(newestFirst));
+        assertIndexed(() -> orderRepository.findOrderIdsByUserId(USER_ID, newestFirst));
+        assertIndexed(() -> orderRepository.findByUserId(USER_ID, newestFirst));
+        assertIndexed(() -> orderRepository.findByUser(userRepository.getReferenceById(USER_ID), newestFirst));
+    }
+    
+    @Test
+    void orderKeysetListings_shouldReadThroughIndexes() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 2, 12, 0);
+        assertIndexed(() -> orderRepository.findLatestOrderIds(Limit.of(10)));
+        assertIndexed(() -> orderRepository.findOrderIdsBefore(createdAt, 12_000L, Limit.of(10)));
+        assertIndexed(() -> orderRepository.findLatestOrderIdsByUserId(USER_ID, Limit.of(10)));
+        assertIndexed(() -> orderRepository.findOrderIdsByUserIdBefore(USER_ID, createdAt, 12_000L, Limit.of(10)));
+    }
+    
+    @Test
+    void orderLines_shouldReadThroughIndexes() {
+        assertIndexed(() -> orderRepository.findLineRowsByIdIn(List.of(10_001L, 10_002L, 12_500L)));
+        assertIndexed(() -> orderRepository.findByIdAndUserId(10_050L, USER_ID));
+    }
+    
+    @Test
+    void productListings_shouldReadThroughIndexes() {
+        assertIndexed(() -> productRepository.findByDeletedFalse(newestFirst));
+        assertIndexed(() -> productRepository.findProductDTOs(newestFirst));
+        assertIndexed(() -> productRepository.sliceProductDTOs(newestFirst));
+        assertIndexed(() -> productRepository.findMatchingProducts(null, new BigDecimal("10.00"), new BigDecimal("12.00"),
+                null, null, PageRequest.of(0, 10, Sort.by("name"))));
+        assertIndexed(() -> productRepository.countMatchingProducts(null, new BigDecimal("10.00"), new BigDecimal("12.00"),
+                null, null));
+        assertIndexed(() -> productRepository.findShardedStockLevels(List.of(10_001L, 10_002L)));
+    }
+    
+    @Test
+    void productSales_shouldReadThroughIndexes() {
+        assertIndexed(() -> productDailySalesRepository.findProductDailySales(10_001L,
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)));
+    }
+    
+    private void assertIndexed(Runnable query) {
+        CapturedStatements.clear();
+        query.run();
+        List<String> statements = CapturedStatements.drain();
+        assertFalse(statements.isEmpty());
+        for (String sql : statements) {
+            String plan = jdbcTemplate.query(connection -> connection.prepareStatement("EXPLAIN " + sql),
+                    rs -> rs.next() ? rs.getString(1) : null);
+            assertNotNull(plan, sql);
+            assertFalse(plan.contains(".tableScan"), plan);
+        }
+    }
+    
+    /** Collects the SQL Hibernate prepares, for {@link #assertIndexed} to explain. */
+    public static class CapturedStatements implements StatementInspector {
+        
+        private static final List<String> statements = new ArrayList<>();
+        
+        @Override
+        public String inspect(String sql) {
+            synchronized (statements) {
+                statements.add(sql);
+            }
+            return sql;
+        }
+        
+        static void clear() {
+            drain();
+        }
+        
+        static List<String> drain() {
+            synchronized (statements) {
+                List<String> drained = List.copyOf(statements);
+                statements.clear();
+                return drained;
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.tp.order.search;
+
+import com.tp.order.inventory.InventoryLedger;
+import com.tp.order.repository.ProductCatalogRow;
+import com.tp.order.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogIndexTest {
+    
+    @Mock
+    private ProductRepository productRepository;
+    
+    @Mock
+    private ObjectProvider<InventoryLedger> inventoryLedger;
+    
+    private final Random random = new Random(42);
+    // What the table holds, which the index has to agree with
+    private final Map<Long, ProductCatalogRow> catalog = new TreeMap<>();
+    private CatalogIndex catalogIndex;
+    
+    @BeforeEach
+    void setUp() {
+        for (long id = 1; id <= 300; id++) {
+            catalog.put(id, randomRow(id));
+        }
+        when(productRepository.findCatalogRows()).thenAnswer(invocation -> List.copyOf(catalog.values()));
+        catalogIndex = new CatalogIndex(productRepository, inventoryLedger);
+    }
+    
+    @Test
+    void search_shouldReturnNull_untilBuilt_andForSortsItCannotProduce() {
+        assertNull(catalogIndex.search(null, null, true, PageRequest.of(0, 10)));
+        catalogIndex.rebuild();
+        assertNull(catalogIndex.search(null, null, true, PageRequest.of(0, 10, Sort.by("createdAt"))));
+        assertNull(catalogIndex.search(null, null, true, PageRequest.of(0, 10, Sort.by("price", "id"))));
+        assertNotNull(catalogIndex.search(null, null, true, PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "name"))));
+    }
+    
+    @Test
+    void search_shouldMatchTheTable_acrossWritesSinceTheSnapshotAndAfterRebuild() {
+        catalogIndex.rebuild();
+        assertSearchesMatch();
+        
+        for (int i = 0; i < 120; i++) {
+            long id = 1 + random.nextInt(340);
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    ProductCatalogRow row = randomRow(id);
+                    catalog.put(id, row);
+                    catalogIndex.track(id, row.name(), row.price(), row.quantity());
+                }
+                case 1 -> {
+                    catalog.remove(id);
+                    catalogIndex.forget(id);
+                }
+                default -> {
+                    ProductCatalogRow row = catalog.get(id);
+                    if (row != null && row.quantity() > 0) {
+                        int taken = 1 + random.nextInt(row.quantity());
+                        catalog.put(id, new ProductCatalogRow(id, row.name(), row.price(), row.quantity() - taken));
+                        catalogIndex.reserved(Map.of(id, taken));
+                    }
+                }
+            }
+        }
+        assertSearchesMatch();
+        
+        catalogIndex.rebuild();
+        assertSearchesMatch();
+    }
+    
+    @Test
+    void search_shouldKeepReservationsCommittedWhileRebuilding() {
+        catalogIndex.rebuild();
+        long soldOut = catalog.values().stream().filter(row -> row.quantity() > 0).findFirst().orElseThrow().productId();
+        // The reservation commits after the rebuild has read the rows but before it publishes the new snapshot
+        when(productRepository.findCatalogRows()).thenAnswer(invocation -> {
+            List<ProductCatalogRow> rows = List.copyOf(catalog.values());
+            ProductCatalogRow row = catalog.get(soldOut);
+            catalog.put(soldOut, new ProductCatalogRow(soldOut, row.name(), row.price(), 0));
+            catalogIndex.reserved(Map.of(soldOut, row.quantity()));
+            return rows;
+        });
+        
+        catalogIndex.rebuild();
+        
+        assertFalse(catalogIndex.search(null, null, true, Pageable.unpaged()).ids().contains(soldOut));
+        assertSearchesMatch();
+    }
+    
+    private void assertSearchesMatch() {
+        List<BigDecimal[]> ranges = new ArrayList<>();
+        ranges.add(new BigDecimal[]{null, null});
+        ranges.add(new BigDecimal[]{new BigDecimal("5.00"), new BigDecimal("12.50")});
+        ranges.add(new BigDecimal[]{new BigDecimal("17.99"), null});
+        ranges.add(new BigDecimal[]{null, new BigDecimal("0.50")});
+        List<Sort> sorts = List.of(Sort.unsorted(), Sort.by("id"), Sort.by(Sort.Direction.DESC, "id"), Sort.by("price"),
+                Sort.by(Sort.Direction.DESC, "price"), Sort.by("name"), Sort.by(Sort.Direction.DESC, "name"));
+        for (BigDecimal[] range : ranges) {
+            for (Boolean available : new Boolean[]{null, true, false}) {
+                for (Sort sort : sorts) {
+                    for (Pageable pageable : List.of(PageRequest.of(0, 7, sort), PageRequest.of(3, 11, sort), Pageable.unpaged(sort))) {
+                        List<Long> expected = expected(range[0], range[1], available, sort);
+                        CatalogIndex.Result result = catalogIndex.search(range[0], range[1], available, pageable);
+                        String query = range[0] + ".." + range[1] + " available=" + available + " " + pageable;
+                        assertEquals(expected.size(), result.total(), query);
+                        List<Long> page = pageable.isUnpaged() ? expected : expected.subList(
+                                (int) Math.min(pageable.getOffset(), expected.size()),
+                                (int) Math.min(pageable.getOffset() + pageable.getPageSize(), expected.size()));
+                        assertEquals(page, result.ids(), query);
+                    }
+                }
+            }
+        }
+    }
+    
+    private List<Long> expected(BigDecimal minPrice, BigDecimal maxPrice, Boolean available, Sort sort) {
+        Comparator<ProductCatalogRow> order = Comparator.comparing(ProductCatalogRow::productId);
+        Sort.Order sorted = sort.stream().findFirst().orElse(null);
+        if (sorted != null && sorted.getProperty().equals("price")) {
+            order = Comparator.comparing(ProductCatalogRow::price).thenComparing(order);
+        } else if (sorted != null && sorted.getProperty().equals("name")) {
+            order = Comparator.comparing(ProductCatalogRow::name).thenComparing(order);
+        }
+        if (sorted != null && sorted.isDescending()) {
+            order = order.reversed();
+        }
+        return catalog.values().stream()
+                .filter(row -> minPrice == null || row.price().compareTo(minPrice) >= 0)
+                .filter(row -> maxPrice == null || row.price().compareTo(maxPrice) <= 0)
+                .filter(row -> available == null || available == row.quantity() > 0)
+                .sorted(order)
+                .map(ProductCatalogRow::productId)
+                .toList();
+    }
+    
+    // Few distinct prices and names, so ties have to be broken by id
+    private ProductCatalogRow randomRow(long id) {
+        return new ProductCatalogRow(id, "Product " + (char) ('A' + random.nextInt(12)),
+                BigDecimal.valueOf(random.nextInt(40) * 50L, 2), random.nextInt(4) == 0 ? 0 : random.nextInt(20));
+    }
+}
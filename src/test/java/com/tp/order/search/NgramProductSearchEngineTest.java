@@ -0,0 +1,94 @@
+package com.tp.order.search;
+
+import com.tp.order.dto.ProductDTO;
+import com.tp.order.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NgramProductSearchEngineTest {
+    
+    private static final long PIXEL_ID = 9100L;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private NgramProductSearchEngine ngram;
+    private SqlProductSearchEngine sql;
+    
+    @BeforeEach
+    void setUp() {
+        ngram = new NgramProductSearchEngine(productRepository, 3);
+        sql = new SqlProductSearchEngine(productRepository);
+        ngram.rebuild();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM products WHERE id = ?", PIXEL_ID);
+    }
+    
+    @Test
+    void search_shouldMatchWhatTheSqlFilterMatches() {
+        Pageable byId = PageRequest.of(0, 20, Sort.by("id"));
+        // "o" and "s" match more names than max-ids and fall back to SQL; "_" and "%" are literal text
+        for (String term : List.of("iphone", "PRO", "s24 u", "17 pro m", "no", "o", "s", "xyz", "_", "%")) {
+            List<ProductDTO> expected = sql.search(term, null, null, null, byId).getContent();
+            assertEquals(expected, ngram.search(term, null, null, null, byId).getContent(), term);
+            assertEquals(sql.count(term, null, null, null), ngram.count(term, null, null, null), term);
+            assertEquals(sql.count(term, new BigDecimal("50.00"), null, true),
+                    ngram.count(term, new BigDecimal("50.00"), null, true), term);
+        }
+        assertEquals(3, ngram.match("IPHONE").size());
+        assertNull(ngram.match("o"));
+        assertEquals(0, sql.count("_", null, null, null));
+    }
+    
+    @Test
+    void track_shouldTakeEffectOnCommit_andRebuildShouldKeepIt() {
+        jdbcTemplate.update("INSERT INTO products (id, name, description, price, quantity, deleted, created_at) " +
+                "VALUES (?, 'Pixel 9 Pro', 'Phone', 599.00, 5, false, CURRENT_TIMESTAMP)", PIXEL_ID);
+        assertEquals(List.of(), ngram.match("pixel"));
+        
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            ngram.track(PIXEL_ID, "Pixel 9 Pro");
+            assertEquals(List.of(), ngram.match("pixel"));
+        });
+        assertEquals(List.of(PIXEL_ID), ngram.match("pixel"));
+        
+        // A rename drops the old name from the snapshot's answer
+        ngram.track(PIXEL_ID, "Fold 2");
+        assertEquals(List.of(), ngram.match("pixel"));
+        assertEquals(List.of(PIXEL_ID), ngram.match("fold"));
+        
+        ngram.forget(PIXEL_ID);
+        assertEquals(List.of(), ngram.match("fold"));
+        
+        ngram.rebuild();
+        assertEquals(List.of(PIXEL_ID), ngram.match("pixel"));
+        assertEquals(1, ngram.count("9 pro", null, new BigDecimal("1000.00"), true));
+    }
+}
@@ -0,0 +1,167 @@
+package com.tp.order.service;
+
+import com.tp.order.dto.AsyncOrderStatus;
+import com.tp.order.dto.BulkOrderResult;
+import com.tp.order.dto.CreateOrderRequest;
+import com.tp.order.dto.OrderItemRequest;
+import com.tp.order.entity.OrderStatus;
+import com.tp.order.entity.User;
+import com.tp.order.exception.OrderQueueClosedException;
+import com.tp.order.exception.OrderQueueFullException;
+import com.tp.order.exception.ResourceNotFoundException;
+import com.tp.order.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncOrderServiceTest {
+
+    @Mock
+    private BulkOrderService bulkOrderService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private AsyncOrderService asyncOrderService;
+
+    @BeforeEach
+    void setUp() {
+        asyncOrderService = new AsyncOrderService(bulkOrderService, userRepository, 16, 1, 50, 600);
+        authenticateAs("alice");
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        SecurityContextHolder.clearContext();
+        asyncOrderService.shutdown();
+    }
+
+    @Test
+    void submit_shouldBeRejected_whenWritersAreNotRunning() {
+        assertThrows(OrderQueueClosedException.class, () -> asyncOrderService.submit(order()));
+    }
+
+    @Test
+    void submit_shouldReportShutdown_ratherThanAFullQueue() throws InterruptedException {
+        asyncOrderService.start();
+        asyncOrderService.shutdown();
+
+        assertThrows(OrderQueueClosedException.class, () -> asyncOrderService.submit(order()));
+    }
+
+    @Test
+    void submit_shouldBeRejected_whenTheQueueIsAtCapacity() throws Exception {
+        AsyncOrderService singleSlot = new AsyncOrderService(bulkOrderService, userRepository, 1, 1, 50, 600);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findByUsernameIn(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return List.of();
+        });
+        singleSlot.start();
+        try {
+            singleSlot.submit(order());
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            singleSlot.submit(order());
+
+            assertThrows(OrderQueueFullException.class, () -> singleSlot.submit(order()));
+        } finally {
+            release.countDown();
+            singleSlot.shutdown();
+        }
+    }
+
+    @Test
+    void submittedOrders_shouldBeGroupCommitted_andCompleteTheirTickets() throws Exception {
+        User alice = User.builder().id(1L).username("alice").build();
+        when(userRepository.findByUsernameIn(anyList())).thenReturn(List.of(alice));
+        when(bulkOrderService.placeGroup(anyList())).thenAnswer(invocation -> {
+            List<BulkOrderService.Placement> placements = invocation.getArgument(0);
+            return placements.stream()
+                    .map(placement -> BulkOrderResult.created(placement.index(), 100L + placement.index()))
+                    .toList();
+        });
+        asyncOrderService.start();
+
+        AsyncOrderStatus queued = asyncOrderService.submit(order());
+        assertEquals("QUEUED", queued.state());
+
+        AsyncOrderStatus placed = asyncOrderService.awaitStatus(queued.reference()).get(5, TimeUnit.SECONDS);
+        assertEquals("PLACED", placed.state());
+        assertEquals(OrderStatus.PENDING, placed.orderStatus());
+        assertNotNull(placed.orderId());
+        assertEquals(placed, asyncOrderService.getStatus(queued.reference()));
+    }
+
+    @Test
+    void commit_shouldPlaceOrdersOfSeveralUsersInOneGroup() {
+        User alice = User.builder().id(1L).username("alice").build();
+        User bob = User.builder().id(2L).username("bob").build();
+        when(userRepository.findByUsernameIn(anyList())).thenReturn(List.of(alice, bob));
+        when(bulkOrderService.placeGroup(anyList())).thenReturn(List.of(
+                BulkOrderResult.created(0, 10L),
+                BulkOrderResult.rejected(1, "Insufficient stock for products: [1]")));
+
+        asyncOrderService.commit(List.of(
+                new AsyncOrderService.Submission("r1", "alice", order()),
+                new AsyncOrderService.Submission("r2", "bob", order())));
+
+        verify(bulkOrderService, times(1)).placeGroup(argThat(placements -> placements.size() == 2
+                && placements.get(0).user() == alice && placements.get(1).user() == bob));
+    }
+
+    @Test
+    void commit_shouldPlaceOrdersOneByOne_whenTheGroupFails() {
+        User alice = User.builder().id(1L).username("alice").build();
+        User bob = User.builder().id(2L).username("bob").build();
+        when(userRepository.findByUsernameIn(anyList())).thenReturn(List.of(alice, bob));
+        when(bulkOrderService.placeGroup(anyList())).thenAnswer(invocation -> {
+            List<BulkOrderService.Placement> placements = invocation.getArgument(0);
+            if (placements.size() > 1) {
+                throw new IllegalStateException("boom");
+            }
+            return List.of(BulkOrderResult.created(placements.get(0).index(), 10L));
+        });
+
+        asyncOrderService.commit(List.of(
+                new AsyncOrderService.Submission("r1", "alice", order()),
+                new AsyncOrderService.Submission("r2", "bob", order())));
+
+        verify(bulkOrderService, times(1)).placeGroup(argThat(placements -> placements.size() == 2));
+        verify(bulkOrderService, times(1)).placeGroup(argThat(placements -> placements.size() == 1 && placements.get(0).user() == alice));
+        verify(bulkOrderService, times(1)).placeGroup(argThat(placements -> placements.size() == 1 && placements.get(0).user() == bob));
+    }
+
+    @Test
+    void getStatus_shouldHideReferencesOfOtherUsers() {
+        asyncOrderService.start();
+        AsyncOrderStatus queued = asyncOrderService.submit(order());
+
+        authenticateAs("mallory");
+        assertThrows(ResourceNotFoundException.class, () -> asyncOrderService.getStatus(queued.reference()));
+    }
+
+    private static void authenticateAs(String username) {
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private static CreateOrderRequest order() {
+        return new CreateOrderRequest(List.of(new OrderItemRequest(1L, 1)));
+    }
+}
@@ -0,0 +1,180 @@
+package com.tp.order.service;
+
+import com.tp.order.analytics.SalesRollup;
+import com.tp.order.dto.BulkOrderResult;
+import com.tp.order.dto.CreateOrderRequest;
+import com.tp.order.dto.OrderItemRequest;
+import com.tp.order.entity.Order;
+import com.tp.order.entity.Product;
+import com.tp.order.entity.User;
+import com.tp.order.entity.UserRole;
+import com.tp.order.readmodel.OrderReadModel;
+import com.tp.order.repository.OrderRepository;
+import com.tp.order.repository.ProductRepository;
+import com.tp.order.repository.UserRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkOrderServiceTest {
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ObjectProvider<OrderReadModel> orderReadModel;
+
+    @Mock
+    private ObjectProvider<SalesRollup> salesRollup;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BulkOrderService bulkOrderService;
+    private User user;
+    private final AtomicLong ids = new AtomicLong(100);
+
+    @BeforeEach
+    void setUp() {
+        bulkOrderService = new BulkOrderService(orderService, stockReservationService, orderRepository,
+                productRepository, userRepository, orderReadModel, salesRollup,
+                Validation.buildDefaultValidatorFactory().getValidator(), transactionManager, 2);
+
+        user = User.builder().id(1L).username("b2b").role(UserRole.USER).build();
+        when(userRepository.findByUsername("b2b")).thenReturn(Optional.of(user));
+        lenient().when(productRepository.findAllById(any())).thenReturn(List.of(
+                Product.builder().id(1L).price(BigDecimal.TEN).quantity(10).deleted(false).build(),
+                Product.builder().id(2L).price(BigDecimal.ONE).quantity(1).deleted(false).build()
+        ));
+        lenient().when(orderService.buildOrder(eq(user), anyList(), anyList()))
+                .thenAnswer(invocation -> Order.builder().user(user).build());
+        lenient().when(orderRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(0);
+            orders.forEach(order -> order.setId(ids.incrementAndGet()));
+            return orders;
+        });
+    }
+
+    @Test
+    void placeOrders_shouldReserveWholeChunkAtOnce_andCommitPerChunk() {
+        List<CreateOrderRequest> requests = List.of(order(1L, 1), order(1L, 2), order(2L, 1));
+        when(stockReservationService.reserve(any())).thenReturn(List.of());
+
+        List<BulkOrderResult> results = new ArrayList<>();
+        bulkOrderService.placeOrders("b2b", requests.iterator(), results::add);
+
+        assertEquals(List.of(0, 1, 2), results.stream().map(BulkOrderResult::index).toList());
+        assertTrue(results.stream().allMatch(result -> result.status().equals("CREATED")));
+        verify(stockReservationService).reserve(Map.of(1L, 3));
+        verify(stockReservationService).reserve(Map.of(2L, 1));
+        verify(transactionManager, times(2)).commit(any());
+        verify(productRepository, times(2)).findAllById(any());
+    }
+
+    @Test
+    void placeOrders_shouldFallBackToPerOrderReservation_whenChunkDemandIsRejected() {
+        List<CreateOrderRequest> requests = List.of(order(2L, 1), order(2L, 1));
+        when(stockReservationService.reserve(Map.of(2L, 2))).thenReturn(List.of(2L));
+        when(stockReservationService.reserve(Map.of(2L, 1))).thenReturn(List.of(), List.of(2L));
+
+        List<BulkOrderResult> results = new ArrayList<>();
+        bulkOrderService.placeOrders("b2b", requests.iterator(), results::add);
+
+        assertEquals("CREATED", results.get(0).status());
+        assertNotNull(results.get(0).orderId());
+        assertEquals("REJECTED", results.get(1).status());
+        assertTrue(results.get(1).error().contains("Insufficient stock"));
+    }
+
+    @Test
+    void placeOrders_shouldRejectUnknownProducts_withoutReservingStock() {
+        List<CreateOrderRequest> requests = List.of(order(99L, 1));
+
+        List<BulkOrderResult> results = new ArrayList<>();
+        bulkOrderService.placeOrders("b2b", requests.iterator(), results::add);
+
+        assertEquals(1, results.size());
+        assertEquals("REJECTED", results.get(0).status());
+        verify(stockReservationService, never()).reserve(any());
+    }
+
+    @Test
+    void placeOrders_shouldRejectInvalidRequests_withoutPlacingThem() {
+        List<CreateOrderRequest> requests = List.of(new CreateOrderRequest(List.of()), order(1L, 1));
+        when(stockReservationService.reserve(any())).thenReturn(List.of());
+
+        List<BulkOrderResult> results = new ArrayList<>();
+        bulkOrderService.placeOrders("b2b", requests.iterator(), results::add);
+
+        assertEquals(List.of(0, 1), results.stream().map(BulkOrderResult::index).toList());
+        assertEquals("REJECTED", results.get(0).status());
+        assertEquals("CREATED", results.get(1).status());
+        verify(stockReservationService).reserve(Map.of(1L, 1));
+    }
+
+    @Test
+    void placeOrders_shouldReloadProductsPerChunk() {
+        when(productRepository.findAllById(any())).thenReturn(
+                List.of(Product.builder().id(1L).price(BigDecimal.TEN).quantity(10).deleted(false).build()),
+                List.of(Product.builder().id(1L).price(BigDecimal.TEN).quantity(10).deleted(true).build()));
+        when(stockReservationService.reserve(any())).thenReturn(List.of());
+
+        List<BulkOrderResult> results = new ArrayList<>();
+        bulkOrderService.placeOrders("b2b", List.of(order(1L, 1), order(1L, 1), order(1L, 1)).iterator(), results::add);
+
+        assertEquals("CREATED", results.get(1).status());
+        assertEquals("REJECTED", results.get(2).status());
+        assertTrue(results.get(2).error().startsWith("Product not found"));
+    }
+
+    @Test
+    void placeOrders_shouldRetryFailedChunkOrderByOrder() {
+        when(stockReservationService.reserve(any())).thenReturn(List.of());
+        when(orderService.buildOrder(eq(user), eq(order(2L, 1).items()), anyList()))
+                .thenThrow(new IllegalStateException("boom"));
+
+        List<BulkOrderResult> results = new ArrayList<>();
+        bulkOrderService.placeOrders("b2b", List.of(order(1L, 1), order(2L, 1)).iterator(), results::add);
+
+        assertEquals(List.of(0, 1), results.stream().map(BulkOrderResult::index).toList());
+        assertEquals("CREATED", results.get(0).status());
+        assertEquals("REJECTED", results.get(1).status());
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    private static CreateOrderRequest order(Long productId, int quantity) {
+        return new CreateOrderRequest(List.of(new OrderItemRequest(productId, quantity)));
+    }
+}
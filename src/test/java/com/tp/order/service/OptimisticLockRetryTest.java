@@ -0,0 +1,73 @@
+package com.tp.order.service;
+
+import com.tp.order.entity.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class OptimisticLockRetryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OptimisticLockRetry optimisticLockRetry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        optimisticLockRetry = new OptimisticLockRetry(mock(PlatformTransactionManager.class), meterRegistry, 3, 1, 2);
+    }
+
+    @Test
+    void execute_shouldRetryConflicts_andCountThemPerProduct() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = optimisticLockRetry.execute(7L, "update", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException(Product.class, 7L);
+            }
+            return "saved";
+        });
+
+        assertEquals("saved", result);
+        assertEquals(2, count("product.optimistic.conflicts", "7"));
+        assertEquals(2, count("product.optimistic.retries", "7"));
+        assertNull(meterRegistry.find("product.optimistic.exhausted").counter());
+    }
+
+    @Test
+    void execute_shouldRethrow_whenAttemptsAreExhausted() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> optimisticLockRetry.execute(8L, "decrease-stock", () -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException(Product.class, 8L);
+        }));
+
+        assertEquals(3, attempts.get());
+        assertEquals(3, count("product.optimistic.conflicts", "8"));
+        assertEquals(2, count("product.optimistic.retries", "8"));
+        assertEquals(1, count("product.optimistic.exhausted", "8"));
+    }
+
+    @Test
+    void execute_shouldNotRetryOtherFailures() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> optimisticLockRetry.execute(9L, "update", () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("Insufficient stock");
+        }));
+
+        assertEquals(1, attempts.get());
+    }
+
+    private double count(String name, String product) {
+        return meterRegistry.get(name).tag("product", product).counter().count();
+    }
+}
@@ -0,0 +1,95 @@
+package com.tp.order.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tp.order.dto.ExportFormat;
+import com.tp.order.dto.OrderExportFilter;
+import com.tp.order.entity.OrderStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({OrderExportService.class, JacksonAutoConfiguration.class})
+class OrderExportServiceTest {
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        // user1 and products 1..10 come from V2__Seed_Data.sql
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'user1'", Long.class);
+        jdbcTemplate.update("UPDATE products SET name = 'Cable, \"braided\"' WHERE id = 2");
+        insertOrder(9001, userId, "PENDING", "2024-01-10T10:00:00", 1, 2);
+        insertOrder(9002, userId, "SHIPPED", "2024-02-10T10:00:00", 3);
+        insertOrder(9003, userId, "PENDING", "2024-03-10T10:00:00");
+    }
+
+    @Test
+    void export_shouldWriteOneJsonOrderPerLine_withItsItems() throws IOException {
+        List<String> lines = export(new OrderExportFilter(null, null, null), ExportFormat.NDJSON).lines().toList();
+
+        assertEquals(3, lines.size());
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals(9001, first.get("id").asLong());
+        assertEquals(2, first.get("items").size());
+        assertEquals("Cable, \"braided\"", first.get("items").get(1).get("productName").asText());
+        assertEquals(0, objectMapper.readTree(lines.get(2)).get("items").size());
+    }
+
+    @Test
+    void export_shouldWriteOneCsvRowPerLine_andQuoteTextFields() throws IOException {
+        List<String> lines = export(new OrderExportFilter(null, null, null), ExportFormat.CSV).lines().toList();
+
+        assertTrue(lines.get(0).startsWith("order_id,user_id,username,status"));
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(2).startsWith("9001,"));
+        assertTrue(lines.get(2).contains(",\"Cable, \"\"braided\"\"\","));
+        assertTrue(lines.get(4).startsWith("9003,") && lines.get(4).endsWith(",,,,,,,"));
+    }
+
+    @Test
+    void export_shouldApplyDateRangeAndStatus() throws IOException {
+        OrderExportFilter pendingBeforeMarch = new OrderExportFilter(
+                LocalDateTime.parse("2024-01-01T00:00:00"), LocalDateTime.parse("2024-03-01T00:00:00"), OrderStatus.PENDING);
+
+        List<String> lines = export(pendingBeforeMarch, ExportFormat.NDJSON).lines().toList();
+
+        assertEquals(1, lines.size());
+        assertEquals(9001, objectMapper.readTree(lines.get(0)).get("id").asLong());
+    }
+
+    private String export(OrderExportFilter filter, ExportFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderExportService.export(filter, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private void insertOrder(long orderId, Long userId, String status, String createdAt, long... productIds) {
+        jdbcTemplate.update("INSERT INTO orders (id, user_id, order_total, status, created_at) VALUES (?, ?, 10.00, ?, ?)",
+                orderId, userId, status, LocalDateTime.parse(createdAt));
+        for (int line = 0; line < productIds.length; line++) {
+            jdbcTemplate.update("INSERT INTO order_items (id, order_id, product_id, quantity, unit_price, discount_applied, total_price) " +
+                    "VALUES (?, ?, ?, 1, 5.00, 0, 5.00)", orderId * 10 + line, orderId, productIds[line]);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.tp.order.service;
+
+import com.tp.order.config.JpaAuditingConfiguration;
+import com.tp.order.dto.CreateOrderRequest;
+import com.tp.order.dto.CursorPage;
+import com.tp.order.dto.FieldSelection;
+import com.tp.order.dto.ListEnvelope;
+import com.tp.order.dto.OrderDTO;
+import com.tp.order.dto.OrderItemRequest;
+import com.tp.order.entity.User;
+import com.tp.order.pricing.OrderPricingEngine;
+import com.tp.order.security.AuthenticatedUser;
+import com.tp.order.strategy.CompositeDiscountStrategy;
+import com.tp.order.strategy.DiscountCalculator;
+import com.tp.order.strategy.LargeOrderDiscountStrategy;
+import com.tp.order.strategy.PremiumUserDiscountStrategy;
+import com.tp.order.strategy.UserDiscountStrategy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({JpaAuditingConfiguration.class, OrderService.class, OrderPricingEngine.class, StockReservationService.class, DiscountCalculator.class, CompositeDiscountStrategy.class,
+        UserDiscountStrategy.class, PremiumUserDiscountStrategy.class, LargeOrderDiscountStrategy.class})
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderServiceStatementCountTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        // user1 and products 1..10 come from V2__Seed_Data.sql
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(
+                        "user1",
+                        "password",
+                        List.of(new SimpleGrantedAuthority("ROLE_USER"))
+                )
+        );
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void createOrder_shouldIssueSameNumberOfStatements_regardlessOfLineCount() {
+        // first order pulls a block of ids from each sequence
+        statementsForOrderWith(1);
+
+        long singleLine = statementsForOrderWith(1);
+        long tenLines = statementsForOrderWith(10);
+
+        assertEquals(singleLine, tenLines);
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void createOrder_shouldBatchItemInserts() {
+        // fresh context, so this is the first order and pulls one block from each sequence
+        long statements = statementsForOrderWith(10);
+
+        assertEquals(11, statistics.getEntityInsertCount());
+        // user, products, one call per sequence (allocationSize 50 covers all ten items),
+        // the order INSERT and one batched INSERT for its ten items (batch_size 50)
+        assertEquals(6, statements);
+    }
+
+    @Test
+    void getAllOrders_shouldIssueSameNumberOfStatements_regardlessOfPageSize() {
+        for (int i = 0; i < 12; i++) {
+            orderService.createOrder(new CreateOrderRequest(List.of(new OrderItemRequest(1L, 1), new OrderItemRequest(2L, 1))));
+        }
+        entityManager.flush();
+
+        long smallPage = statementsForPage(3);
+        long largePage = statementsForPage(10);
+
+        assertEquals(smallPage, largePage);
+        // page of ids, count, and one fetch join for orders, users, items and products
+        assertEquals(3, largePage);
+    }
+
+    @Test
+    void getAllOrdersByCursor_shouldWalkEveryOrderOnce_withoutCountQuery() {
+        for (int i = 0; i < 7; i++) {
+            orderService.createOrder(new CreateOrderRequest(List.of(new OrderItemRequest(1L, 1))));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        List<Long> expected = orderService.getAllOrders(PageRequest.of(0, 100,
+                        Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id"))))
+                .map(OrderDTO::id).getContent();
+
+        List<Long> walked = new ArrayList<>();
+        String cursor = null;
+        do {
+            entityManager.clear();
+            statistics.clear();
+            CursorPage<OrderDTO> page = orderService.getAllOrders(cursor, 3);
+            // page of ids and the projected orders, however deep the page
+            assertEquals(2, statistics.getPrepareStatementCount());
+            page.content().forEach(order -> walked.add(order.id()));
+            cursor = page.next();
+        } while (cursor != null);
+
+        assertEquals(expected, walked);
+        assertEquals(walked, orderService.getMyOrders(null, 100).content().stream().map(OrderDTO::id).toList());
+    }
+
+    @Test
+    void getAllOrders_withFields_shouldReadOnlySelectedColumns() {
+        for (int i = 0; i < 4; i++) {
+            orderService.createOrder(new CreateOrderRequest(List.of(new OrderItemRequest(1L, 1), new OrderItemRequest(2L, 1))));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        PageRequest firstThree = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")));
+        List<OrderDTO> full = orderService.getAllOrders(firstThree).getContent();
+        entityManager.clear();
+        statistics.clear();
+
+        ListEnvelope<Map<String, Object>> sparse = orderService.getAllOrders(firstThree,
+                FieldSelection.parse("status,username,orderTotal", OrderService.LISTING_FIELDS));
+
+        // page of ids, count, and the selected columns without touching items or products
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals("1", sparse.next());
+        assertEquals(4L, sparse.total());
+        for (int i = 0; i < full.size(); i++) {
+            Map<String, Object> row = sparse.items().get(i);
+            assertEquals(List.of("status", "username", "orderTotal"), List.copyOf(row.keySet()));
+            assertEquals(full.get(i).status(), row.get("status"));
+            assertEquals(0, full.get(i).orderTotal().compareTo((BigDecimal) row.get("orderTotal")));
+        }
+
+        ListEnvelope<Map<String, Object>> withItems = orderService.getMyOrders(firstThree,
+                FieldSelection.parse("id,items", OrderService.LISTING_FIELDS));
+        assertEquals(full.get(0).id(), withItems.items().get(0).get("id"));
+        assertEquals(full.get(0).items(), withItems.items().get(0).get("items"));
+    }
+
+    @Test
+    void orderRequests_shouldNotLoadTheUser_whenPrincipalCarriesIt() {
+        User user1 = entityManager.createQuery("SELECT u FROM User u WHERE u.username = 'user1'", User.class).getSingleResult();
+        AuthenticatedUser principal = AuthenticatedUser.of(user1).withoutPassword();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        entityManager.clear();
+        statistics.clear();
+
+        OrderDTO created = orderService.createOrder(new CreateOrderRequest(List.of(new OrderItemRequest(1L, 1))));
+        entityManager.flush();
+        entityManager.clear();
+        OrderDTO loaded = orderService.getOrderById(created.id());
+        Page<OrderDTO> mine = orderService.getMyOrders(PageRequest.of(0, 10));
+
+        assertEquals("user1", loaded.username());
+        assertEquals(List.of(created.id()), mine.map(OrderDTO::id).getContent());
+        assertEquals(0, statistics.getEntityStatistics(User.class.getName()).getLoadCount());
+    }
+
+    private long statementsForPage(int size) {
+        entityManager.clear();
+        statistics.clear();
+
+        Page<OrderDTO> page = orderService.getAllOrders(PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "createdAt")));
+        page.forEach(order -> assertEquals(2, order.items().size()));
+
+        assertEquals(size, page.getNumberOfElements());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long statementsForOrderWith(int lines) {
+        List<OrderItemRequest> items = new ArrayList<>();
+        for (long productId = 1; productId <= lines; productId++) {
+            items.add(new OrderItemRequest(productId, 1));
+        }
+
+        entityManager.clear();
+        statistics.clear();
+
+        OrderDTO order = orderService.createOrder(new CreateOrderRequest(items));
+        entityManager.flush();
+
+        assertEquals(lines, order.items().size());
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -1,182 +1,247 @@
-package com.tp.order.service;
-
-import com.tp.order.dto.CreateOrderRequest;
-import com.tp.order.dto.OrderDTO;
-import com.tp.order.dto.OrderItemRequest;
-import com.tp.order.entity.*;
-import com.tp.order.exception.InsufficientStockException;
-import com.tp.order.exception.ResourceNotFoundException;
-import com.tp.order.repository.OrderRepository;
-import com.tp.order.repository.ProductRepository;
-import com.tp.order.repository.UserRepository;
-import com.tp.order.strategy.DiscountCalculator;
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.*;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.Pageable;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.context.SecurityContextHolder;
-
-import java.math.BigDecimal;
-import java.util.List;
-import java.util.Optional;
-
-import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.*;
-
-@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
-class OrderServiceTest {
-
-    @Mock
-    private OrderRepository orderRepository;
-
-    @Mock
-    private ProductRepository productRepository;
-
-    @Mock
-    private UserRepository userRepository;
-
-    @Mock
-    private DiscountCalculator discountCalculator;
-
-    @InjectMocks
-    private OrderService orderService;
-
-    private User user;
-    private Product product;
-
-    @BeforeEach
-    void setupSecurityContext() {
-        SecurityContextHolder.getContext().setAuthentication(
-                new UsernamePasswordAuthenticationToken(
-                        "testuser",
-                        "password",
-                        List.of(new SimpleGrantedAuthority("ROLE_USER"))
-                )
-        );
-
-        user = User.builder()
-                .id(1L)
-                .username("testuser")
-                .role(UserRole.USER)
-                .build();
-
-        product = Product.builder()
-                .id(10L)
-                .name("Test Product")
-                .price(BigDecimal.valueOf(100))
-                .quantity(10)
-                .deleted(false)
-                .build();
-    }
-
-    @Test
-    void createOrder_success() {
-        CreateOrderRequest request = new CreateOrderRequest(
-                List.of(new OrderItemRequest(10L, 2))
-        );
-
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-        when(productRepository.findAllById(List.of(10L))).thenReturn(List.of(product));
-        when(discountCalculator.calculateDiscount(eq(UserRole.USER), any()))
-                .thenReturn(BigDecimal.valueOf(20));
-        when(orderRepository.save(any(Order.class))).thenAnswer(i -> i.getArgument(0));
-
-        OrderDTO result = orderService.createOrder(request);
-
-        assertNotNull(result);
-        assertEquals(1, result.items().size());
-        assertEquals(BigDecimal.valueOf(180), result.orderTotal());
-        verify(productRepository).save(product);
-        verify(orderRepository).save(any(Order.class));
-    }
-
-    @Test
-    void createOrder_insufficientStock_shouldThrowException() {
-        product.setQuantity(1);
-
-        CreateOrderRequest request = new CreateOrderRequest(
-                List.of(new OrderItemRequest(10L, 5))
-        );
-
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-        when(productRepository.findAllById(List.of(10L))).thenReturn(List.of(product));
-
-        assertThrows(
-                InsufficientStockException.class,
-                () -> orderService.createOrder(request)
-        );
-    }
-
-    @Test
-    void createOrder_userNotFound_shouldThrowException() {
-        CreateOrderRequest request = new CreateOrderRequest(
-                List.of(new OrderItemRequest(10L, 1))
-        );
-
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.empty());
-
-        assertThrows(
-                ResourceNotFoundException.class,
-                () -> orderService.createOrder(request)
-        );
-    }
-
-    @Test
-    void getOrderById_success_forOwner() {
-        Order order = Order.builder()
-                .id(1L)
-                .user(user)
-                .status(OrderStatus.PENDING)
-                .orderTotal(BigDecimal.valueOf(100))
-                .build();
-
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
-
-        OrderDTO dto = orderService.getOrderById(1L);
-
-        assertEquals(1L, dto.id());
-        assertEquals("testuser", dto.username());
-    }
-
-    @Test
-    void getOrderById_unauthorizedUser_shouldThrowException() {
-        User anotherUser = User.builder()
-                .id(2L)
-                .username("other")
-                .build();
-
-        Order order = Order.builder()
-                .id(1L)
-                .user(anotherUser)
-                .build();
-
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
-
-        assertThrows(
-                ResourceNotFoundException.class,
-                () -> orderService.getOrderById(1L)
-        );
-    }
-
-    @Test
-    void getMyOrders_success() {
-        Order order = Order.builder()
-                .id(1L)
-                .user(user)
-                .orderTotal(BigDecimal.valueOf(100))
-                .build();
-
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-        when(orderRepository.findByUser(eq(user), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(order)));
-
-        Page<OrderDTO> result = orderService.getMyOrders(Pageable.unpaged());
-
-        assertEquals(1, result.getTotalElements());
-    }
-}
\ No newline at end of file
+package com.tp.order.service;
+
+import com.tp.order.analytics.SalesRollup;
+import com.tp.order.cache.OrderDetailCache;
+import com.tp.order.dto.CreateOrderRequest;
+import com.tp.order.dto.OrderDTO;
+import com.tp.order.dto.OrderItemRequest;
+import com.tp.order.entity.*;
+import com.tp.order.exception.InsufficientStockException;
+import com.tp.order.exception.ResourceNotFoundException;
+import com.tp.order.pricing.OrderPricingEngine;
+import com.tp.order.readmodel.OrderReadModel;
+import com.tp.order.repository.OrderLineRow;
+import com.tp.order.repository.OrderRepository;
+import com.tp.order.repository.ProductRepository;
+import com.tp.order.repository.UserRepository;
+import com.tp.order.security.AuthenticatedUser;
+import com.tp.order.strategy.DiscountCalculator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class OrderServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private DiscountCalculator discountCalculator;
+
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Mock
+    private ObjectProvider<OrderReadModel> orderReadModel;
+
+    @Mock
+    private ObjectProvider<OrderDetailCache> orderDetailCache;
+
+    @Mock
+    private ObjectProvider<SalesRollup> salesRollup;
+
+    private OrderService orderService;
+
+    private User user;
+    private Product product;
+
+    @BeforeEach
+    void setupSecurityContext() {
+        orderService = new OrderService(orderRepository, productRepository, userRepository,
+                new OrderPricingEngine(discountCalculator), stockReservationService, orderReadModel, orderDetailCache, salesRollup);
+
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "testuser", null, UserRole.USER);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities())
+        );
+
+        user = User.builder()
+                .id(1L)
+                .username("testuser")
+                .role(UserRole.USER)
+                .build();
+
+        product = Product.builder()
+                .id(10L)
+                .name("Test Product")
+                .price(BigDecimal.valueOf(100))
+                .quantity(10)
+                .deleted(false)
+                .build();
+    }
+
+    @Test
+    void createOrder_success() {
+        CreateOrderRequest request = new CreateOrderRequest(
+                List.of(new OrderItemRequest(10L, 2))
+        );
+
+        when(productRepository.findAllById(List.of(10L))).thenReturn(List.of(product));
+        when(discountCalculator.calculateDiscount(eq(UserRole.USER), any()))
+                .thenReturn(BigDecimal.valueOf(20));
+        when(userRepository.getReferenceById(1L)).thenReturn(User.builder().id(1L).build());
+        when(orderRepository.save(any(Order.class))).thenAnswer(i -> i.getArgument(0));
+
+        OrderDTO result = orderService.createOrder(request);
+
+        assertNotNull(result);
+        assertEquals(1, result.items().size());
+        assertEquals(new BigDecimal("180.00"), result.orderTotal());
+        assertEquals("testuser", result.username());
+        verify(userRepository, never()).findByUsername(any());
+        verify(stockReservationService).reserve(Map.of(10L, 2));
+        verify(productRepository, never()).save(any(Product.class));
+        verify(orderRepository).save(any(Order.class));
+    }
+
+    @Test
+    void createOrder_duplicateLines_shouldReserveAggregatedQuantity() {
+        CreateOrderRequest request = new CreateOrderRequest(
+                List.of(new OrderItemRequest(10L, 2), new OrderItemRequest(10L, 3))
+        );
+
+        when(productRepository.findAllById(List.of(10L))).thenReturn(List.of(product));
+        when(discountCalculator.calculateDiscount(eq(UserRole.USER), any()))
+                .thenReturn(BigDecimal.ZERO);
+        when(userRepository.getReferenceById(1L)).thenReturn(User.builder().id(1L).build());
+        when(orderRepository.save(any(Order.class))).thenAnswer(i -> i.getArgument(0));
+
+        OrderDTO result = orderService.createOrder(request);
+
+        assertEquals(2, result.items().size());
+        verify(stockReservationService).reserve(Map.of(10L, 5));
+    }
+
+    @Test
+    void createOrder_insufficientStock_shouldThrowException() {
+        CreateOrderRequest request = new CreateOrderRequest(
+                List.of(new OrderItemRequest(10L, 5))
+        );
+
+        when(stockReservationService.reserve(Map.of(10L, 5))).thenReturn(List.of(10L));
+
+        assertThrows(
+                InsufficientStockException.class,
+                () -> orderService.createOrder(request)
+        );
+        verify(productRepository, never()).findAllById(any());
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void createOrder_userNotFound_shouldThrowException() {
+        CreateOrderRequest request = new CreateOrderRequest(
+                List.of(new OrderItemRequest(10L, 1))
+        );
+        // Only principals that carry a bare username are looked up
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(
+                        "testuser",
+                        "password",
+                        List.of(new SimpleGrantedAuthority("ROLE_USER"))
+                )
+        );
+
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.empty());
+
+        assertThrows(
+                ResourceNotFoundException.class,
+                () -> orderService.createOrder(request)
+        );
+    }
+
+    @Test
+    void getOrderById_success_forOwner() {
+        Order order = Order.builder()
+                .id(1L)
+                .user(user)
+                .status(OrderStatus.PENDING)
+                .orderTotal(BigDecimal.valueOf(100))
+                .build();
+
+        when(orderRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(order));
+
+        OrderDTO dto = orderService.getOrderById(1L);
+
+        assertEquals(1L, dto.id());
+        assertEquals("testuser", dto.username());
+    }
+
+    @Test
+    void getOrderById_unauthorizedUser_shouldThrowException() {
+        // another user's order is filtered out by the query itself
+        when(orderRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.empty());
+
+        assertThrows(
+                ResourceNotFoundException.class,
+                () -> orderService.getOrderById(1L)
+        );
+        verify(orderRepository, never()).findById(any());
+    }
+
+    @Test
+    void getMyOrders_success() {
+        OrderLineRow row = new OrderLineRow(1L, user.getId(), "testuser", BigDecimal.valueOf(100), OrderStatus.PENDING,
+                null, null, 10L, 1L, "Test Product", 1, BigDecimal.valueOf(100), BigDecimal.ZERO, BigDecimal.valueOf(100));
+
+        when(orderRepository.findOrderIdsByUserId(eq(1L), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(1L)));
+        when(orderRepository.findLineRowsByIdIn(List.of(1L))).thenReturn(List.of(row));
+
+        Page<OrderDTO> result = orderService.getMyOrders(Pageable.unpaged());
+
+        assertEquals(1, result.getTotalElements());
+        assertEquals("PENDING", result.getContent().get(0).status());
+        assertEquals(1, result.getContent().get(0).items().size());
+    }
+
+    @Test
+    void getAllOrdersByCursor_shouldRejectMalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> orderService.getAllOrders("not-a-cursor", 10));
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void getOrderById_shouldServeRepeatReadsFromCache_andStillCheckOwnership() {
+        OrderDetailCache cache = new OrderDetailCache(new SimpleMeterRegistry(), 100, 60);
+        when(orderDetailCache.getIfAvailable()).thenReturn(cache);
+        OrderLineRow row = new OrderLineRow(1L, 1L, "testuser", BigDecimal.valueOf(100), OrderStatus.PENDING,
+                null, null, 10L, 10L, "Test Product", 1, BigDecimal.valueOf(100), BigDecimal.ZERO, BigDecimal.valueOf(100));
+        when(orderRepository.findLineRowsByIdIn(List.of(1L))).thenReturn(List.of(row));
+
+        assertEquals("testuser", orderService.getOrderById(1L).username());
+        assertEquals("testuser", orderService.getOrderById(1L).username());
+        verify(orderRepository, times(1)).findLineRowsByIdIn(List.of(1L));
+
+        // the cached entry is shared, so another user must still be turned away
+        AuthenticatedUser other = new AuthenticatedUser(2L, "other", null, UserRole.USER);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(other, null, other.getAuthorities()));
+        assertThrows(ResourceNotFoundException.class, () -> orderService.getOrderById(1L));
+        verify(orderRepository, times(1)).findLineRowsByIdIn(List.of(1L));
+    }
+}
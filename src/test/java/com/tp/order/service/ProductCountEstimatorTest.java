@@ -0,0 +1,64 @@
+package com.tp.order.service;
+
+import com.tp.order.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class ProductCountEstimatorTest {
+
+    private ProductRepository productRepository;
+    private ProductCountEstimator estimator;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        estimator = new ProductCountEstimator(productRepository, 2);
+    }
+
+    @Test
+    void estimate_shouldCountOnce_untilRefreshed() {
+        when(productRepository.countSearchResults(null, null, null, null)).thenReturn(10L, 12L);
+
+        assertEquals(10, estimator.estimate(ProductCountEstimator.Filter.NONE));
+        assertEquals(10, estimator.estimate(ProductCountEstimator.Filter.NONE));
+
+        estimator.refresh();
+
+        assertEquals(12, estimator.estimate(ProductCountEstimator.Filter.NONE));
+        verify(productRepository, times(2)).countSearchResults(null, null, null, null);
+    }
+
+    @Test
+    void refresh_shouldDropFilters_notRequestedSinceLastRefresh() {
+        when(productRepository.countSearchResults(any(), any(), any(), any())).thenReturn(5L);
+        ProductCountEstimator.Filter phones = new ProductCountEstimator.Filter("Phone", null, null, true);
+
+        estimator.estimate(phones);
+        estimator.refresh();
+        estimator.refresh();
+        estimator.estimate(phones);
+
+        // first use, one refresh while still requested, then a fresh count after it was dropped
+        verify(productRepository, times(3)).countSearchResults(eq("phone"), isNull(), isNull(), eq(true));
+    }
+
+    @Test
+    void estimate_shouldCountExactly_onceFull() {
+        when(productRepository.countSearchResults(any(), any(), any(), any())).thenReturn(1L);
+        ProductCountEstimator.Filter cheap = new ProductCountEstimator.Filter(null, null, new BigDecimal("10"), null);
+
+        estimator.estimate(ProductCountEstimator.Filter.NONE);
+        estimator.estimate(new ProductCountEstimator.Filter("phone", null, null, null));
+        estimator.estimate(cheap);
+        estimator.estimate(cheap);
+
+        verify(productRepository, times(2)).countSearchResults(null, null, new BigDecimal("10"), null);
+    }
+}
@@ -1,21 +1,42 @@
 package com.tp.order.service;
 
+import com.tp.order.cache.CacheInvalidationBus;
+import com.tp.order.cache.ProductPageCache;
+import com.tp.order.dto.CountMode;
 import com.tp.order.dto.ProductDTO;
 import com.tp.order.entity.Product;
 import com.tp.order.exception.ResourceNotFoundException;
+import com.tp.order.inventory.InventoryLedger;
 import com.tp.order.repository.ProductRepository;
+import com.tp.order.repository.ProductStockLevel;
+import com.tp.order.search.CatalogIndex;
+import com.tp.order.search.ProductSearchEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -23,8 +44,26 @@ class ProductServiceTest {
     
     @Mock
     private ProductRepository productRepository;
+
+    @Mock
+    private ObjectProvider<InventoryLedger> inventoryLedger;
+    
+    @Mock
+    private ProductCountEstimator countEstimator;
+    
+    @Mock
+    private ProductSearchEngine productSearchEngine;
+    
+    @Mock
+    private ObjectProvider<CatalogIndex> catalogIndex;
+    
+    @Mock
+    private ObjectProvider<ProductPageCache> productPageCache;
+    
+    @Spy
+    private OptimisticLockRetry optimisticLockRetry =
+            new OptimisticLockRetry(mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 3, 0, 0);
     
-    @InjectMocks
     private ProductService productService;
     
     private Product testProduct;
@@ -32,6 +71,9 @@ class ProductServiceTest {
     
     @BeforeEach
     void setUp() {
+        productService = new ProductService(productRepository, inventoryLedger, optimisticLockRetry, countEstimator,
+                productSearchEngine, catalogIndex, productPageCache);
+        
         testProduct = Product.builder()
                 .id(1L)
                 .name("Test Product")
@@ -121,4 +163,159 @@ class ProductServiceTest {
         verify(productRepository, times(1)).findById(1L);
         verify(productRepository, times(1)).save(testProduct);
     }
+    
+    @Test
+    void updateProduct_shouldRetry_whenVersionConflicts() {
+        // Arrange
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(any(Product.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 1L))
+                .thenReturn(testProduct);
+        
+        // Act
+        ProductDTO result = productService.updateProduct(1L, testProductDTO);
+        
+        // Assert
+        assertNotNull(result);
+        verify(productRepository, times(2)).findById(1L);
+        verify(productRepository, times(2)).save(any(Product.class));
+    }
+    
+    @Test
+    void decreaseStock_shouldGiveUp_afterMaxAttempts() {
+        // Arrange
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(any(Product.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 1L));
+        
+        // Act & Assert
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> productService.decreaseStock(1L, 1));
+        verify(productRepository, times(3)).save(any(Product.class));
+    }
+    
+    @Test
+    void getProductById_shouldSumShards_forShardedProduct() {
+        // Arrange
+        testProduct.setQuantity(0);
+        testProduct.setStockShards(4);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.findShardedStockLevels(List.of(1L))).thenReturn(List.of(new ProductStockLevel(1L, 42)));
+        
+        // Act
+        ProductDTO result = productService.getProductById(1L);
+        
+        // Assert
+        assertEquals(42, result.quantity());
+    }
+    
+    @Test
+    void updateProduct_shouldReconcileLedger_withRequestedStock_forShardedProduct() {
+        // Arrange: sharded stock lives in the shard rows, the product row stays at 0
+        testProduct.setQuantity(0);
+        testProduct.setStockShards(4);
+        InventoryLedger ledger = mock(InventoryLedger.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<InventoryLedger>>getArgument(0).accept(ledger);
+            return null;
+        }).when(inventoryLedger).ifAvailable(any());
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+        ProductDTO restock = new ProductDTO(null, "Test Product", "Test Description", new BigDecimal("99.99"), 25, false, null, null);
+        
+        // Act
+        productService.updateProduct(1L, restock);
+        
+        // Assert
+        verify(productRepository).overwriteStock(1L, 25);
+        verify(ledger).reconcile(1L, 25);
+        assertEquals(0, testProduct.getQuantity());
+    }
+    
+    @Test
+    void reshardStock_shouldRejectOutOfRangeShardCount() {
+        assertThrows(IllegalArgumentException.class, () -> productService.reshardStock(1L, -1));
+        assertThrows(IllegalArgumentException.class, () -> productService.reshardStock(1L, 1000));
+        verify(productRepository, never()).reshardStock(any(), anyInt());
+    }
+    
+    @Test
+    void getAllProducts_shouldSkipCount_whenCountModeIsNone() {
+        Pageable pageable = PageRequest.of(0, 1);
+        when(productRepository.sliceProductDTOs(pageable)).thenReturn(new SliceImpl<>(List.of(testProductDTO), pageable, true));
+        
+        Slice<ProductDTO> result = productService.getAllProducts(pageable, CountMode.NONE);
+        
+        assertTrue(result.hasNext());
+        assertFalse(result instanceof Page);
+        verify(productRepository, never()).findProductDTOs(any());
+        verifyNoInteractions(countEstimator);
+    }
+    
+    @Test
+    void searchProducts_shouldClampEstimate_toWhatTheSliceShows() {
+        Pageable pageable = PageRequest.of(3, 1);
+        ProductCountEstimator.Filter filter = new ProductCountEstimator.Filter("test", null, null, null);
+        when(productSearchEngine.search("test", null, null, null, pageable))
+                .thenReturn(new SliceImpl<>(List.of(testProductDTO), pageable, true));
+        when(countEstimator.estimate(filter)).thenReturn(2L);
+        
+        Page<ProductDTO> result = (Page<ProductDTO>) productService.searchProducts("test", null, null, null, pageable, CountMode.ESTIMATE);
+        
+        // a stale estimate of 2 cannot stand when page 4 of size 1 has a successor
+        assertEquals(5, result.getTotalElements());
+        assertTrue(result.hasNext());
+    }
+    
+    @Test
+    void searchProducts_shouldAnswerPriceFilters_fromCatalogIndex() {
+        Pageable pageable = PageRequest.of(0, 2, Sort.by("price"));
+        CatalogIndex index = mock(CatalogIndex.class);
+        when(catalogIndex.getIfAvailable()).thenReturn(index);
+        when(index.search(new BigDecimal("10"), null, true, pageable)).thenReturn(new CatalogIndex.Result(List.of(7L, 3L), 5));
+        ProductDTO three = new ProductDTO(3L, "Three", null, new BigDecimal("20"), 1, false, null, null);
+        ProductDTO seven = new ProductDTO(7L, "Seven", null, new BigDecimal("10"), 4, false, null, null);
+        when(productRepository.findMatchingProducts(null, null, null, null, List.of(7L, 3L), Pageable.unpaged()))
+                .thenReturn(new SliceImpl<>(List.of(three, seven)));
+        
+        Page<ProductDTO> result = productService.searchProducts(null, new BigDecimal("10"), null, true, pageable);
+        
+        // in the index's order, with its total, and nothing searched or counted in SQL
+        assertEquals(List.of(seven, three), result.getContent());
+        assertEquals(5, result.getTotalElements());
+        verifyNoInteractions(productSearchEngine);
+        
+        Slice<ProductDTO> uncounted = productService.searchProducts(null, new BigDecimal("10"), null, true, pageable, CountMode.NONE);
+        assertFalse(uncounted instanceof Page);
+        assertTrue(uncounted.hasNext());
+    }
+    
+    @Test
+    void searchProducts_shouldServeRepeatPages_fromPageCache_untilTheCatalogChanges() {
+        ProductPageCache pageCache = new ProductPageCache(new SimpleMeterRegistry(),
+                new StaticListableBeanFactory().getBeanProvider(CacheInvalidationBus.class), 100, 60, 60_000);
+        when(productPageCache.getIfAvailable()).thenReturn(pageCache);
+        doAnswer(invocation -> {
+            invocation.<Consumer<ProductPageCache>>getArgument(0).accept(pageCache);
+            return null;
+        }).when(productPageCache).ifAvailable(any());
+        Pageable pageable = PageRequest.of(0, 10);
+        when(productSearchEngine.search(any(), any(), any(), any(), eq(pageable)))
+                .thenReturn(new SliceImpl<>(List.of(testProductDTO), pageable, false));
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+        
+        productService.searchProducts("Pixel", new BigDecimal("10.00"), null, true, pageable);
+        // same query: the term in another case, the price in another scale
+        productService.searchProducts("pixel", new BigDecimal("10"), null, true, pageable);
+        verify(productSearchEngine, times(1)).search(any(), any(), any(), any(), any());
+        
+        // a sale alone stays within the stock staleness window
+        productService.decreaseStock(1L, 1);
+        productService.searchProducts("pixel", new BigDecimal("10"), null, true, pageable);
+        verify(productSearchEngine, times(1)).search(any(), any(), any(), any(), any());
+        
+        productService.createProduct(testProductDTO);
+        productService.searchProducts("pixel", new BigDecimal("10"), null, true, pageable);
+        verify(productSearchEngine, times(2)).search(any(), any(), any(), any(), any());
+    }
 }
@@ -0,0 +1,82 @@
+package com.tp.order.service;
+
+import com.tp.order.cache.ProductPageCache;
+import com.tp.order.inventory.InventoryLedger;
+import com.tp.order.repository.ProductRepository;
+import com.tp.order.search.CatalogIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ObjectProvider<InventoryLedger> inventoryLedger;
+
+    @Mock
+    private ObjectProvider<CatalogIndex> catalogIndex;
+
+    @Mock
+    private ObjectProvider<ProductPageCache> productPageCache;
+
+    private StockReservationService stockReservationService;
+
+    @BeforeEach
+    void setUp() {
+        stockReservationService = new StockReservationService(productRepository, inventoryLedger, catalogIndex, productPageCache);
+    }
+
+    @Test
+    void reserve_shouldUseConditionalBatch_whenLedgerIsDisabled() {
+        when(productRepository.reserveStock(Map.of(1L, 2))).thenReturn(List.of());
+
+        List<Long> rejected = stockReservationService.reserve(Map.of(1L, 2));
+
+        assertTrue(rejected.isEmpty());
+        verify(productRepository, never()).applyStockDeltas(any());
+        verify(catalogIndex).ifAvailable(any());
+        verify(productPageCache).ifAvailable(any());
+    }
+
+    @Test
+    void reserve_shouldGiveBackTakenLines_whenAnyLineIsRejected() {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(1L, 2);
+        quantities.put(2L, 5);
+        when(productRepository.reserveStock(quantities)).thenReturn(List.of(2L));
+
+        List<Long> rejected = stockReservationService.reserve(quantities);
+
+        assertEquals(List.of(2L), rejected);
+        verify(productRepository).applyStockDeltas(Map.of(1L, -2));
+        verifyNoInteractions(catalogIndex, productPageCache);
+    }
+
+    @Test
+    void reserve_shouldUseLedger_whenReady() {
+        InventoryLedger ledger = mock(InventoryLedger.class);
+        when(inventoryLedger.getIfAvailable()).thenReturn(ledger);
+        when(ledger.isReady()).thenReturn(true);
+        when(ledger.reserve(Map.of(1L, 2))).thenReturn(List.of());
+
+        List<Long> rejected = stockReservationService.reserve(Map.of(1L, 2));
+
+        assertTrue(rejected.isEmpty());
+        verify(productRepository, never()).reserveStock(any());
+    }
+}